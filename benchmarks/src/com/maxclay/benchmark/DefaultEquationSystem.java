@@ -0,0 +1,18 @@
+package com.maxclay.benchmark;
+
+import com.maxclay.model.DefaultEquation;
+import com.maxclay.model.RightHandSide;
+
+/**
+ * System of independent copies of default equation <msup><mi>y</mi><mo>&#x2032;</mo></msup> = y - 2 * x / y;<br/>
+ * Every component has the same analytical solution, so accuracy of system solvers can be checked
+ * with {@link DefaultEquation#analyticalSolution(double)}.
+ */
+public class DefaultEquationSystem implements RightHandSide {
+
+	public void evaluate(double x, double[] y, double[] dydx) {
+
+		for(int i = 0; i < y.length; i++)
+			dydx[i] = y[i] - 2 * x / y[i];
+	}
+}
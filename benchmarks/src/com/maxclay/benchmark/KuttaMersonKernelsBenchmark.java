@@ -0,0 +1,92 @@
+package com.maxclay.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.maxclay.model.KuttaMersonKernels;
+
+/**
+ * Compares scalar and vector {@link KuttaMersonKernels}: time of all element-wise loops of one Kutta-Merson step
+ * (four stage arguments, the new value and the error estimate) for systems of different sizes.<br/>
+ * Vector kernels are measured only if the application was built with "vector" profile and benchmarks run on
+ * Java 17 or later (the forked JVM is given jdk.incubator.vector module); otherwise "vector" measures scalar
+ * kernels again, which is printed at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class KuttaMersonKernelsBenchmark {
+
+	@Param({"scalar", "vector"})
+	public String kernelsType;
+
+	@Param({"16", "256", "4096", "65536"})
+	public int dimension;
+
+	private KuttaMersonKernels kernels;
+
+	private double[] y;
+	private double[] k1;
+	private double[] k2;
+	private double[] k3;
+	private double[] k4;
+	private double[] k5;
+	private double[] stageY;
+	private double[] nextY;
+	private double[] tempY;
+	private double h;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		kernels = "vector".equals(kernelsType) ? KuttaMersonKernels.vector() : KuttaMersonKernels.scalar();
+		if("vector".equals(kernelsType) && !KuttaMersonKernels.isVectorAvailable())
+			System.out.println("\nVector kernels are not available, measuring scalar kernels");
+
+		Random random = new Random(42);
+		y = random(random);
+		k1 = random(random);
+		k2 = random(random);
+		k3 = random(random);
+		k4 = random(random);
+		k5 = random(random);
+		stageY = new double[dimension];
+		nextY = new double[dimension];
+		tempY = new double[dimension];
+		h = 1e-3;
+	}
+
+	private double[] random(Random random) {
+
+		double[] array = new double[dimension];
+		for(int j = 0; j < dimension; j++)
+			array[j] = random.nextDouble() - 0.5;
+		return array;
+	}
+
+	@Benchmark
+	public double step() {
+
+		kernels.secondStage(y, k1, h, stageY, dimension);
+		kernels.thirdStage(y, k1, k2, h, stageY, dimension);
+		kernels.fourthStage(y, k1, k3, h, stageY, dimension);
+		kernels.fifthStage(y, k1, k3, k4, h, stageY, dimension);
+		return kernels.combine(y, k1, k3, k4, k5, h, nextY, tempY, dimension) + stageY[dimension - 1];
+	}
+}
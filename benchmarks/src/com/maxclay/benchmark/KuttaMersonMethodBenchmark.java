@@ -0,0 +1,81 @@
+package com.maxclay.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.maxclay.model.CauchyProblem;
+import com.maxclay.model.DefaultEquation;
+import com.maxclay.model.KuttaMersonMethodAlgorithm;
+
+/**
+ * Measures {@link KuttaMersonMethodAlgorithm#run(boolean)} for small and very large output grids and accuracies,
+ * with and without report, for scalar equation and system. Run with "-prof gc" to get allocation rate.
+ * Maximum error against analytical solution is printed after each trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KuttaMersonMethodBenchmark {
+
+	@Param({"33", "1000000"})
+	public int controlPointsNum;
+
+	@Param({"1e-5", "1e-10"})
+	public double accuracy;
+
+	@Param({"false", "true"})
+	public boolean generateReport;
+
+	@Param({"1", "16"})
+	public int dimension;
+
+	private KuttaMersonMethodAlgorithm kuttaMerson;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		CauchyProblem defaultProblem = SolverState.defaultProblem(dimension, controlPointsNum);
+		CauchyProblem problem = new CauchyProblem(defaultProblem.getLowerBoundary(), defaultProblem.getHigherBoundary(),
+				defaultProblem.getStartingY(), accuracy, controlPointsNum);
+
+		kuttaMerson = dimension == 1
+				? new KuttaMersonMethodAlgorithm(new DefaultEquation(), problem)
+				: new KuttaMersonMethodAlgorithm(new DefaultEquationSystem(), problem);
+	}
+
+	@TearDown(Level.Trial)
+	public void reportAccuracy() {
+
+		System.out.println("\nMax error: " + SolverState.maxError(kuttaMerson.getArrayX(), kuttaMerson.getArrayY(), dimension)
+				+ ", accepted steps: " + kuttaMerson.getAcceptedStepsNum()
+				+ ", rejected steps: " + kuttaMerson.getRejectedStepsNum()
+				+ ", function evaluations: " + kuttaMerson.getFunctionEvaluationsNum());
+	}
+
+	@Benchmark
+	public void run(SolverState state, Blackhole blackhole) {
+
+		kuttaMerson.run(generateReport);
+		state.steps += kuttaMerson.getAcceptedStepsNum() + kuttaMerson.getRejectedStepsNum();
+		if(generateReport)
+			blackhole.consume(kuttaMerson.getReport().get());
+		blackhole.consume(kuttaMerson.getArrayY());
+	}
+}
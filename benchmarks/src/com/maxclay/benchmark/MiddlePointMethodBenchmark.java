@@ -0,0 +1,70 @@
+package com.maxclay.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.maxclay.model.DefaultEquation;
+import com.maxclay.model.MiddlePointMethodAlgorithm;
+
+/**
+ * Measures {@link MiddlePointMethodAlgorithm#run(boolean)} for small and very large grids,
+ * with and without report, for scalar equation and system. Run with "-prof gc" to get allocation rate.
+ * Maximum error against analytical solution is printed after each trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MiddlePointMethodBenchmark {
+
+	@Param({"33", "1000000"})
+	public int controlPointsNum;
+
+	@Param({"false", "true"})
+	public boolean generateReport;
+
+	@Param({"1", "16"})
+	public int dimension;
+
+	private MiddlePointMethodAlgorithm middlePoint;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		middlePoint = dimension == 1
+				? new MiddlePointMethodAlgorithm(new DefaultEquation(), SolverState.defaultProblem(1, controlPointsNum))
+				: new MiddlePointMethodAlgorithm(new DefaultEquationSystem(), SolverState.defaultProblem(dimension, controlPointsNum));
+	}
+
+	@TearDown(Level.Trial)
+	public void reportAccuracy() {
+
+		System.out.println("\nMax error: " + SolverState.maxError(middlePoint.getArrayX(), middlePoint.getArrayY(), dimension));
+	}
+
+	@Benchmark
+	public void run(SolverState state, Blackhole blackhole) {
+
+		middlePoint.run(generateReport);
+		state.steps += controlPointsNum - 1;
+		if(generateReport)
+			blackhole.consume(middlePoint.getReport().get());
+		blackhole.consume(middlePoint.getArrayY());
+	}
+}
@@ -0,0 +1,141 @@
+package com.maxclay.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.maxclay.model.CauchyProblem;
+import com.maxclay.model.DefaultEquation;
+import com.maxclay.model.RightHandSide;
+
+/**
+ * Cauchy problem with known analytical solution, used by {@link ValidationSuite} to measure accuracy of methods.
+ */
+public class ReferenceProblem {
+
+	/**
+	 * Analytical solution y(x) of the problem.
+	 */
+	@FunctionalInterface
+	public interface AnalyticalSolution {
+
+		/**
+		 * @param x - x parameter.
+		 * @param y - array to write y(x) to.
+		 */
+		void evaluate(double x, double[] y);
+	}
+
+	private final String name;
+	private final RightHandSide function;
+	private final double lowerBoundary;
+	private final double higherBoundary;
+	private final double[] startingY;
+	private final AnalyticalSolution solution;
+
+	/**
+	 * @param name - name used in reports.
+	 * @param function - right-hand side of the equation.
+	 * @param lowerBoundary - x0.
+	 * @param higherBoundary - higher boundary of the interval.
+	 * @param startingY - y(x0), must agree with the analytical solution.
+	 * @param solution - analytical solution.
+	 */
+	public ReferenceProblem(String name, RightHandSide function, double lowerBoundary, double higherBoundary,
+			double[] startingY, AnalyticalSolution solution) {
+
+		this.name = name;
+		this.function = function;
+		this.lowerBoundary = lowerBoundary;
+		this.higherBoundary = higherBoundary;
+		this.startingY = startingY.clone();
+		this.solution = solution;
+	}
+
+	/**
+	 *
+	 * @return default equation and a few problems of other kinds: decaying, oscillating and stiff.
+	 */
+	public static List<ReferenceProblem> all() {
+
+		return Arrays.asList(
+
+			new ReferenceProblem("default", new DefaultEquation(), CauchyProblem.LOWER_BOUNDARY, CauchyProblem.HIGHER_BOUNDARY,
+					new double[] { CauchyProblem.STARTING_Y }, new AnalyticalSolution() {
+
+				public void evaluate(double x, double[] y) {
+					y[0] = DefaultEquation.analyticalSolution(x);
+				}
+			}),
+
+			// y' = -y + sin(x), y = (sin(x) - cos(x)) / 2 + 1.5 exp(-x)
+			new ReferenceProblem("decay", new RightHandSide() {
+
+				public void evaluate(double x, double[] y, double[] dydx) {
+					dydx[0] = -y[0] + Math.sin(x);
+				}
+			}, 0, 10, new double[] { 1 }, new AnalyticalSolution() {
+
+				public void evaluate(double x, double[] y) {
+					y[0] = (Math.sin(x) - Math.cos(x)) / 2 + 1.5 * Math.exp(-x);
+				}
+			}),
+
+			// harmonic oscillator y1' = y2, y2' = -y1
+			new ReferenceProblem("oscillator", new RightHandSide() {
+
+				public void evaluate(double x, double[] y, double[] dydx) {
+					dydx[0] = y[1];
+					dydx[1] = -y[0];
+				}
+			}, 0, 20, new double[] { 1, 0 }, new AnalyticalSolution() {
+
+				public void evaluate(double x, double[] y) {
+					y[0] = Math.cos(x);
+					y[1] = -Math.sin(x);
+				}
+			}),
+
+			// y' = -1000 (y - cos(x)) - sin(x), y = cos(x): stiff, explicit methods are limited by stability
+			new ReferenceProblem("stiff", new RightHandSide() {
+
+				public void evaluate(double x, double[] y, double[] dydx) {
+					dydx[0] = -1000 * (y[0] - Math.cos(x)) - Math.sin(x);
+				}
+			}, 0, 2, new double[] { 1 }, new AnalyticalSolution() {
+
+				public void evaluate(double x, double[] y) {
+					y[0] = Math.cos(x);
+				}
+			})
+		);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public RightHandSide getFunction() {
+		return function;
+	}
+
+	/**
+	 * @param accuracy - algorithm accuracy.
+	 * @param controlPointsNum - number of control points.
+	 * @return Cauchy problem to solve.
+	 */
+	public CauchyProblem createProblem(double accuracy, int controlPointsNum) {
+		return new CauchyProblem(lowerBoundary, higherBoundary, startingY, accuracy, controlPointsNum);
+	}
+
+	public int getDimension() {
+		return startingY.length;
+	}
+
+	/**
+	 * @param x - x parameter.
+	 * @param y - array to write y(x) to.
+	 */
+	public void solution(double x, double[] y) {
+		solution.evaluate(x, y);
+	}
+}
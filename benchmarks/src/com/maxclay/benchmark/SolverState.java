@@ -0,0 +1,54 @@
+package com.maxclay.benchmark;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.maxclay.model.CauchyProblem;
+import com.maxclay.model.DefaultEquation;
+
+/**
+ * Counts integration steps, so that JMH reports steps/s next to runs/s.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class SolverState {
+
+	public long steps;
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		steps = 0;
+	}
+
+	/**
+	 * Creates default proviso (x0;y0) = (0;1), x <mo>&#x2208;</mo> [0; 5] for system of given dimension.
+	 */
+	static CauchyProblem defaultProblem(int dimension, int controlPointsNum) {
+
+		double[] startingY = new double[dimension];
+		Arrays.fill(startingY, CauchyProblem.STARTING_Y);
+		return new CauchyProblem(CauchyProblem.LOWER_BOUNDARY, CauchyProblem.HIGHER_BOUNDARY, startingY,
+				CauchyProblem.DEFAULT_ACCURACY, controlPointsNum);
+	}
+
+	/**
+	 * Finds maximum deviation of row-major solution from analytical solution of default equation.
+	 */
+	static double maxError(double[] valuesX, double[] valuesY, int dimension) {
+
+		double error = 0;
+		for(int i = 0; i < valuesX.length; i++) {
+
+			double exact = DefaultEquation.analyticalSolution(valuesX[i]);
+			for(int j = 0; j < dimension; j++)
+				error = Math.max(error, Math.abs(valuesY[i * dimension + j] - exact));
+		}
+
+		return error;
+	}
+}
@@ -0,0 +1,289 @@
+package com.maxclay.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.maxclay.model.CauchyProblem;
+import com.maxclay.model.ExplicitRungeKuttaIntegrator;
+import com.maxclay.model.Integrator;
+import com.maxclay.model.IntegratorRegistry;
+import com.maxclay.model.MiddlePointMethodAlgorithm;
+
+/**
+ * Runs every {@link IntegratorRegistry registered} method on every {@link ReferenceProblem} over a ladder of
+ * tolerances and writes work-precision data as CSV: max and RMS error against analytical solution at the output grid,
+ * empirical order, accepted and rejected steps, right-hand side evaluations and median time.<br/>
+ * Adaptive methods are run with {@link #TOLERANCES}, fixed step methods, which ignore accuracy, with doubling numbers
+ * of steps. Empirical order between neighbouring rungs is -log(error ratio) / log(steps ratio), so it approaches order of
+ * fixed step methods and shows how error of adaptive methods follows their cost.<br/>
+ * Given CSV written by a previous run, errors are compared with it and the suite fails if any error grew by more than
+ * a factor, so changes made for speed can't silently lose accuracy.
+ * <pre>
+ * Usage: ValidationSuite [-o file] [-r repetitions] [-b baseline.csv] [-f factor]
+ * </pre>
+ * Exit code is 0 on success, 1 if errors grew compared with baseline, 2 on usage or I/O error.
+ */
+public class ValidationSuite {
+
+	/**
+	 * Accuracies adaptive methods are run with.
+	 */
+	public static final double[] TOLERANCES = { 1e-2, 1e-3, 1e-4, 1e-5, 1e-6, 1e-7, 1e-8, 1e-9, 1e-10 };
+
+	/**
+	 * Number of steps of the first rung of fixed step methods. Each next rung doubles it.
+	 */
+	public static final int FIXED_STEPS_NUM = 8;
+
+	/**
+	 * Number of timed runs of each measurement, after one warm-up run.
+	 */
+	public static final int DEFAULT_REPETITIONS = 5;
+
+	/**
+	 * Factor error may grow by compared with baseline before it is reported as regression.
+	 */
+	public static final double DEFAULT_REGRESSION_FACTOR = 2;
+
+	private static final String HEADER = "method,problem,tolerance,controlPoints,status,maxError,rmsError,order,acceptedSteps,rejectedSteps,evaluations,nanos";
+
+	private static final String USAGE = "Usage: ValidationSuite [-o file] [-r repetitions] [-b baseline.csv] [-f factor]";
+
+	private int repetitions = DEFAULT_REPETITIONS;
+	private double regressionFactor = DEFAULT_REGRESSION_FACTOR;
+	private Path output;
+	private Path baseline;
+
+	public static void main(String[] args) {
+
+		ValidationSuite suite = new ValidationSuite();
+		try {
+			suite.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		try {
+			System.exit(suite.run() ? 0 : 1);
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		}
+	}
+
+	private void parseArguments(String[] args) {
+
+		for(int i = 0; i < args.length; i++) {
+
+			String arg = args[i];
+			if(i + 1 >= args.length)
+				throw new IllegalArgumentException(arg.startsWith("-") ? "Option " + arg + " requires a value" : "Unknown argument " + arg);
+
+			String value = args[++i];
+			if("-o".equals(arg))
+				output = Paths.get(value);
+			else if("-r".equals(arg)) {
+				repetitions = Integer.parseInt(value);
+				if(repetitions < 1)
+					throw new IllegalArgumentException("At least one repetition is required");
+			}
+			else if("-b".equals(arg))
+				baseline = Paths.get(value);
+			else if("-f".equals(arg))
+				regressionFactor = Double.parseDouble(value);
+			else
+				throw new IllegalArgumentException("Unknown option " + arg);
+		}
+	}
+
+	/**
+	 * Measures all methods, writes CSV and compares it with baseline.
+	 * @return false if errors grew compared with baseline.
+	 */
+	private boolean run() throws IOException {
+
+		List<Measurement> measurements = new ArrayList<>();
+		for(String method : IntegratorRegistry.getMethodNames())
+			for(ReferenceProblem problem : ReferenceProblem.all())
+				measurements.addAll(measureLadder(method, problem));
+
+		StringBuilder csv = new StringBuilder(HEADER).append('\n');
+		for(Measurement measurement : measurements)
+			csv.append(measurement.toCsv()).append('\n');
+
+		if(output != null)
+			Files.write(output, csv.toString().getBytes(StandardCharsets.UTF_8));
+		else
+			System.out.print(csv);
+
+		PrintStream log = System.err;
+		log.println(measurements.size() + " measurements of " + IntegratorRegistry.getMethodNames().size() + " methods on "
+				+ ReferenceProblem.all().size() + " problems");
+		if(baseline == null)
+			return true;
+
+		int regressionsNum = compare(measurements, log);
+		log.println(regressionsNum == 0 ? "No regressions compared with " + baseline : regressionsNum + " regressions compared with " + baseline);
+		return regressionsNum == 0;
+	}
+
+	private List<Measurement> measureLadder(String method, ReferenceProblem problem) {
+
+		boolean fixedStep = isFixedStep(IntegratorRegistry.create(method, problem.getFunction(), problem.createProblem(1, 2)));
+
+		List<Measurement> ladder = new ArrayList<>();
+		for(int rung = 0; rung < TOLERANCES.length; rung++) {
+
+			Measurement measurement = fixedStep
+					? measure(method, problem, Double.NaN, (FIXED_STEPS_NUM << rung) + 1)
+					: measure(method, problem, TOLERANCES[rung], CauchyProblem.DEFAULT_CONTROL_POINTS_NUM);
+
+			if(!ladder.isEmpty()) {
+				Measurement previous = ladder.get(ladder.size() - 1);
+				measurement.order = -Math.log(measurement.maxError / previous.maxError)
+						/ Math.log((double) measurement.acceptedStepsNum / previous.acceptedStepsNum);
+			}
+			ladder.add(measurement);
+		}
+		return ladder;
+	}
+
+	private static boolean isFixedStep(Integrator integrator) {
+
+		if(integrator instanceof MiddlePointMethodAlgorithm)
+			return true;
+		return integrator instanceof ExplicitRungeKuttaIntegrator && !((ExplicitRungeKuttaIntegrator) integrator).getTableau().isEmbedded();
+	}
+
+	private Measurement measure(String method, ReferenceProblem problem, double tolerance, int controlPointsNum) {
+
+		Measurement measurement = new Measurement(method, problem.getName(), tolerance, controlPointsNum);
+		CauchyProblem cauchyProblem = problem.createProblem(Double.isNaN(tolerance) ? CauchyProblem.DEFAULT_ACCURACY : tolerance, controlPointsNum);
+
+		long[] nanos = new long[repetitions];
+		Integrator integrator = null;
+		for(int i = -1; i < repetitions; i++) {
+
+			integrator = IntegratorRegistry.create(method, problem.getFunction(), cauchyProblem);
+
+			long start = System.nanoTime();
+			try {
+				integrator.run(false);
+			} catch (IllegalStateException | ArithmeticException e) {
+				measurement.status = "failed";
+				return measurement;
+			}
+			if(i >= 0)
+				nanos[i] = System.nanoTime() - start;
+		}
+
+		Arrays.sort(nanos);
+		measurement.nanos = nanos[repetitions / 2];
+		measurement.acceptedStepsNum = integrator.getAcceptedStepsNum();
+		measurement.rejectedStepsNum = integrator.getRejectedStepsNum();
+		measurement.functionEvaluationsNum = integrator.getFunctionEvaluationsNum();
+
+		double[] valuesX = integrator.getArrayX();
+		double[] valuesY = integrator.getArrayY();
+		int dimension = problem.getDimension();
+		double[] exact = new double[dimension];
+		double maxError = 0;
+		double squares = 0;
+		for(int i = 0; i < valuesX.length; i++) {
+
+			problem.solution(valuesX[i], exact);
+			for(int j = 0; j < dimension; j++) {
+				double error = Math.abs(valuesY[i * dimension + j] - exact[j]);
+				// NaN must not be lost by Math.max
+				maxError = (error > maxError || Double.isNaN(error)) ? error : maxError;
+				squares += error * error;
+			}
+		}
+
+		measurement.maxError = maxError;
+		measurement.rmsError = Math.sqrt(squares / (valuesX.length * dimension));
+		measurement.status = Double.isFinite(maxError) ? "ok" : "diverged";
+		return measurement;
+	}
+
+	/**
+	 * Compares max errors with baseline CSV, printing every measurement whose error grew too much or that stopped succeeding.
+	 * @return number of such measurements.
+	 */
+	private int compare(List<Measurement> measurements, PrintStream log) throws IOException {
+
+		Map<String, String[]> rows = new HashMap<>();
+		List<String> lines = Files.readAllLines(baseline, StandardCharsets.UTF_8);
+		for(String line : lines.subList(1, lines.size())) {
+			String[] values = line.split(",", -1);
+			if(values.length == HEADER.split(",").length)
+				rows.put(values[0] + ',' + values[1] + ',' + values[2] + ',' + values[3], values);
+		}
+
+		int regressionsNum = 0;
+		for(Measurement measurement : measurements) {
+
+			String[] row = rows.get(measurement.key());
+			if(row == null || !"ok".equals(row[4]))
+				continue;
+
+			double baselineError = Double.parseDouble(row[5]);
+			if("ok".equals(measurement.status) && measurement.maxError <= regressionFactor * baselineError + Double.MIN_NORMAL)
+				continue;
+
+			regressionsNum++;
+			log.println("Regression: " + measurement.key() + ": max error " + measurement.maxError + " (" + measurement.status
+					+ "), baseline " + baselineError);
+		}
+		return regressionsNum;
+	}
+
+	private static final class Measurement {
+
+		private final String method;
+		private final String problem;
+		private final double tolerance;
+		private final int controlPointsNum;
+
+		private String status;
+		private double maxError = Double.NaN;
+		private double rmsError = Double.NaN;
+		private double order = Double.NaN;
+		private int acceptedStepsNum;
+		private int rejectedStepsNum;
+		private int functionEvaluationsNum;
+		private long nanos;
+
+		Measurement(String method, String problem, double tolerance, int controlPointsNum) {
+
+			this.method = method;
+			this.problem = problem;
+			this.tolerance = tolerance;
+			this.controlPointsNum = controlPointsNum;
+		}
+
+		String key() {
+			return method + ',' + problem + ',' + value(tolerance) + ',' + controlPointsNum;
+		}
+
+		String toCsv() {
+			return key() + ',' + status + ',' + value(maxError) + ',' + value(rmsError) + ',' + value(order) + ','
+					+ acceptedStepsNum + ',' + rejectedStepsNum + ',' + functionEvaluationsNum + ',' + nanos;
+		}
+
+		private static String value(double value) {
+			return Double.isNaN(value) ? "" : Double.toString(value);
+		}
+	}
+}
@@ -0,0 +1,330 @@
+package com.maxclay.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.maxclay.metrics.MetricsListener;
+import com.maxclay.metrics.SolverMetrics;
+import com.maxclay.expression.ExpressionCompiler;
+import com.maxclay.model.AbstractIntegrator;
+import com.maxclay.model.CachedSolution;
+import com.maxclay.model.CompositeSolverListener;
+import com.maxclay.model.Integrator;
+import com.maxclay.model.SolutionCache;
+import com.maxclay.model.TrajectoryFileWriter;
+
+/**
+ * Headless entry point: solves problems read from {@link ProblemDefinition problem files} or standard input
+ * on a pool of worker threads and writes solutions as CSV or {@link com.maxclay.model.TrajectoryFile binary trajectory files}.<br/>
+ * Only solver classes are loaded, so it starts quickly and runs without display.
+ * <pre>
+ * Usage: cauchy-cli [-f csv|binary] [-o directory] [-t threads] [-m] [-c directory] [file ...]
+ * </pre>
+ * CSV values at the output grid are written to standard output, or to "name.csv" files when output directory is given.
+ * Binary files "name.cptr" contain all accepted steps and require output directory.
+ * Statistics of every problem are written to standard error, with -m also {@link SolverMetrics metrics} of each method.<br/>
+ * With -c CSV solutions are taken from {@link SolutionCache} kept in given directory, so problems solved by previous runs,
+ * or their shorter versions, aren't solved from scratch.
+ */
+public class CauchyCli {
+
+	/**
+	 * Maximal total size of cache files.
+	 */
+	public static final long CACHE_DISK_BYTES = 1L << 30;
+
+	private static final String USAGE = "Usage: cauchy-cli [-f csv|binary] [-o directory] [-t threads] [-m] [-c directory] [file ...]\n"
+			+ "Reads problems from files, or from standard input when no file or '-' is given.";
+
+	private enum Format { CSV, BINARY }
+
+	private Format format = Format.CSV;
+	private Path outputDirectory;
+	private int threadsNum = Runtime.getRuntime().availableProcessors();
+	private boolean printMetrics;
+	private Path cacheDirectory;
+	private SolutionCache cache;
+	private final List<String> inputs = new ArrayList<>();
+
+	public static void main(String[] args) {
+
+		CauchyCli cli = new CauchyCli();
+		try {
+			cli.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		try {
+			System.exit(cli.run() ? 0 : 1);
+		} catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		}
+	}
+
+	private void parseArguments(String[] args) {
+
+		for(int i = 0; i < args.length; i++) {
+
+			String arg = args[i];
+			if("-f".equals(arg) || "--format".equals(arg))
+				format = format(value(args, ++i, arg));
+			else if("-o".equals(arg) || "--output".equals(arg))
+				outputDirectory = Paths.get(value(args, ++i, arg));
+			else if("-t".equals(arg) || "--threads".equals(arg)) {
+				threadsNum = Integer.parseInt(value(args, ++i, arg));
+				if(threadsNum < 1)
+					throw new IllegalArgumentException("At least one thread is required");
+			}
+			else if("-m".equals(arg) || "--metrics".equals(arg))
+				printMetrics = true;
+			else if("-c".equals(arg) || "--cache".equals(arg))
+				cacheDirectory = Paths.get(value(args, ++i, arg));
+			else if("-h".equals(arg) || "--help".equals(arg))
+				throw new IllegalArgumentException("");
+			else if(arg.startsWith("-") && !"-".equals(arg))
+				throw new IllegalArgumentException("Unknown option " + arg);
+			else
+				inputs.add(arg);
+		}
+
+		if(format == Format.BINARY && outputDirectory == null)
+			throw new IllegalArgumentException("Binary output requires output directory");
+		if(format == Format.BINARY && cacheDirectory != null)
+			throw new IllegalArgumentException("Cache can be used with CSV output only");
+		if(inputs.isEmpty())
+			inputs.add("-");
+	}
+
+	private static Format format(String value) {
+
+		try {
+			return Format.valueOf(value.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown format " + value);
+		}
+	}
+
+	private static String value(String[] args, int i, String option) {
+
+		if(i >= args.length)
+			throw new IllegalArgumentException("Option " + option + " requires a value");
+		return args[i];
+	}
+
+	/**
+	 * Reads all problems, solves them and writes results in the order problems were read.
+	 * @return true if every problem was solved.
+	 */
+	private boolean run() throws IOException {
+
+		List<ProblemDefinition> problems = readProblems();
+		if(outputDirectory != null)
+			Files.createDirectories(outputDirectory);
+		if(cacheDirectory != null) {
+			cache = new SolutionCache();
+			cache.setDiskTier(cacheDirectory, CACHE_DISK_BYTES);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadsNum, new ThreadFactory() {
+
+			public Thread newThread(Runnable runnable) {
+
+				Thread thread = new Thread(runnable, "solver");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		long start = System.nanoTime();
+		List<Future<Result>> futures = new ArrayList<>(problems.size());
+		for(final ProblemDefinition problem : problems)
+			futures.add(executor.submit(new Callable<Result>() {
+
+				public Result call() throws IOException {
+					return solve(problem);
+				}
+			}));
+
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+		if(format == Format.CSV && outputDirectory == null)
+			out.write("problem,x,y\n");
+
+		PrintStream log = System.err;
+		boolean succeeded = true;
+		for(int i = 0; i < futures.size(); i++) {
+
+			ProblemDefinition problem = problems.get(i);
+			try {
+				Result result = futures.get(i).get();
+				if(result.csv != null)
+					out.write(result.csv);
+				log.println(problem.getName() + ": " + problem.getMethod() + ", accepted steps: " + result.acceptedStepsNum
+						+ ", rejected steps: " + result.rejectedStepsNum + ", function evaluations: " + result.functionEvaluationsNum
+						+ ", time: " + result.nanos / 1000000.0 + " ms");
+			} catch (ExecutionException e) {
+				succeeded = false;
+				log.println(problem.getName() + ": failed: " + e.getCause().getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		out.flush();
+		executor.shutdown();
+
+		log.println(problems.size() + " problems solved in " + (System.nanoTime() - start) / 1000000.0 + " ms on "
+				+ threadsNum + " threads");
+		if(printMetrics)
+			for(String method : methods(problems))
+				log.println(SolverMetrics.forName(method));
+		if(cache != null)
+			log.println(cache);
+		return succeeded;
+	}
+
+	private static List<String> methods(List<ProblemDefinition> problems) {
+
+		List<String> methods = new ArrayList<>();
+		for(ProblemDefinition problem : problems)
+			if(!methods.contains(problem.getMethod()))
+				methods.add(problem.getMethod());
+		return methods;
+	}
+
+	private List<ProblemDefinition> readProblems() throws IOException {
+
+		List<ProblemDefinition> problems = new ArrayList<>();
+		for(String input : inputs) {
+
+			Reader reader = "-".equals(input) ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+					: Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+			try (BufferedReader lines = new BufferedReader(reader)) {
+
+				String line;
+				int lineNumber = 0;
+				while((line = lines.readLine()) != null) {
+
+					lineNumber++;
+					try {
+						ProblemDefinition problem = ProblemDefinition.parse(line, problems.size() + 1);
+						if(problem != null)
+							problems.add(problem);
+					} catch (IllegalArgumentException e) {
+						throw new IllegalArgumentException(input + ":" + lineNumber + ": " + e.getMessage(), e);
+					}
+				}
+			}
+		}
+		return problems;
+	}
+
+	private Result solve(ProblemDefinition definition) throws IOException {
+
+		MetricsListener metrics = new MetricsListener(SolverMetrics.forName(definition.getMethod()));
+		Result result = new Result();
+		long start = System.nanoTime();
+
+		if(cache != null) {
+
+			CachedSolution solution = cache.solve(definition.getMethod(), definition.getEquation(),
+					ExpressionCompiler.compile(definition.getEquation()), definition.getProblem(), metrics, false);
+			writeCsv(definition, solution.getArrayX(), solution.getArrayY(), solution.getDimension(), result);
+
+			result.nanos = System.nanoTime() - start;
+			result.acceptedStepsNum = solution.getAcceptedStepsNum();
+			result.rejectedStepsNum = solution.getRejectedStepsNum();
+			result.functionEvaluationsNum = solution.getFunctionEvaluationsNum();
+			return result;
+		}
+
+		Integrator integrator = definition.createIntegrator();
+		if(format == Format.BINARY) {
+
+			// steps are streamed to the file, there is no need to keep them in memory
+			if(integrator instanceof AbstractIntegrator)
+				((AbstractIntegrator) integrator).setTrajectoryRecording(false);
+
+			try (TrajectoryFileWriter writer = new TrajectoryFileWriter(outputDirectory.resolve(fileName(definition, ".cptr")))) {
+				integrator.setListener(CompositeSolverListener.of(writer, metrics));
+				integrator.run(false);
+			}
+		}
+		else {
+
+			integrator.setListener(metrics);
+			integrator.run(false);
+			writeCsv(definition, integrator.getArrayX(), integrator.getArrayY(), integrator.getDimension(), result);
+		}
+
+		result.nanos = System.nanoTime() - start;
+		result.acceptedStepsNum = integrator.getAcceptedStepsNum();
+		result.rejectedStepsNum = integrator.getRejectedStepsNum();
+		result.functionEvaluationsNum = integrator.getFunctionEvaluationsNum();
+		return result;
+	}
+
+	/**
+	 * Writes CSV to file in output directory, or keeps it in result to be written to standard output in order.
+	 */
+	private void writeCsv(ProblemDefinition definition, double[] valuesX, double[] valuesY, int dimension, Result result) throws IOException {
+
+		String csv = toCsv(definition, valuesX, valuesY, dimension);
+		if(outputDirectory != null)
+			Files.write(outputDirectory.resolve(fileName(definition, ".csv")), csv.getBytes(StandardCharsets.UTF_8));
+		else
+			result.csv = csv;
+	}
+
+	private String toCsv(ProblemDefinition definition, double[] valuesX, double[] valuesY, int dimension) {
+
+		StringBuilder csv = new StringBuilder(valuesX.length * 48);
+		if(outputDirectory != null)
+			csv.append("x,y\n");
+		for(int i = 0; i < valuesX.length; i++) {
+			if(outputDirectory == null)
+				csv.append(definition.getName()).append(',');
+			csv.append(valuesX[i]);
+			for(int j = 0; j < dimension; j++)
+				csv.append(',').append(valuesY[i * dimension + j]);
+			csv.append('\n');
+		}
+		return csv.toString();
+	}
+
+	private static String fileName(ProblemDefinition definition, String extension) {
+		return definition.getName().replaceAll("[^A-Za-z0-9._-]", "_") + extension;
+	}
+
+	private static final class Result {
+
+		private String csv;
+		private long nanos;
+		private int acceptedStepsNum;
+		private int rejectedStepsNum;
+		private int functionEvaluationsNum;
+	}
+}
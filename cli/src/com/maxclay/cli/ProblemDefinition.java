@@ -0,0 +1,145 @@
+package com.maxclay.cli;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.maxclay.expression.ExpressionCompiler;
+import com.maxclay.model.CauchyProblem;
+import com.maxclay.model.Integrator;
+import com.maxclay.model.IntegratorRegistry;
+
+/**
+ * Problem read from problem file: one problem per line, as "key=value" pairs separated by ';', e.g.
+ * <pre>
+ * name=default; method=dopri5; equation=y - 2*x/y; x0=0; x1=5; y0=1; accuracy=1e-5; points=33
+ * </pre>
+ * Every key is optional, missing ones take values of the default problem. Method is either a registered method name
+ * or one of the aliases midpoint, merson, rk4, bs23, dopri5, vern6, rosenbrock, parareal. Empty lines and lines starting with '#' are skipped.
+ */
+public class ProblemDefinition {
+
+	private static final Map<String, String> ALIASES = new HashMap<>();
+
+	static {
+
+		ALIASES.put("midpoint", "Middle point method");
+		ALIASES.put("merson", "Kutta-Merson method");
+		ALIASES.put("rk4", "Runge-Kutta 4 method");
+		ALIASES.put("bs23", "Bogacki-Shampine 3(2) method");
+		ALIASES.put("dopri5", "Dormand-Prince 5(4) method");
+		ALIASES.put("vern6", "Verner 6(5) method");
+		ALIASES.put("rosenbrock", "Rosenbrock method");
+		ALIASES.put("parareal", "Parareal method");
+	}
+
+	private final String name;
+	private final String method;
+	private final String equation;
+	private final CauchyProblem problem;
+
+	private ProblemDefinition(String name, String method, String equation, CauchyProblem problem) {
+
+		this.name = name;
+		this.method = method;
+		this.equation = equation;
+		this.problem = problem;
+	}
+
+	/**
+	 * Parses problem line.
+	 * @param line - line of problem file.
+	 * @param index - number of the problem, used as its default name.
+	 * @return problem, or null if line is empty or comment.
+	 * @throws IllegalArgumentException if line is malformed, method is unknown or equation can't be parsed.
+	 */
+	public static ProblemDefinition parse(String line, int index) {
+
+		String trimmed = line.trim();
+		if(trimmed.isEmpty() || trimmed.startsWith("#"))
+			return null;
+
+		Map<String, String> values = new HashMap<>();
+		for(String pair : trimmed.split(";")) {
+
+			if(pair.trim().isEmpty())
+				continue;
+			int separator = pair.indexOf('=');
+			if(separator < 0)
+				throw new IllegalArgumentException("'key=value' expected instead of '" + pair.trim() + "'");
+			values.put(pair.substring(0, separator).trim().toLowerCase(Locale.ROOT), pair.substring(separator + 1).trim());
+		}
+
+		String name = take(values, "name", "problem" + index);
+		String method = methodName(take(values, "method", "Kutta-Merson method"));
+		String equation = take(values, "equation", ExpressionCompiler.DEFAULT_EXPRESSION);
+		double lowerBoundary = number(values, "x0", CauchyProblem.LOWER_BOUNDARY);
+		double higherBoundary = number(values, "x1", CauchyProblem.HIGHER_BOUNDARY);
+		double startingY = number(values, "y0", CauchyProblem.STARTING_Y);
+		double accuracy = number(values, "accuracy", CauchyProblem.DEFAULT_ACCURACY);
+		int controlPointsNum = (int) number(values, "points", CauchyProblem.DEFAULT_CONTROL_POINTS_NUM);
+
+		if(!values.isEmpty())
+			throw new IllegalArgumentException("Unknown key " + values.keySet().iterator().next());
+
+		// check equation now, so errors are reported with the line they were found at
+		ExpressionCompiler.compile(equation);
+
+		return new ProblemDefinition(name, method, equation,
+				new CauchyProblem(lowerBoundary, higherBoundary, new double[] { startingY }, accuracy, controlPointsNum));
+	}
+
+	private static String take(Map<String, String> values, String key, String defaultValue) {
+
+		String value = values.remove(key);
+		return value != null ? value : defaultValue;
+	}
+
+	private static double number(Map<String, String> values, String key, double defaultValue) {
+
+		String value = values.remove(key);
+		if(value == null)
+			return defaultValue;
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid " + key + " value '" + value + "'");
+		}
+	}
+
+	private static String methodName(String method) {
+
+		String alias = ALIASES.get(method.toLowerCase(Locale.ROOT));
+		if(alias != null)
+			return alias;
+
+		for(String name : IntegratorRegistry.getMethodNames())
+			if(name.equalsIgnoreCase(method))
+				return name;
+		throw new IllegalArgumentException("Unknown method " + method);
+	}
+
+	/**
+	 * Creates integrator for the problem. Equation is compiled once and shared by all problems with the same text.
+	 * @return new integrator.
+	 */
+	public Integrator createIntegrator() {
+		return IntegratorRegistry.create(method, ExpressionCompiler.compile(equation), problem);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getEquation() {
+		return equation;
+	}
+
+	public CauchyProblem getProblem() {
+		return problem;
+	}
+}
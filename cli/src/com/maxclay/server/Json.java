@@ -0,0 +1,177 @@
+package com.maxclay.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for the solve service: parses flat objects whose values are strings, numbers,
+ * booleans or null, and writes numbers and strings. Nested objects and arrays are not accepted in requests.
+ */
+final class Json {
+
+	private final String text;
+	private int position;
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * Parses flat JSON object.
+	 * @param text - JSON text.
+	 * @return values by name: String, Double, Boolean or null.
+	 * @throws IllegalArgumentException if text is not a flat JSON object.
+	 */
+	static Map<String, Object> parseObject(String text) {
+
+		Json parser = new Json(text);
+		Map<String, Object> values = new LinkedHashMap<>();
+
+		parser.expect('{');
+		if(!parser.consume('}')) {
+			do {
+				String name = parser.string();
+				parser.expect(':');
+				values.put(name, parser.value());
+			} while(parser.consume(','));
+			parser.expect('}');
+		}
+
+		parser.skipWhitespace();
+		if(parser.position != text.length())
+			throw parser.error("Unexpected text after object");
+		return values;
+	}
+
+	/**
+	 * Writes number, NaN and infinities are written as null.
+	 */
+	static void appendNumber(StringBuilder builder, double value) {
+
+		if(Double.isNaN(value) || Double.isInfinite(value))
+			builder.append("null");
+		else
+			builder.append(value);
+	}
+
+	static void appendString(StringBuilder builder, String value) {
+
+		builder.append('"');
+		for(int i = 0; i < value.length(); i++) {
+
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\')
+				builder.append('\\').append(c);
+			else if(c < 0x20)
+				builder.append(String.format("\\u%04x", (int) c));
+			else
+				builder.append(c);
+		}
+		builder.append('"');
+	}
+
+	private Object value() {
+
+		skipWhitespace();
+		if(position == text.length())
+			throw error("Value expected");
+
+		char c = text.charAt(position);
+		if(c == '"')
+			return string();
+		if(text.startsWith("true", position)) {
+			position += 4;
+			return Boolean.TRUE;
+		}
+		if(text.startsWith("false", position)) {
+			position += 5;
+			return Boolean.FALSE;
+		}
+		if(text.startsWith("null", position)) {
+			position += 4;
+			return null;
+		}
+		if(c == '-' || (c >= '0' && c <= '9'))
+			return number();
+		throw error("Unsupported value");
+	}
+
+	private Double number() {
+
+		int start = position;
+		while(position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0)
+			position++;
+		try {
+			return Double.valueOf(text.substring(start, position));
+		} catch (NumberFormatException e) {
+			throw error("Invalid number");
+		}
+	}
+
+	private String string() {
+
+		expect('"');
+		StringBuilder builder = new StringBuilder();
+		while(true) {
+
+			if(position == text.length())
+				throw error("Unterminated string");
+
+			char c = text.charAt(position++);
+			if(c == '"')
+				return builder.toString();
+			if(c != '\\') {
+				builder.append(c);
+				continue;
+			}
+
+			if(position == text.length())
+				throw error("Unterminated string");
+			char escaped = text.charAt(position++);
+			switch(escaped) {
+			case 'n': builder.append('\n'); break;
+			case 't': builder.append('\t'); break;
+			case 'r': builder.append('\r'); break;
+			case 'b': builder.append('\b'); break;
+			case 'f': builder.append('\f'); break;
+			case 'u':
+				if(position + 4 > text.length())
+					throw error("Invalid escape");
+				try {
+					builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+				} catch (NumberFormatException e) {
+					throw error("Invalid escape");
+				}
+				position += 4;
+				break;
+			default: builder.append(escaped);
+			}
+		}
+	}
+
+	private void expect(char c) {
+
+		if(!consume(c))
+			throw error("'" + c + "' expected");
+	}
+
+	private boolean consume(char c) {
+
+		skipWhitespace();
+		if(position < text.length() && text.charAt(position) == c) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void skipWhitespace() {
+
+		while(position < text.length() && Character.isWhitespace(text.charAt(position)))
+			position++;
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + position + " of JSON");
+	}
+}
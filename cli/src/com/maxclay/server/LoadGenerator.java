@@ -0,0 +1,217 @@
+package com.maxclay.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.maxclay.expression.ExpressionCompiler;
+import com.maxclay.model.CauchyProblem;
+
+/**
+ * Sends solve requests to {@link SolveServer} from several concurrent clients and reports throughput and latency
+ * percentiles. Starts its own server on a free port unless URL is given.
+ * <pre>
+ * Usage: LoadGenerator [-u url] [-c clients] [-d seconds] [-w warm-up seconds] [-o final|grid|trajectory] [-b]
+ * </pre>
+ * Each request solves the default equation with random y0, with -b in binary form. Latency is measured by clients,
+ * from sending request to reading the whole response, and only after warm-up.
+ */
+public class LoadGenerator {
+
+	public static final int DEFAULT_CLIENTS_NUM = 16;
+	public static final int DEFAULT_DURATION_SECONDS = 10;
+	public static final int DEFAULT_WARM_UP_SECONDS = 3;
+
+	private static final String USAGE = "Usage: LoadGenerator [-u url] [-c clients] [-d seconds] [-w warm-up seconds] [-o final|grid|trajectory] [-b]";
+
+	private String url;
+	private int clientsNum = DEFAULT_CLIENTS_NUM;
+	private int durationSeconds = DEFAULT_DURATION_SECONDS;
+	private int warmUpSeconds = DEFAULT_WARM_UP_SECONDS;
+	private SolveRequest.Output output = SolveRequest.Output.FINAL;
+	private boolean binary;
+
+	private final AtomicLong errorsNum = new AtomicLong();
+
+	public static void main(String[] args) throws Exception {
+
+		LoadGenerator generator = new LoadGenerator();
+		try {
+			generator.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		SolveServer server = null;
+		if(generator.url == null) {
+			server = new SolveServer(0);
+			server.start();
+			generator.url = "http://127.0.0.1:" + server.getPort();
+		}
+
+		try {
+			generator.run();
+		} finally {
+			if(server != null)
+				server.stop();
+		}
+	}
+
+	private void parseArguments(String[] args) {
+
+		for(int i = 0; i < args.length; i++) {
+
+			String arg = args[i];
+			if("-b".equals(arg)) {
+				binary = true;
+				continue;
+			}
+			if(i + 1 >= args.length)
+				throw new IllegalArgumentException(arg.startsWith("-") ? "Option " + arg + " requires a value" : "Unknown argument " + arg);
+
+			String value = args[++i];
+			if("-u".equals(arg))
+				url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+			else if("-c".equals(arg))
+				clientsNum = positive(value, "clients");
+			else if("-d".equals(arg))
+				durationSeconds = positive(value, "duration");
+			else if("-w".equals(arg))
+				warmUpSeconds = Integer.parseInt(value);
+			else if("-o".equals(arg))
+				output = SolveRequest.Output.valueOf(value.toUpperCase(Locale.ROOT));
+			else
+				throw new IllegalArgumentException("Unknown option " + arg);
+		}
+	}
+
+	private static int positive(String value, String name) {
+
+		int number = Integer.parseInt(value);
+		if(number < 1)
+			throw new IllegalArgumentException("Number of " + name + " must be positive");
+		return number;
+	}
+
+	private void run() throws Exception {
+
+		final long warmUpEnd = System.nanoTime() + warmUpSeconds * 1_000_000_000L;
+		final long end = warmUpEnd + durationSeconds * 1_000_000_000L;
+		final URL solveUrl = new URL(url + "/solve");
+
+		final long[][] latencies = new long[clientsNum][];
+		final int[] counts = new int[clientsNum];
+		Thread[] clients = new Thread[clientsNum];
+		for(int c = 0; c < clientsNum; c++) {
+
+			final int client = c;
+			clients[c] = new Thread(new Runnable() {
+
+				public void run() {
+
+					long[] recorded = new long[1024];
+					int count = 0;
+					long now;
+					while((now = System.nanoTime()) < end) {
+
+						boolean ok = send(solveUrl);
+						long latency = System.nanoTime() - now;
+						if(!ok)
+							errorsNum.incrementAndGet();
+						else if(now >= warmUpEnd) {
+							if(count == recorded.length)
+								recorded = Arrays.copyOf(recorded, count * 2);
+							recorded[count++] = latency;
+						}
+					}
+					latencies[client] = recorded;
+					counts[client] = count;
+				}
+			}, "load-client-" + c);
+			clients[c].start();
+		}
+		for(Thread client : clients)
+			client.join();
+
+		int total = 0;
+		for(int count : counts)
+			total += count;
+		long[] all = new long[total];
+		int position = 0;
+		for(int c = 0; c < clientsNum; c++) {
+			System.arraycopy(latencies[c], 0, all, position, counts[c]);
+			position += counts[c];
+		}
+		Arrays.sort(all);
+
+		System.out.println(String.format(Locale.ROOT, "%d clients, %s output%s, %d s: %d requests, %d errors, %.1f requests/s",
+				clientsNum, output.name().toLowerCase(Locale.ROOT), binary ? " (binary)" : "", durationSeconds, total,
+				errorsNum.get(), total / (double) durationSeconds));
+		if(total > 0)
+			System.out.println(String.format(Locale.ROOT, "latency ms: p50 %.3f, p90 %.3f, p99 %.3f, max %.3f",
+					percentile(all, 0.5) / 1e6, percentile(all, 0.9) / 1e6, percentile(all, 0.99) / 1e6, all[total - 1] / 1e6));
+		System.out.println("server: " + new String(read(new URL(url + "/stats").openStream()), StandardCharsets.UTF_8));
+	}
+
+	private static long percentile(long[] sorted, double fraction) {
+		return sorted[(int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1)];
+	}
+
+	/**
+	 * Sends one request and reads the whole response.
+	 * @return true if server responded with status 200.
+	 */
+	private boolean send(URL solveUrl) {
+
+		double startingY = 1 + ThreadLocalRandom.current().nextDouble();
+		byte[] body;
+		if(binary)
+			body = SolveRequest.toBinary(true, output, ExpressionCompiler.DEFAULT_EXPRESSION, CauchyProblem.LOWER_BOUNDARY,
+					CauchyProblem.HIGHER_BOUNDARY, startingY, CauchyProblem.DEFAULT_ACCURACY, CauchyProblem.DEFAULT_CONTROL_POINTS_NUM);
+		else
+			body = ("{\"method\":\"merson\",\"y0\":" + startingY + ",\"output\":\"" + output.name().toLowerCase(Locale.ROOT) + "\"}")
+					.getBytes(StandardCharsets.UTF_8);
+
+		try {
+			HttpURLConnection connection = (HttpURLConnection) solveUrl.openConnection();
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type", binary ? SolveRequest.BINARY_CONTENT_TYPE : "application/json");
+			connection.setFixedLengthStreamingMode(body.length);
+			try (OutputStream stream = connection.getOutputStream()) {
+				stream.write(body);
+			}
+
+			int status = connection.getResponseCode();
+			read(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+			return status == 200;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static byte[] read(InputStream input) throws IOException {
+
+		if(input == null)
+			return new byte[0];
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (InputStream stream = input) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while((read = stream.read(buffer)) >= 0)
+				bytes.write(buffer, 0, read);
+		}
+		return bytes.toByteArray();
+	}
+}
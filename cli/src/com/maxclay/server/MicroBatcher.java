@@ -0,0 +1,274 @@
+package com.maxclay.server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+import com.maxclay.model.BatchResult;
+import com.maxclay.model.KuttaMersonBatchSolver;
+
+/**
+ * Coalesces concurrent {@link SolveRequest#isBatchable() batchable} requests into batches solved by
+ * {@link KuttaMersonBatchSolver}. Requests can share a batch when they have the same equation, x1 and number of points.<br/>
+ * Batching works like group commit: while fewer batches than pool threads are being solved, request is dispatched
+ * at once, so a lone request doesn't wait. Otherwise requests accumulate in open batches, which are dispatched
+ * as soon as any batch is solved or they reach maximal size, so the batch size follows the load.
+ */
+public class MicroBatcher {
+
+	/**
+	 * Default maximal number of requests in one batch.
+	 */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+	private final ForkJoinPool pool;
+	private final int maxBatchSize;
+	private final int maxBatchesInFlight;
+
+	private final Map<Key, Batch> openBatches = new LinkedHashMap<>();
+	private int batchesInFlight;
+	private long batchesNum;
+	private long requestsNum;
+
+	/**
+	 * Creates batcher solving on common pool.
+	 */
+	public MicroBatcher() {
+		this(ForkJoinPool.commonPool(), DEFAULT_MAX_BATCH_SIZE);
+	}
+
+	/**
+	 * @param pool - pool batches are solved on.
+	 * @param maxBatchSize - maximal number of requests in one batch.
+	 */
+	public MicroBatcher(ForkJoinPool pool, int maxBatchSize) {
+
+		if(maxBatchSize < 1)
+			throw new IllegalArgumentException("Batch size must be positive");
+
+		this.pool = pool;
+		this.maxBatchSize = maxBatchSize;
+		maxBatchesInFlight = pool.getParallelism();
+	}
+
+	/**
+	 * Adds request to a batch.
+	 * @param request - batchable request.
+	 * @return future completed with y at x1 when the batch is solved.
+	 */
+	public CompletableFuture<Solution> submit(SolveRequest request) {
+
+		if(!request.isBatchable())
+			throw new IllegalArgumentException("Request can't be batched");
+
+		Key key = new Key(request);
+		CompletableFuture<Solution> future = new CompletableFuture<>();
+		Batch dispatched = null;
+
+		synchronized (this) {
+
+			requestsNum++;
+			Batch batch = openBatches.get(key);
+			if(batch == null) {
+				batch = new Batch(request);
+				openBatches.put(key, batch);
+			}
+			batch.add(request, future);
+
+			if(batchesInFlight < maxBatchesInFlight || batch.size() >= maxBatchSize) {
+				openBatches.remove(key);
+				dispatched = batch;
+				batchesInFlight++;
+				batchesNum++;
+			}
+		}
+
+		if(dispatched != null)
+			dispatch(dispatched);
+		return future;
+	}
+
+	private void dispatch(final Batch batch) {
+
+		pool.execute(new Runnable() {
+
+			public void run() {
+
+				try {
+					batch.solve(pool);
+				} finally {
+					onBatchSolved();
+				}
+			}
+		});
+	}
+
+	private void onBatchSolved() {
+
+		Batch next = null;
+		synchronized (this) {
+
+			batchesInFlight--;
+			Iterator<Batch> iterator = openBatches.values().iterator();
+			if(iterator.hasNext()) {
+				next = iterator.next();
+				iterator.remove();
+				batchesInFlight++;
+				batchesNum++;
+			}
+		}
+
+		if(next != null)
+			dispatch(next);
+	}
+
+	/**
+	 *
+	 * @return number of dispatched batches.
+	 */
+	public synchronized long getBatchesNum() {
+		return batchesNum;
+	}
+
+	/**
+	 *
+	 * @return number of submitted requests.
+	 */
+	public synchronized long getRequestsNum() {
+		return requestsNum;
+	}
+
+	/**
+	 * Solution of one request of a batch.
+	 */
+	public static class Solution {
+
+		private final BatchResult result;
+		private final int index;
+
+		Solution(BatchResult result, int index) {
+
+			this.result = result;
+			this.index = index;
+		}
+
+		/**
+		 * Copies y at x1.
+		 * @param y - array to copy to.
+		 */
+		public void getY(double[] y) {
+
+			for(int j = 0; j < result.getDimension(); j++)
+				y[j] = result.getY(index, j);
+		}
+
+		public int getAcceptedStepsNum() {
+			return result.getAcceptedStepsNum(index);
+		}
+
+		public int getRejectedStepsNum() {
+			return result.getRejectedStepsNum(index);
+		}
+
+		public int getFunctionEvaluationsNum() {
+			return result.getFunctionEvaluationsNum(index);
+		}
+
+		/**
+		 *
+		 * @return true if required accuracy couldn't be achieved, y is NaN then.
+		 */
+		public boolean isFailed() {
+			return result.isFailed(index);
+		}
+
+		/**
+		 *
+		 * @return number of requests solved in the same batch.
+		 */
+		public int getBatchSize() {
+			return result.getProblemsNum();
+		}
+	}
+
+	private static final class Key {
+
+		private final String equation;
+		private final double higherBoundary;
+		private final int controlPointsNum;
+
+		Key(SolveRequest request) {
+
+			// compiled functions may be evicted and compiled again, so equal texts are compared
+			equation = request.getFunction().getText();
+			higherBoundary = request.getProblem().getHigherBoundary();
+			controlPointsNum = request.getProblem().getControlPointsNum();
+		}
+
+		@Override
+		public boolean equals(Object object) {
+
+			if(!(object instanceof Key))
+				return false;
+			Key other = (Key) object;
+			return equation.equals(other.equation) && Double.compare(higherBoundary, other.higherBoundary) == 0
+					&& controlPointsNum == other.controlPointsNum;
+		}
+
+		@Override
+		public int hashCode() {
+			return (equation.hashCode() * 31 + Double.hashCode(higherBoundary)) * 31 + controlPointsNum;
+		}
+	}
+
+	private static final class Batch {
+
+		private final SolveRequest first;
+		private final List<SolveRequest> requests = new ArrayList<>();
+		private final List<CompletableFuture<Solution>> futures = new ArrayList<>();
+
+		Batch(SolveRequest first) {
+			this.first = first;
+		}
+
+		void add(SolveRequest request, CompletableFuture<Solution> future) {
+
+			requests.add(request);
+			futures.add(future);
+		}
+
+		int size() {
+			return requests.size();
+		}
+
+		void solve(ForkJoinPool pool) {
+
+			int size = requests.size();
+			int dimension = first.getProblem().getDimension();
+			double[] startingX = new double[size];
+			double[] startingY = new double[size * dimension];
+			double[] accuracies = new double[size];
+			for(int i = 0; i < size; i++) {
+
+				SolveRequest request = requests.get(i);
+				startingX[i] = request.getProblem().getLowerBoundary();
+				System.arraycopy(request.getProblem().getStartingY(), 0, startingY, i * dimension, dimension);
+				accuracies[i] = request.getProblem().getAccuracy();
+			}
+
+			try {
+				BatchResult result = new KuttaMersonBatchSolver(first.getFunction(), first.getProblem(), pool)
+						.solve(startingX, startingY, accuracies);
+				for(int i = 0; i < size; i++)
+					futures.get(i).complete(new Solution(result, i));
+			} catch (RuntimeException e) {
+				for(CompletableFuture<Solution> future : futures)
+					future.completeExceptionally(e);
+			}
+		}
+	}
+}
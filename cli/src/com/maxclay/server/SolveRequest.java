@@ -0,0 +1,247 @@
+package com.maxclay.server;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+import com.maxclay.expression.CompiledExpression;
+import com.maxclay.expression.ExpressionCompiler;
+import com.maxclay.model.CauchyProblem;
+
+/**
+ * Problem sent to {@link SolveServer}, as JSON object or in binary form.<br/>
+ * JSON request has the same keys as problem files of the command line solver, every key is optional:
+ * <pre>
+ * {"method": "merson", "equation": "y - 2*x/y", "x0": 0, "x1": 5, "y0": 1, "accuracy": 1e-5, "points": 33, "output": "final"}
+ * </pre>
+ * Method is "merson" or "midpoint". Output is "final" for y at x1 only, "grid" for y at each of the points,
+ * or "trajectory" for every accepted step, streamed while the problem is being solved.<br/>
+ * Binary request is sent with content type {@value #BINARY_CONTENT_TYPE}, all values are little-endian:
+ * <pre>
+ * offset  size  field
+ *      0     4  magic number {@link #MAGIC}
+ *      4     4  format version
+ *      8     4  method: 0 - midpoint, 1 - Kutta-Merson
+ *     12     4  output: 0 - final, 1 - grid, 2 - trajectory
+ *     16     8  x0
+ *     24     8  x1
+ *     32     8  y0
+ *     40     8  accuracy
+ *     48     4  number of points
+ *     52     4  length of equation in bytes
+ *     56        equation in UTF-8
+ * </pre>
+ */
+public class SolveRequest {
+
+	/**
+	 * "CPRQ" in ASCII.
+	 */
+	public static final int MAGIC = 0x43505251;
+
+	public static final int VERSION = 1;
+
+	public static final int HEADER_SIZE = 56;
+
+	public static final String BINARY_CONTENT_TYPE = "application/octet-stream";
+
+	/**
+	 * Maximal number of points of the output grid, so one request can't exhaust the heap.
+	 * Trajectory output is not limited, because it is streamed.
+	 */
+	public static final int MAX_POINTS_NUM = 1 << 20;
+
+	/**
+	 * What is sent back.
+	 */
+	public enum Output { FINAL, GRID, TRAJECTORY }
+
+	static final String MIDPOINT = "Middle point method";
+	static final String KUTTA_MERSON = "Kutta-Merson method";
+
+	private final String method;
+	private final String equation;
+	private final CompiledExpression function;
+	private final CauchyProblem problem;
+	private final Output output;
+	private final boolean binary;
+
+	private SolveRequest(String method, String equation, double lowerBoundary, double higherBoundary, double startingY,
+			double accuracy, int controlPointsNum, Output output, boolean binary) {
+
+		if(!(higherBoundary > lowerBoundary))
+			throw new IllegalArgumentException("x1 must be greater than x0");
+		if(!(accuracy > 0))
+			throw new IllegalArgumentException("Accuracy must be positive");
+		if(controlPointsNum < 2 || controlPointsNum > MAX_POINTS_NUM)
+			throw new IllegalArgumentException("Number of points must be between 2 and " + MAX_POINTS_NUM);
+		if(!Double.isFinite(startingY))
+			throw new IllegalArgumentException("y0 must be finite");
+
+		this.method = method;
+		this.equation = equation;
+		this.function = ExpressionCompiler.compile(equation);
+		this.problem = new CauchyProblem(lowerBoundary, higherBoundary, new double[] { startingY }, accuracy, controlPointsNum);
+		this.output = output;
+		this.binary = binary;
+	}
+
+	/**
+	 * Parses JSON request.
+	 * @param text - JSON object.
+	 * @return request.
+	 * @throws IllegalArgumentException if request is malformed or equation can't be parsed.
+	 */
+	public static SolveRequest parseJson(String text) {
+
+		Map<String, Object> values = Json.parseObject(text);
+		String method = methodName(string(values, "method", "merson"));
+		String equation = string(values, "equation", ExpressionCompiler.DEFAULT_EXPRESSION);
+		double lowerBoundary = number(values, "x0", CauchyProblem.LOWER_BOUNDARY);
+		double higherBoundary = number(values, "x1", CauchyProblem.HIGHER_BOUNDARY);
+		double startingY = number(values, "y0", CauchyProblem.STARTING_Y);
+		double accuracy = number(values, "accuracy", CauchyProblem.DEFAULT_ACCURACY);
+		double points = number(values, "points", CauchyProblem.DEFAULT_CONTROL_POINTS_NUM);
+		Output output = output(string(values, "output", "final"));
+
+		if(!values.isEmpty())
+			throw new IllegalArgumentException("Unknown key " + values.keySet().iterator().next());
+		if(points != Math.rint(points))
+			throw new IllegalArgumentException("Number of points must be integer");
+
+		return new SolveRequest(method, equation, lowerBoundary, higherBoundary, startingY, accuracy,
+				(int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, points)), output, false);
+	}
+
+	/**
+	 * Parses binary request.
+	 * @param bytes - request body.
+	 * @return request.
+	 * @throws IllegalArgumentException if request is malformed or equation can't be parsed.
+	 */
+	public static SolveRequest parseBinary(byte[] bytes) {
+
+		if(bytes.length < HEADER_SIZE)
+			throw new IllegalArgumentException("Binary request is truncated");
+
+		ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		if(buffer.getInt() != MAGIC)
+			throw new IllegalArgumentException("Not a binary solve request");
+		int version = buffer.getInt();
+		if(version != VERSION)
+			throw new IllegalArgumentException("Unsupported binary request version " + version);
+
+		int method = buffer.getInt();
+		int output = buffer.getInt();
+		if(method < 0 || method > 1)
+			throw new IllegalArgumentException("Unknown method " + method);
+		if(output < 0 || output >= Output.values().length)
+			throw new IllegalArgumentException("Unknown output " + output);
+
+		double lowerBoundary = buffer.getDouble();
+		double higherBoundary = buffer.getDouble();
+		double startingY = buffer.getDouble();
+		double accuracy = buffer.getDouble();
+		int controlPointsNum = buffer.getInt();
+		int equationLength = buffer.getInt();
+		if(equationLength < 0 || equationLength != buffer.remaining())
+			throw new IllegalArgumentException("Equation length doesn't match request size");
+
+		String equation = new String(bytes, HEADER_SIZE, equationLength, StandardCharsets.UTF_8);
+		return new SolveRequest(method == 0 ? MIDPOINT : KUTTA_MERSON, equation, lowerBoundary, higherBoundary, startingY,
+				accuracy, controlPointsNum, Output.values()[output], true);
+	}
+
+	/**
+	 * Encodes request in binary form.
+	 * @param kuttaMerson - true for Kutta-Merson method, false for midpoint method.
+	 * @return request body.
+	 */
+	public static byte[] toBinary(boolean kuttaMerson, Output output, String equation, double lowerBoundary, double higherBoundary,
+			double startingY, double accuracy, int controlPointsNum) {
+
+		byte[] equationBytes = equation.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + equationBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(kuttaMerson ? 1 : 0).putInt(output.ordinal());
+		buffer.putDouble(lowerBoundary).putDouble(higherBoundary).putDouble(startingY).putDouble(accuracy);
+		buffer.putInt(controlPointsNum).putInt(equationBytes.length).put(equationBytes);
+		return buffer.array();
+	}
+
+	private static String string(Map<String, Object> values, String key, String defaultValue) {
+
+		if(!values.containsKey(key))
+			return defaultValue;
+		Object value = values.remove(key);
+		if(!(value instanceof String))
+			throw new IllegalArgumentException("String expected as " + key);
+		return (String) value;
+	}
+
+	private static double number(Map<String, Object> values, String key, double defaultValue) {
+
+		if(!values.containsKey(key))
+			return defaultValue;
+		Object value = values.remove(key);
+		if(!(value instanceof Double))
+			throw new IllegalArgumentException("Number expected as " + key);
+		return (Double) value;
+	}
+
+	private static String methodName(String method) {
+
+		String name = method.toLowerCase(Locale.ROOT);
+		if("midpoint".equals(name) || MIDPOINT.equalsIgnoreCase(method))
+			return MIDPOINT;
+		if("merson".equals(name) || KUTTA_MERSON.equalsIgnoreCase(method))
+			return KUTTA_MERSON;
+		throw new IllegalArgumentException("Unknown method " + method + ", merson or midpoint expected");
+	}
+
+	private static Output output(String output) {
+
+		try {
+			return Output.valueOf(output.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown output " + output + ", final, grid or trajectory expected");
+		}
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getEquation() {
+		return equation;
+	}
+
+	public CompiledExpression getFunction() {
+		return function;
+	}
+
+	public CauchyProblem getProblem() {
+		return problem;
+	}
+
+	public Output getOutput() {
+		return output;
+	}
+
+	/**
+	 *
+	 * @return true if request was binary, so response is binary too.
+	 */
+	public boolean isBinary() {
+		return binary;
+	}
+
+	/**
+	 *
+	 * @return true if request can be solved together with others by {@link MicroBatcher}.
+	 */
+	public boolean isBatchable() {
+		return output == Output.FINAL && KUTTA_MERSON.equals(method);
+	}
+}
@@ -0,0 +1,474 @@
+package com.maxclay.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.maxclay.metrics.LogHistogram;
+import com.maxclay.model.AbstractIntegrator;
+import com.maxclay.model.CauchyProblem;
+import com.maxclay.model.Integrator;
+import com.maxclay.model.IntegratorRegistry;
+import com.maxclay.model.SolverListener;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP service solving {@link SolveRequest problems} with Kutta-Merson and midpoint methods for other processes
+ * on the same machine. Server listens on the loopback address only.
+ * <pre>
+ * Usage: java -cp cauchy-cli.jar com.maxclay.server.SolveServer [port]
+ *
+ * POST /solve   JSON or binary problem, see {@link SolveRequest}
+ * GET  /stats   request, batch and latency counters as JSON
+ * </pre>
+ * Requests for the final value by Kutta-Merson method are solved together by {@link MicroBatcher}.
+ * Trajectory is streamed while the problem is being solved, in chunks of {@value #STREAM_CHUNK_BYTES} bytes,
+ * as one "[x, y]" JSON line per accepted step, or as little-endian (x, y) records for binary requests. If solver fails
+ * after streaming has started, JSON stream ends with "{"error": ...}" line and binary stream just ends.
+ * Other responses are JSON objects, or records at the output grid for binary requests, with step statistics in headers.<br/>
+ * Requests are handled on virtual threads when the runtime has them (Java 21), otherwise on a cached thread pool.
+ */
+public class SolveServer {
+
+	public static final int DEFAULT_PORT = 8351;
+
+	/**
+	 * Maximal size of request body.
+	 */
+	public static final int MAX_REQUEST_BYTES = 1 << 16;
+
+	/**
+	 * Size of chunks trajectory is sent in.
+	 */
+	public static final int STREAM_CHUNK_BYTES = 1 << 13;
+
+	private static final String JSON_CONTENT_TYPE = "application/json";
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final boolean virtualThreads;
+	private final MicroBatcher batcher;
+
+	private final LogHistogram latencies = new LogHistogram();
+	private final AtomicLong requestsNum = new AtomicLong();
+	private final AtomicLong errorsNum = new AtomicLong();
+
+	/**
+	 * @param port - port to listen on, 0 to pick any free port.
+	 */
+	public SolveServer(int port) throws IOException {
+
+		// without TCP_NODELAY small responses wait for delayed acknowledgement, adding ~40 ms to each request
+		if(System.getProperty("sun.net.httpserver.nodelay") == null)
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		ExecutorService virtualExecutor = virtualThreadExecutor();
+		virtualThreads = virtualExecutor != null;
+		executor = virtualThreads ? virtualExecutor : Executors.newCachedThreadPool(new ThreadFactory() {
+
+			public Thread newThread(Runnable runnable) {
+
+				Thread thread = new Thread(runnable, "solve-server");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		batcher = new MicroBatcher();
+
+		server.setExecutor(executor);
+		server.createContext("/solve", new HttpHandler() {
+
+			public void handle(HttpExchange exchange) throws IOException {
+				handleSolve(exchange);
+			}
+		});
+		server.createContext("/stats", new HttpHandler() {
+
+			public void handle(HttpExchange exchange) throws IOException {
+				handleStats(exchange);
+			}
+		});
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		int port = DEFAULT_PORT;
+		if(args.length > 0) {
+			try {
+				port = Integer.parseInt(args[0]);
+			} catch (NumberFormatException e) {
+				System.err.println("Usage: SolveServer [port]");
+				System.exit(2);
+			}
+		}
+
+		SolveServer server = new SolveServer(port);
+		server.start();
+		System.err.println("Listening on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort()
+				+ "/solve" + (server.isVirtualThreads() ? " (virtual threads)" : ""));
+	}
+
+	/**
+	 * Finds Executors.newVirtualThreadPerTaskExecutor() by reflection, so the server still compiles for and runs on Java 8.
+	 * @return executor, or null if runtime has no virtual threads.
+	 */
+	private static ExecutorService virtualThreadExecutor() {
+
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests and waits up to a second for the running ones.
+	 */
+	public void stop() {
+
+		server.stop(1);
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 *
+	 * @return true if requests are handled on virtual threads.
+	 */
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 *
+	 * @return histogram of request handling time in nanoseconds.
+	 */
+	public LogHistogram getLatencies() {
+		return latencies;
+	}
+
+	private void handleSolve(HttpExchange exchange) throws IOException {
+
+		long start = System.nanoTime();
+		requestsNum.incrementAndGet();
+		try {
+			if(!"POST".equals(exchange.getRequestMethod())) {
+				sendError(exchange, 405, "POST expected");
+				return;
+			}
+
+			byte[] body = readBody(exchange.getRequestBody());
+			if(body == null) {
+				sendError(exchange, 413, "Request is larger than " + MAX_REQUEST_BYTES + " bytes");
+				return;
+			}
+
+			String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+			SolveRequest request;
+			try {
+				request = (contentType != null && contentType.startsWith(SolveRequest.BINARY_CONTENT_TYPE))
+						? SolveRequest.parseBinary(body)
+						: SolveRequest.parseJson(new String(body, StandardCharsets.UTF_8));
+			} catch (IllegalArgumentException e) {
+				sendError(exchange, 400, e.getMessage());
+				return;
+			}
+
+			try {
+				solve(exchange, request);
+			} catch (IllegalStateException e) {
+				// solver couldn't achieve required accuracy
+				sendError(exchange, 422, e.getMessage());
+			}
+		} catch (UncheckedIOException e) {
+			// client went away while trajectory was streamed
+			errorsNum.incrementAndGet();
+		} finally {
+			exchange.close();
+			latencies.record(System.nanoTime() - start);
+		}
+	}
+
+	private void solve(HttpExchange exchange, SolveRequest request) throws IOException {
+
+		if(request.isBatchable()) {
+
+			MicroBatcher.Solution solution;
+			try {
+				solution = batcher.submit(request).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted");
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+			}
+
+			double[] y = new double[request.getProblem().getDimension()];
+			solution.getY(y);
+			if(solution.isFailed())
+				throw new IllegalStateException("Required accuracy couldn't be achieved");
+
+			double x = request.getProblem().getHigherBoundary();
+			sendValues(exchange, request, new double[] { x }, y, solution.getAcceptedStepsNum(), solution.getRejectedStepsNum(),
+					solution.getFunctionEvaluationsNum(), solution.getBatchSize());
+			return;
+		}
+
+		Integrator integrator = IntegratorRegistry.create(request.getMethod(), request.getFunction(), request.getProblem());
+		if(request.getOutput() == SolveRequest.Output.TRAJECTORY) {
+			streamTrajectory(exchange, request, integrator);
+			return;
+		}
+
+		integrator.run(false);
+		double[] valuesX = integrator.getArrayX();
+		double[] valuesY = integrator.getArrayY();
+		int dimension = integrator.getDimension();
+		if(request.getOutput() == SolveRequest.Output.FINAL) {
+			valuesX = new double[] { valuesX[valuesX.length - 1] };
+			valuesY = Arrays.copyOfRange(valuesY, valuesY.length - dimension, valuesY.length);
+		}
+		sendValues(exchange, request, valuesX, valuesY, integrator.getAcceptedStepsNum(), integrator.getRejectedStepsNum(),
+				integrator.getFunctionEvaluationsNum(), 1);
+	}
+
+	private void streamTrajectory(HttpExchange exchange, SolveRequest request, Integrator integrator) throws IOException {
+
+		if(integrator instanceof AbstractIntegrator)
+			((AbstractIntegrator) integrator).setTrajectoryRecording(false);
+
+		exchange.getResponseHeaders().set("Content-Type", request.isBinary() ? SolveRequest.BINARY_CONTENT_TYPE : "application/x-ndjson");
+		// zero length means chunked transfer encoding
+		exchange.sendResponseHeaders(200, 0);
+
+		StreamWriter writer = new StreamWriter(exchange.getResponseBody(), request.isBinary());
+		integrator.setListener(writer);
+		try {
+			integrator.run(false);
+		} catch (IllegalStateException e) {
+			// status is already sent, so failure is reported by the last line, binary stream just ends
+			errorsNum.incrementAndGet();
+			writer.writeError(e.getMessage());
+		}
+		writer.flush();
+	}
+
+	private void sendValues(HttpExchange exchange, SolveRequest request, double[] valuesX, double[] valuesY,
+			int acceptedStepsNum, int rejectedStepsNum, int functionEvaluationsNum, int batchSize) throws IOException {
+
+		int dimension = request.getProblem().getDimension();
+		if(request.isBinary()) {
+
+			ByteBuffer buffer = ByteBuffer.allocate(valuesX.length * (dimension + 1) * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			for(int i = 0; i < valuesX.length; i++) {
+				buffer.putDouble(valuesX[i]);
+				for(int j = 0; j < dimension; j++)
+					buffer.putDouble(valuesY[i * dimension + j]);
+			}
+
+			exchange.getResponseHeaders().set("X-Accepted-Steps", Integer.toString(acceptedStepsNum));
+			exchange.getResponseHeaders().set("X-Rejected-Steps", Integer.toString(rejectedStepsNum));
+			exchange.getResponseHeaders().set("X-Evaluations", Integer.toString(functionEvaluationsNum));
+			exchange.getResponseHeaders().set("X-Batch-Size", Integer.toString(batchSize));
+			send(exchange, 200, SolveRequest.BINARY_CONTENT_TYPE, buffer.array());
+			return;
+		}
+
+		boolean single = valuesX.length == 1 && dimension == 1;
+		StringBuilder json = new StringBuilder("{\"method\":");
+		Json.appendString(json, request.getMethod());
+		json.append(",\"x\":");
+		appendArray(json, valuesX, single);
+		json.append(",\"y\":");
+		appendArray(json, valuesY, single);
+		json.append(",\"acceptedSteps\":").append(acceptedStepsNum)
+			.append(",\"rejectedSteps\":").append(rejectedStepsNum)
+			.append(",\"evaluations\":").append(functionEvaluationsNum)
+			.append(",\"batchSize\":").append(batchSize).append('}');
+		send(exchange, 200, JSON_CONTENT_TYPE, json.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void appendArray(StringBuilder json, double[] values, boolean single) {
+
+		if(single) {
+			Json.appendNumber(json, values[0]);
+			return;
+		}
+
+		json.append('[');
+		for(int i = 0; i < values.length; i++) {
+			if(i > 0)
+				json.append(',');
+			Json.appendNumber(json, values[i]);
+		}
+		json.append(']');
+	}
+
+	private void handleStats(HttpExchange exchange) throws IOException {
+
+		try {
+			StringBuilder json = new StringBuilder("{\"requests\":").append(requestsNum.get())
+				.append(",\"errors\":").append(errorsNum.get())
+				.append(",\"batchedRequests\":").append(batcher.getRequestsNum())
+				.append(",\"batches\":").append(batcher.getBatchesNum())
+				.append(",\"latencyP50Millis\":");
+			Json.appendNumber(json, latencies.getQuantile(0.5) / 1e6);
+			json.append(",\"latencyP99Millis\":");
+			Json.appendNumber(json, latencies.getQuantile(0.99) / 1e6);
+			json.append(",\"virtualThreads\":").append(virtualThreads).append('}');
+			send(exchange, 200, JSON_CONTENT_TYPE, json.toString().getBytes(StandardCharsets.UTF_8));
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+
+		errorsNum.incrementAndGet();
+		StringBuilder json = new StringBuilder("{\"error\":");
+		Json.appendString(json, message != null ? message : "");
+		json.append('}');
+		send(exchange, status, JSON_CONTENT_TYPE, json.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+
+	/**
+	 * Reads request body.
+	 * @return body, or null if it is larger than {@link #MAX_REQUEST_BYTES}.
+	 */
+	private static byte[] readBody(InputStream input) throws IOException {
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while((read = input.read(buffer)) >= 0) {
+			if(body.size() + read > MAX_REQUEST_BYTES)
+				return null;
+			body.write(buffer, 0, read);
+		}
+		return body.toByteArray();
+	}
+
+	/**
+	 * Writes accepted steps to the response as they are made. Output is buffered and written in chunks of
+	 * {@link SolveServer#STREAM_CHUNK_BYTES} bytes; failure to write aborts solving.
+	 */
+	private static final class StreamWriter implements SolverListener {
+
+		private final OutputStream output;
+		private final boolean binary;
+		private final ByteBuffer buffer;
+		private final StringBuilder line = new StringBuilder();
+
+		StreamWriter(OutputStream output, boolean binary) {
+
+			this.output = output;
+			this.binary = binary;
+			buffer = ByteBuffer.allocate(STREAM_CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		public void onStart(String methodName, CauchyProblem problem) {
+			write(problem.getLowerBoundary(), problem.getStartingY());
+		}
+
+		public void onStep(double x, double h, double[] y, double[][] stages, double error, boolean accepted) {
+
+			if(accepted)
+				write(x, y);
+		}
+
+		public void onFinish(double[] valuesX, double[] valuesY, int acceptedStepsNum, int rejectedStepsNum, int functionEvaluationsNum) {
+		}
+
+		private void write(double x, double[] y) {
+
+			if(binary) {
+
+				if(buffer.remaining() < (y.length + 1) * Double.BYTES)
+					flush();
+				buffer.putDouble(x);
+				for(double value : y)
+					buffer.putDouble(value);
+				return;
+			}
+
+			line.setLength(0);
+			line.append('[');
+			Json.appendNumber(line, x);
+			for(double value : y) {
+				line.append(',');
+				Json.appendNumber(line, value);
+			}
+			line.append("]\n");
+
+			byte[] bytes = line.toString().getBytes(StandardCharsets.US_ASCII);
+			if(buffer.remaining() < bytes.length)
+				flush();
+			buffer.put(bytes);
+		}
+
+		void writeError(String message) {
+
+			if(binary)
+				return;
+
+			line.setLength(0);
+			line.append("{\"error\":");
+			Json.appendString(line, message != null ? message : "");
+			line.append("}\n");
+			byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+			if(buffer.remaining() < bytes.length)
+				flush();
+			buffer.put(bytes, 0, Math.min(bytes.length, buffer.remaining()));
+		}
+
+		void flush() {
+
+			try {
+				output.write(buffer.array(), 0, buffer.position());
+				output.flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			buffer.clear();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.maxclay.model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link KuttaMersonKernels} using the widest vectors of the platform (e.g. 4 doubles with AVX2, 8 with AVX-512).
+ * Each lane performs the same operations in the same order as scalar kernels, so results are bit-identical;
+ * the remaining components are processed by scalar loops. Division by 2 and 8 is done as multiplication by
+ * the exact reciprocal, which gives the same result and which JIT does for scalar code but not for vectors.<br/>
+ * Requires Java 17 or later with --add-modules jdk.incubator.vector, see {@link KuttaMersonKernels#vector()}.
+ */
+final class VectorKuttaMersonKernels implements KuttaMersonKernels {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	VectorKuttaMersonKernels() {
+		// fails here rather than in the middle of solving if the module can't be used
+		DoubleVector.zero(SPECIES);
+	}
+
+	public void secondStage(double[] y, double[] k1, double h, double[] out, int n) {
+
+		int j = 0;
+		for(int bound = SPECIES.loopBound(n); j < bound; j += SPECIES.length()) {
+			DoubleVector y0 = DoubleVector.fromArray(SPECIES, y, j);
+			DoubleVector a = DoubleVector.fromArray(SPECIES, k1, j).mul(h).div(3);
+			y0.add(a).intoArray(out, j);
+		}
+		for(; j < n; j++)
+			out[j] = y[j] + h * k1[j] / 3;
+	}
+
+	public void thirdStage(double[] y, double[] k1, double[] k2, double h, double[] out, int n) {
+
+		int j = 0;
+		for(int bound = SPECIES.loopBound(n); j < bound; j += SPECIES.length()) {
+			DoubleVector y0 = DoubleVector.fromArray(SPECIES, y, j);
+			DoubleVector a = DoubleVector.fromArray(SPECIES, k1, j).mul(h).div(6);
+			DoubleVector b = DoubleVector.fromArray(SPECIES, k2, j).mul(h).div(6);
+			y0.add(a).add(b).intoArray(out, j);
+		}
+		for(; j < n; j++)
+			out[j] = y[j] + h * k1[j] / 6 + h * k2[j] / 6;
+	}
+
+	public void fourthStage(double[] y, double[] k1, double[] k3, double h, double[] out, int n) {
+
+		double h3 = h * 3;
+		int j = 0;
+		for(int bound = SPECIES.loopBound(n); j < bound; j += SPECIES.length()) {
+			DoubleVector y0 = DoubleVector.fromArray(SPECIES, y, j);
+			DoubleVector a = DoubleVector.fromArray(SPECIES, k1, j).mul(h).mul(0.125);
+			DoubleVector b = DoubleVector.fromArray(SPECIES, k3, j).mul(h3).mul(0.125);
+			y0.add(a).add(b).intoArray(out, j);
+		}
+		for(; j < n; j++)
+			out[j] = y[j] + h * k1[j] / 8 + h * 3 * k3[j] / 8;
+	}
+
+	public void fifthStage(double[] y, double[] k1, double[] k3, double[] k4, double h, double[] out, int n) {
+
+		double h3 = h * 3;
+		double h2 = h * 2;
+		int j = 0;
+		for(int bound = SPECIES.loopBound(n); j < bound; j += SPECIES.length()) {
+			DoubleVector y0 = DoubleVector.fromArray(SPECIES, y, j);
+			DoubleVector a = DoubleVector.fromArray(SPECIES, k1, j).mul(h).mul(0.5);
+			DoubleVector b = DoubleVector.fromArray(SPECIES, k3, j).mul(h3).mul(0.5);
+			DoubleVector c = DoubleVector.fromArray(SPECIES, k4, j).mul(h2);
+			y0.add(a).sub(b).add(c).intoArray(out, j);
+		}
+		for(; j < n; j++)
+			out[j] = y[j] + h * k1[j] / 2 - h * 3 * k3[j] / 2 + h * 2 * k4[j];
+	}
+
+	public double combine(double[] y, double[] k1, double[] k3, double[] k4, double[] k5, double h, double[] nextY, double[] tempY, int n) {
+
+		double h6 = h / 6;
+		double h2 = h / 2;
+		DoubleVector errors = DoubleVector.zero(SPECIES);
+		int j = 0;
+		for(int bound = SPECIES.loopBound(n); j < bound; j += SPECIES.length()) {
+
+			DoubleVector y0 = DoubleVector.fromArray(SPECIES, y, j);
+			DoubleVector s1 = DoubleVector.fromArray(SPECIES, k1, j);
+			DoubleVector s3 = DoubleVector.fromArray(SPECIES, k3, j);
+			DoubleVector s4 = DoubleVector.fromArray(SPECIES, k4, j).mul(4);
+			DoubleVector s5 = DoubleVector.fromArray(SPECIES, k5, j);
+
+			DoubleVector next = y0.add(s1.add(s4).add(s5).mul(h6));
+			DoubleVector temp = y0.add(s1.sub(s3.mul(3)).add(s4).mul(h2));
+			next.intoArray(nextY, j);
+			temp.intoArray(tempY, j);
+			errors = errors.max(next.sub(temp).abs().mul(0.2));
+		}
+
+		double R = errors.reduceLanes(VectorOperators.MAX);
+		for(; j < n; j++) {
+			nextY[j] = y[j] + h / 6 * (k1[j] + 4 * k4[j] + k5[j]);
+			tempY[j] = y[j] + h / 2 * (k1[j] - 3 * k3[j] + 4 * k4[j]);
+			R = Math.max(R, 0.2 * Math.abs(nextY[j] - tempY[j]));
+		}
+		return R;
+	}
+}
@@ -1,98 +1,179 @@
 package com.maxclay;
 
-import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
 
-import org.w3c.dom.Document;
-
-import com.sun.org.apache.xerces.internal.parsers.DOMParser;
+import com.maxclay.controller.IntegratorTabController;
+import com.maxclay.model.IntegratorRegistry;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
+import javafx.application.Platform;
+import javafx.event.Event;
+import javafx.event.EventHandler;
 import javafx.scene.Scene;
-import javafx.scene.image.ImageView;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
-import net.sourceforge.jeuclid.context.LayoutContextImpl;
-import net.sourceforge.jeuclid.converter.Converter;
 
-@SuppressWarnings("restriction")
+/**
+ * Main window with one tab per {@link IntegratorRegistry registered} method.<br/>
+ * Startup is kept short: views are built in code without FXML, content of a tab is built when the tab
+ * is selected for the first time, and formula image, which may need JEuclid and Xerces, is loaded only
+ * after the first frame. Time to first frame is printed to standard error with
+ * -D{@value #STARTUP_REPORT_PROPERTY}=true. With -D{@value #EXIT_AFTER_FIRST_FRAME_PROPERTY}=true the application
+ * exits after the first frame, which is used by "appcds" build profile for the training run creating
+ * class data sharing archive.
+ */
 public class Main extends Application {
 
+	/**
+	 * MathML source of default equation.
+	 */
+	public static final String DEFAULT_FUNCTION_FILE = "resources/DefaultFunction.xml";
+
+	/**
+	 * System property enabling report of time to first frame.
+	 */
+	public static final String STARTUP_REPORT_PROPERTY = "cauchyproblem.startupReport";
+
+	/**
+	 * System property making application exit after the first frame.
+	 */
+	public static final String EXIT_AFTER_FIRST_FRAME_PROPERTY = "cauchyproblem.exitAfterFirstFrame";
+
+	private static long mainNanoTime;
+
 	private Stage primaryStage;
-    private BorderPane rootLayout;
-    
+	private BorderPane rootLayout;
+	private TabPane tabPane;
+	private boolean firstFrameShown;
+
 	@Override
 	public void start(Stage primaryStage) {
-		
+
 		this.primaryStage = primaryStage;
-        this.primaryStage.setTitle("Cauchy problem solving");
-        initRootLayout();
+		this.primaryStage.setTitle("Cauchy problem solving");
+		initRootLayout();
 	}
-	
-	public static ImageView loadDefaultFunctionImage() {
-    	
-    	DOMParser parser = new DOMParser();
-    	ImageView imageView = null;
-	    try {
-	    	
-			parser.parse("resources/DefaultFunction.xml");
-			Document doc = parser.getDocument();
-			Converter jeuclidConverter = Converter.getInstance();
-			imageView = getImageViewFromBuffuredImage(jeuclidConverter.render(doc, LayoutContextImpl.getDefaultLayoutContext()));
-			
-		} catch (Exception e) {
+
+	/**
+	 * Reads MathML source of default equation.
+	 * @return MathML source, or null if it can't be read.
+	 */
+	public static String loadDefaultFunction() {
+
+		try {
+			return new String(Files.readAllBytes(Paths.get(DEFAULT_FUNCTION_FILE)), StandardCharsets.UTF_8);
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
-	    
-	    return imageView;
-    }
+
+		return null;
+	}
 
 	public void initRootLayout() {
-		
-        try {
-        	
-            // Load root layout from fxml file.
-            FXMLLoader loader = new FXMLLoader();
-            loader.setLocation(Main.class.getResource("view/RootLayout.fxml"));
-            rootLayout = (BorderPane) loader.load();
-
-            // Show the scene containing the root layout.
-            Scene scene = new Scene(rootLayout);
-            primaryStage.setScene(scene);
-            primaryStage.show();
-            
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    public Stage getPrimaryStage() {
-        return primaryStage;
-    }
+
+		tabPane = new TabPane();
+		tabPane.setPrefSize(1250, 700);
+		tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+
+		rootLayout = new BorderPane();
+		rootLayout.setPrefSize(1250, 700);
+		rootLayout.setTop(tabPane);
+
+		// One tab per registered method, all sharing the same view.
+		for(String methodName : IntegratorRegistry.getMethodNames())
+			tabPane.getTabs().add(createTab(methodName));
+		openTab(tabPane.getSelectionModel().getSelectedItem());
+
+		// Show the scene containing the root layout.
+		Scene scene = new Scene(rootLayout);
+		primaryStage.setScene(scene);
+		primaryStage.show();
+
+		new AnimationTimer() {
+
+			private int pulsesNum;
+
+			@Override
+			public void handle(long now) {
+
+				// the scene is rendered in the first pulse after the window is shown
+				if(++pulsesNum < 2)
+					return;
+
+				stop();
+				onFirstFrame();
+			}
+		}.start();
+	}
+
+	private Tab createTab(final String methodName) {
+
+		final Tab tab = new Tab(methodName);
+		tab.setUserData(methodName);
+		tab.setOnSelectionChanged(new EventHandler<Event>() {
+
+			public void handle(Event event) {
+
+				if(tab.isSelected())
+					openTab(tab);
+			}
+		});
+		return tab;
+	}
+
+	/**
+	 * Builds content of the tab if it isn't built yet.
+	 */
+	private void openTab(Tab tab) {
+
+		if(tab == null || tab.getContent() != null)
+			return;
+
+		IntegratorTabController controller = new IntegratorTabController((String) tab.getUserData());
+		tab.setContent(controller.createView());
+		tab.setUserData(controller);
+		if(firstFrameShown)
+			controller.showDefaultFormula();
+	}
+
+	private void onFirstFrame() {
+
+		long nanoTime = System.nanoTime();
+		long millis = System.currentTimeMillis();
+		firstFrameShown = true;
+
+		Tab selected = tabPane.getSelectionModel().getSelectedItem();
+		if(selected != null && selected.getUserData() instanceof IntegratorTabController)
+			((IntegratorTabController) selected.getUserData()).showDefaultFormula();
+
+		if(Boolean.getBoolean(STARTUP_REPORT_PROPERTY)) {
+
+			// JVM start time is requested only now, as it loads management classes
+			long sinceStart = millis - ManagementFactory.getRuntimeMXBean().getStartTime();
+			System.err.println(String.format(Locale.ROOT, "Time to first frame: %d ms since JVM start, %d ms since main",
+					sinceStart, (nanoTime - mainNanoTime) / 1_000_000));
+		}
+
+		if(Boolean.getBoolean(EXIT_AFTER_FIRST_FRAME_PROPERTY))
+			Platform.exit();
+	}
+
+	public Stage getPrimaryStage() {
+		return primaryStage;
+	}
 
 	public static void main(String[] args) {
-		loadDefaultFunctionImage();
+
+		mainNanoTime = System.nanoTime();
 		launch(args);
 	}
-	
-	public static ImageView getImageViewFromBuffuredImage(BufferedImage bf) {
-		
-		WritableImage wr = null;
-        if (bf != null) {
-        	
-            wr = new WritableImage(bf.getWidth(), bf.getHeight());
-            PixelWriter pw = wr.getPixelWriter();
-            
-            for (int x = 0; x < bf.getWidth(); x++)
-                for (int y = 0; y < bf.getHeight(); y++)
-                    pw.setArgb(x, y, bf.getRGB(x, y));
-             
-        }
-         
-        return new ImageView(wr);
-	}
 
 }
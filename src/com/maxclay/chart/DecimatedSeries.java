@@ -0,0 +1,143 @@
+package com.maxclay.chart;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.maxclay.model.Trajectory;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+
+/**
+ * Shows solution arrays or trajectory in chart series through {@link MinMaxDecimator}.<br/>
+ * Chart data is created only for the points that are drawn, one bucket per pixel of x axis width,
+ * and is re-sampled whenever visible x range or axis width changes.
+ * When x axis is auto-ranging, the whole data range is shown.
+ */
+public class DecimatedSeries {
+
+	/**
+	 * Number of buckets used while axis has no width yet.
+	 */
+	public static final int DEFAULT_BUCKETS_NUM = 800;
+
+	private final XYChart.Series<Number, Number> series;
+	private final NumberAxis xAxis;
+
+	private double[] valuesX;
+	private double[] valuesY;
+	private Trajectory trajectory;
+	private int dimension;
+	private int component;
+
+	private double[] outX;
+	private double[] outY;
+
+	/**
+	 * @param series - series to show data in.
+	 * @param xAxis - x axis of the chart the series belongs to.
+	 */
+	public DecimatedSeries(XYChart.Series<Number, Number> series, NumberAxis xAxis) {
+
+		this.series = series;
+		this.xAxis = xAxis;
+		outX = new double[0];
+		outY = new double[0];
+
+		InvalidationListener resampler = new InvalidationListener() {
+
+			public void invalidated(Observable observable) {
+				resample();
+			}
+		};
+		xAxis.lowerBoundProperty().addListener(resampler);
+		xAxis.upperBoundProperty().addListener(resampler);
+		xAxis.widthProperty().addListener(resampler);
+	}
+
+	/**
+	 * Sets data to show. Arrays are not copied and must not change while shown.
+	 * @param valuesX - ascending x values.
+	 * @param valuesY - y vectors in row-major order.
+	 * @param dimension - length of each y vector.
+	 * @param component - index of y component to show.
+	 */
+	public void setData(double[] valuesX, double[] valuesY, int dimension, int component) {
+
+		this.valuesX = valuesX;
+		this.valuesY = valuesY;
+		trajectory = null;
+		this.dimension = dimension;
+		this.component = component;
+		resample();
+	}
+
+	/**
+	 * Sets trajectory to show. Trajectory is read with {@link Trajectory#cursor() cursor} on each re-sampling
+	 * and is never copied, so it may be {@link com.maxclay.model.OffHeapTrajectory off-heap}. It must not change while shown.
+	 * @param trajectory - trajectory to show.
+	 * @param component - index of y component to show.
+	 */
+	public void setData(Trajectory trajectory, int component) {
+
+		valuesX = null;
+		valuesY = null;
+		this.trajectory = trajectory;
+		this.component = component;
+		resample();
+	}
+
+	/**
+	 * Removes data from the series.
+	 */
+	public void clear() {
+
+		valuesX = null;
+		valuesY = null;
+		trajectory = null;
+		series.getData().clear();
+	}
+
+	private void resample() {
+
+		int size = (trajectory != null) ? trajectory.size() : (valuesX != null) ? valuesX.length : 0;
+		if(size == 0)
+			return;
+
+		double lower;
+		double upper;
+		if(xAxis.isAutoRanging()) {
+			lower = (trajectory != null) ? trajectory.getX(0) : valuesX[0];
+			upper = (trajectory != null) ? trajectory.getX(size - 1) : valuesX[size - 1];
+		}
+		else {
+			lower = xAxis.getLowerBound();
+			upper = xAxis.getUpperBound();
+		}
+
+		int bucketsNum = xAxis.getWidth() > 0 ? (int) Math.ceil(xAxis.getWidth()) : DEFAULT_BUCKETS_NUM;
+		int outputSize = MinMaxDecimator.outputSize(bucketsNum);
+		if(outX.length < outputSize) {
+			outX = new double[outputSize];
+			outY = new double[outputSize];
+		}
+
+		int count;
+		if(upper > lower)
+			count = (trajectory != null)
+					? MinMaxDecimator.decimate(trajectory.cursor(), component, lower, upper, bucketsNum, outX, outY)
+					: MinMaxDecimator.decimate(valuesX, valuesY, dimension, component, lower, upper, bucketsNum, outX, outY);
+		else {
+			outX[0] = (trajectory != null) ? trajectory.getX(0) : valuesX[0];
+			outY[0] = (trajectory != null) ? trajectory.getY(0, component) : valuesY[component];
+			count = 1;
+		}
+
+		List<XYChart.Data<Number, Number>> points = new ArrayList<>(count);
+		for(int i = 0; i < count; i++)
+			points.add(new XYChart.Data<Number, Number>(outX[i], outY[i]));
+		series.getData().setAll(points);
+	}
+}
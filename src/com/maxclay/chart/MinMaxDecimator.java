@@ -0,0 +1,235 @@
+package com.maxclay.chart;
+
+import com.maxclay.model.TrajectoryCursor;
+
+/**
+ * Reduces number of points of a line to draw without changing how it looks.<br/>
+ * Visible x range is split into buckets of one pixel width, and only first, last, minimal and maximal
+ * points of each bucket are kept, so each pixel column is drawn exactly as with all points,
+ * while number of points never exceeds 4 per pixel.
+ */
+public final class MinMaxDecimator {
+
+	/**
+	 * Maximum number of points kept per bucket.
+	 */
+	public static final int POINTS_PER_BUCKET = 4;
+
+	private static final int FIRST = 0;
+	private static final int MIN = 1;
+	private static final int MAX = 2;
+	private static final int LAST = 3;
+
+	private MinMaxDecimator() {
+	}
+
+	/**
+	 *
+	 * @param bucketsNum - number of buckets.
+	 * @return size of output arrays required by {@link #decimate decimate} method.
+	 */
+	public static int outputSize(int bucketsNum) {
+		return bucketsNum * POINTS_PER_BUCKET;
+	}
+
+	/**
+	 * Decimates points within [lower; upper] range. The nearest point on each side out of the range
+	 * is kept too, so the line continues to the chart edges.
+	 * @param valuesX - ascending x values.
+	 * @param valuesY - y vectors in row-major order.
+	 * @param dimension - length of each y vector.
+	 * @param component - index of y component to decimate.
+	 * @param lower - lower bound of visible x range.
+	 * @param upper - upper bound of visible x range.
+	 * @param bucketsNum - number of buckets, usually the width of the chart in pixels.
+	 * @param outX - array to write kept x values to, must have at least {@link #outputSize(int) outputSize(bucketsNum)} elements.
+	 * @param outY - array to write kept y values to, must have at least {@link #outputSize(int) outputSize(bucketsNum)} elements.
+	 * @return number of kept points.
+	 */
+	public static int decimate(double[] valuesX, double[] valuesY, int dimension, int component,
+			double lower, double upper, int bucketsNum, double[] outX, double[] outY) {
+
+		int size = valuesX.length;
+		if(size == 0 || !(upper > lower))
+			return 0;
+
+		int from = Math.max(0, firstIndexNotLess(valuesX, lower) - 1);
+		int to = Math.min(size - 1, firstIndexNotLess(valuesX, upper));
+
+		double scale = bucketsNum / (upper - lower);
+		int count = 0;
+
+		int bucket = -1;
+		int first = 0;
+		int last = 0;
+		int min = 0;
+		int max = 0;
+		for(int i = from; i <= to; i++) {
+
+			int current = (int) ((valuesX[i] - lower) * scale);
+			current = Math.max(0, Math.min(bucketsNum - 1, current));
+			double y = valuesY[i * dimension + component];
+
+			if(current != bucket) {
+
+				if(bucket >= 0)
+					count = emit(valuesX, valuesY, dimension, component, first, min, max, last, outX, outY, count);
+
+				bucket = current;
+				first = i;
+				min = i;
+				max = i;
+			}
+			else {
+
+				if(y < valuesY[min * dimension + component])
+					min = i;
+				if(y > valuesY[max * dimension + component])
+					max = i;
+			}
+
+			last = i;
+		}
+
+		if(bucket >= 0)
+			count = emit(valuesX, valuesY, dimension, component, first, min, max, last, outX, outY, count);
+
+		return count;
+	}
+
+	/**
+	 * Decimates points of trajectory within [lower; upper] range in one pass of the cursor, so the
+	 * trajectory is never copied. The nearest point on each side out of the range is kept too.
+	 * @param cursor - cursor of the trajectory, it is moved to the point preceding the range.
+	 * @param component - index of y component to decimate.
+	 * @param lower - lower bound of visible x range.
+	 * @param upper - upper bound of visible x range.
+	 * @param bucketsNum - number of buckets, usually the width of the chart in pixels.
+	 * @param outX - array to write kept x values to, must have at least {@link #outputSize(int) outputSize(bucketsNum)} elements.
+	 * @param outY - array to write kept y values to, must have at least {@link #outputSize(int) outputSize(bucketsNum)} elements.
+	 * @return number of kept points.
+	 */
+	public static int decimate(TrajectoryCursor cursor, int component,
+			double lower, double upper, int bucketsNum, double[] outX, double[] outY) {
+
+		if(!(upper > lower))
+			return 0;
+
+		// array version starts from the last point less than lower
+		cursor.seek(Math.nextDown(lower));
+		double scale = bucketsNum / (upper - lower);
+		int count = 0;
+
+		// first, min, max and last points of current bucket
+		int[] indices = new int[4];
+		double[] bucketX = new double[4];
+		double[] bucketY = new double[4];
+
+		int bucket = -1;
+		while(cursor.next()) {
+
+			double x = cursor.getX();
+			double y = cursor.getY(component);
+			int current = (int) ((x - lower) * scale);
+			current = Math.max(0, Math.min(bucketsNum - 1, current));
+
+			if(current != bucket) {
+
+				if(bucket >= 0)
+					count = emit(indices, bucketX, bucketY, outX, outY, count);
+
+				bucket = current;
+				set(indices, bucketX, bucketY, FIRST, cursor.getIndex(), x, y);
+				set(indices, bucketX, bucketY, MIN, cursor.getIndex(), x, y);
+				set(indices, bucketX, bucketY, MAX, cursor.getIndex(), x, y);
+			}
+			else {
+
+				if(y < bucketY[MIN])
+					set(indices, bucketX, bucketY, MIN, cursor.getIndex(), x, y);
+				if(y > bucketY[MAX])
+					set(indices, bucketX, bucketY, MAX, cursor.getIndex(), x, y);
+			}
+
+			set(indices, bucketX, bucketY, LAST, cursor.getIndex(), x, y);
+			if(x >= upper)
+				break;
+		}
+
+		if(bucket >= 0)
+			count = emit(indices, bucketX, bucketY, outX, outY, count);
+
+		return count;
+	}
+
+	private static void set(int[] indices, double[] bucketX, double[] bucketY, int slot, int index, double x, double y) {
+
+		indices[slot] = index;
+		bucketX[slot] = x;
+		bucketY[slot] = y;
+	}
+
+	private static int emit(int[] indices, double[] bucketX, double[] bucketY, double[] outX, double[] outY, int count) {
+
+		int low = (indices[MIN] <= indices[MAX]) ? MIN : MAX;
+		int high = (low == MIN) ? MAX : MIN;
+
+		count = put(indices, bucketX, bucketY, FIRST, outX, outY, count, -1);
+		count = put(indices, bucketX, bucketY, low, outX, outY, count, indices[FIRST]);
+		count = put(indices, bucketX, bucketY, high, outX, outY, count, Math.max(indices[FIRST], indices[low]));
+		count = put(indices, bucketX, bucketY, LAST, outX, outY, count, Math.max(indices[FIRST], indices[high]));
+		return count;
+	}
+
+	private static int put(int[] indices, double[] bucketX, double[] bucketY, int slot,
+			double[] outX, double[] outY, int count, int previous) {
+
+		if(indices[slot] == previous)
+			return count;
+
+		outX[count] = bucketX[slot];
+		outY[count] = bucketY[slot];
+		return count + 1;
+	}
+
+	private static int emit(double[] valuesX, double[] valuesY, int dimension, int component,
+			int first, int min, int max, int last, double[] outX, double[] outY, int count) {
+
+		// first <= min, max <= last, so only min and max may need reordering
+		int low = Math.min(min, max);
+		int high = Math.max(min, max);
+
+		count = put(valuesX, valuesY, dimension, component, first, outX, outY, count, -1);
+		count = put(valuesX, valuesY, dimension, component, low, outX, outY, count, first);
+		count = put(valuesX, valuesY, dimension, component, high, outX, outY, count, Math.max(first, low));
+		count = put(valuesX, valuesY, dimension, component, last, outX, outY, count, Math.max(first, high));
+		return count;
+	}
+
+	private static int put(double[] valuesX, double[] valuesY, int dimension, int component,
+			int index, double[] outX, double[] outY, int count, int previous) {
+
+		if(index == previous)
+			return count;
+
+		outX[count] = valuesX[index];
+		outY[count] = valuesY[index * dimension + component];
+		return count + 1;
+	}
+
+	private static int firstIndexNotLess(double[] values, double key) {
+
+		int low = 0;
+		int high = values.length;
+		while(low < high) {
+
+			int middle = (low + high) >>> 1;
+			if(values[middle] < key)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+
+		return low;
+	}
+}
@@ -0,0 +1,318 @@
+package com.maxclay.controller;
+
+import java.util.function.Consumer;
+
+import com.maxclay.Main;
+import com.maxclay.chart.DecimatedSeries;
+import com.maxclay.expression.CompiledExpression;
+import com.maxclay.expression.ExpressionCompiler;
+import com.maxclay.expression.ExpressionParseException;
+import com.maxclay.formula.FormulaImageCache;
+import com.maxclay.metrics.MetricsListener;
+import com.maxclay.metrics.SolverMetrics;
+import com.maxclay.model.CachedSolution;
+import com.maxclay.model.CauchyProblem;
+import com.maxclay.model.CompositeSolverListener;
+import com.maxclay.model.DefaultEquation;
+import com.maxclay.model.IntegratorRegistry;
+import com.maxclay.model.SolutionCache;
+import com.maxclay.model.SolverListener;
+import com.maxclay.model.Trajectory;
+
+import javafx.application.Platform;
+import javafx.concurrent.WorkerStateEvent;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.scene.Parent;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.AnchorPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.text.Font;
+
+/**
+ * Controller of a tab solving the problem by one of {@link IntegratorRegistry registered} methods.
+ * Tabs of all methods share the same view, which is built in code rather than loaded from FXML,
+ * so that opening a tab needs neither FXML parsing nor reflection.
+ */
+public class IntegratorTabController {
+
+	/**
+	 * Solutions shared by all tabs, so pressing Start again for unchanged problem doesn't solve it again.
+	 */
+	private static final SolutionCache SOLUTION_CACHE = new SolutionCache();
+
+	static {
+		// speedup of Parareal method is shown in its report
+		SOLUTION_CACHE.setPararealSpeedupMeasurement(true);
+	}
+
+	private final String methodName;
+
+	private Pane pane;
+	
+	private Label titleLabel;
+	
+	private Button startButton;
+	
+	private Button resetButton;
+	
+	private Button cancelButton;
+	
+	private ProgressBar progressBar;
+	
+	private TextArea textArea;
+	
+	private TextField equationField;
+	
+	private ImageView functionImage;
+	
+	private boolean formulaShown;
+	
+	private volatile CachedSolution cachedSolution;
+	
+	private SolverTask task;
+	
+	/**
+	 * @param methodName - name of registered method.
+	 */
+	public IntegratorTabController(String methodName) {
+		this.methodName = methodName;
+	}
+	
+	/**
+	 * Builds the tab view. Formula image stays empty until {@link #showDefaultFormula()}.
+	 * @return root node of the tab.
+	 */
+	public Parent createView() {
+		
+		titleLabel = new Label();
+		titleLabel.setLayoutX(14);
+		titleLabel.setLayoutY(14);
+		titleLabel.setFont(new Font(16));
+		
+		textArea = new TextArea();
+		textArea.setLayoutX(14);
+		textArea.setLayoutY(69);
+		textArea.setPrefSize(380, 506);
+		
+		Label equationLabel = new Label("y' =");
+		equationLabel.setLayoutX(14);
+		equationLabel.setLayoutY(590);
+		
+		equationField = new TextField();
+		equationField.setLayoutX(44);
+		equationField.setLayoutY(586);
+		equationField.setPrefWidth(350);
+		
+		Label reportLabel = new Label("Report:");
+		reportLabel.setLayoutX(14);
+		reportLabel.setLayoutY(52);
+		
+		startButton = createButton("Start", 14);
+		resetButton = createButton("Reset", 69);
+		cancelButton = createButton("Cancel", 124);
+		
+		progressBar = new ProgressBar(0);
+		progressBar.setLayoutX(194);
+		progressBar.setLayoutY(628);
+		progressBar.setPrefWidth(200);
+		
+		pane = new Pane(titleLabel, textArea, equationLabel, equationField, reportLabel, startButton, resetButton, cancelButton, progressBar);
+		pane.setLayoutX(6);
+		pane.setPrefSize(1250, 670);
+		AnchorPane.setTopAnchor(pane, 0.0);
+		AnchorPane.setBottomAnchor(pane, 0.0);
+		AnchorPane.setLeftAnchor(pane, 6.0);
+		AnchorPane.setRightAnchor(pane, -6.0);
+		
+		AnchorPane root = new AnchorPane(pane);
+		root.setMaxWidth(1250);
+		root.setPrefHeight(670);
+		
+		initialize();
+		return root;
+	}
+	
+	private static Button createButton(String text, double layoutX) {
+		
+		Button button = new Button(text);
+		button.setMnemonicParsing(false);
+		button.setLayoutX(layoutX);
+		button.setLayoutY(624);
+		return button;
+	}
+	
+	/**
+	 * Starts loading image of the default equation, which may need rendering it with JEuclid,
+	 * so it is done when the tab is already visible.
+	 */
+	public void showDefaultFormula() {
+		
+		if(formulaShown)
+			return;
+		
+		String mathML = Main.loadDefaultFunction();
+		if(mathML != null)
+			showFormula(mathML);
+	}
+	
+	private void initialize() {
+		
+		titleLabel.setText("Solving Cauchy problem using " + methodName + " for");
+		
+		functionImage = new ImageView();
+		functionImage.setLayoutX(415);
+		functionImage.setLayoutY(8);
+		pane.getChildren().add(functionImage);
+		
+		equationField.setText(ExpressionCompiler.DEFAULT_EXPRESSION);
+		
+		NumberAxis xAxis = new NumberAxis();
+        NumberAxis yAxis = new NumberAxis();
+        xAxis.setLabel("X axis");
+        yAxis.setLabel("Y axis");
+
+        LineChart<Number,Number> lineChart = new LineChart<Number,Number>(xAxis,yAxis);      
+        lineChart.setTitle("Cauchy problem");
+        lineChart.setLayoutX(410);
+        lineChart.setLayoutY(69);
+        lineChart.setPrefHeight(546);
+        lineChart.setPrefWidth(800);
+        
+        final XYChart.Series<Number, Number> analyticalSolution = new XYChart.Series<>();
+        analyticalSolution.setName("Analytical solution");
+        lineChart.getData().add(analyticalSolution);
+        
+        final XYChart.Series<Number, Number> solution = new XYChart.Series<>();
+        solution.setName(methodName + " solution");        
+        lineChart.getData().add(solution);
+        
+        pane.getChildren().add(lineChart);
+        
+        final DecimatedSeries decimatedAnalyticalSolution = new DecimatedSeries(analyticalSolution, xAxis);
+        final DecimatedSeries decimatedSolution = new DecimatedSeries(solution, xAxis);
+		
+		startButton.setOnAction(new EventHandler<ActionEvent>() {
+
+			public void handle(ActionEvent event) {
+
+				final CompiledExpression equation;
+				try {
+					equation = ExpressionCompiler.compile(equationField.getText());
+				} catch (ExpressionParseException e) {
+					textArea.appendText("\nInvalid equation: " + e.getMessage() + "\n");
+					return;
+				}
+				
+				final CauchyProblem problem = CauchyProblem.defaultProblem();
+				final boolean defaultEquation = ExpressionCompiler.isDefaultEquation(equation);
+				showFormula(equation.toMathML(problem));
+				
+				decimatedAnalyticalSolution.clear();
+				decimatedSolution.clear();
+				task = new SolverTask(solution) {
+					
+					protected void solve(SolverListener listener) {
+						
+						// metrics of each method are available in JMX
+						cachedSolution = SOLUTION_CACHE.solve(methodName, equation.getText(), equation, problem,
+								CompositeSolverListener.of(listener, new MetricsListener(SolverMetrics.forName(methodName))), true);
+					}
+				};
+				
+				task.setOnSucceeded(new EventHandler<WorkerStateEvent>() {
+					
+					public void handle(WorkerStateEvent event) {
+						
+						textArea.appendText(cachedSolution.getReport().get());
+						
+						// accepted steps are charted when there are more of them than output points
+						Trajectory trajectory = cachedSolution.getTrajectory();
+						boolean steps = trajectory.size() > cachedSolution.getArrayX().length;
+						double[] valuesX = steps ? trajectory.getArrayX() : cachedSolution.getArrayX().clone();
+						// analytical solution is known for default equation only
+						if(defaultEquation) {
+							double[] analyticalValuesY = new double[valuesX.length];
+							for(int i = 0; i < valuesX.length; i++)
+								analyticalValuesY[i] = DefaultEquation.analyticalSolution(valuesX[i]);
+							
+							decimatedAnalyticalSolution.setData(valuesX, analyticalValuesY, 1, 0);
+						}
+						if(steps)
+							decimatedSolution.setData(trajectory, 0);
+						else
+							decimatedSolution.setData(valuesX, cachedSolution.getArrayY().clone(), cachedSolution.getDimension(), 0);
+					}
+				});
+				
+				task.setOnFailed(new EventHandler<WorkerStateEvent>() {
+					
+					public void handle(WorkerStateEvent event) {
+						textArea.appendText("\nSolving failed: " + event.getSource().getException().getMessage() + "\n");
+					}
+				});
+				
+				task.setOnCancelled(new EventHandler<WorkerStateEvent>() {
+					
+					public void handle(WorkerStateEvent event) {
+						textArea.appendText("\nSolving cancelled\n");
+					}
+				});
+				
+				progressBar.progressProperty().bind(task.progressProperty());
+				startButton.disableProperty().bind(task.runningProperty());
+				cancelButton.disableProperty().bind(task.runningProperty().not());
+				task.start();
+			}
+		});
+		
+		cancelButton.setDisable(true);
+		cancelButton.setOnAction(new EventHandler<ActionEvent>() {
+
+			public void handle(ActionEvent event) {
+				task.cancel();
+			}
+		});
+		
+		resetButton.setOnAction(new EventHandler<ActionEvent>() {
+
+			public void handle(ActionEvent event) {
+
+				if(task != null)
+					task.cancel();
+				
+				textArea.clear();
+				decimatedAnalyticalSolution.clear();
+				decimatedSolution.clear();
+			}
+		}); 
+        
+	}
+
+	private void showFormula(String mathML) {
+		
+		formulaShown = true;
+		FormulaImageCache.getInstance().getImage(mathML).thenAccept(new Consumer<Image>() {
+
+			public void accept(final Image image) {
+				
+				Platform.runLater(new Runnable() {
+
+					public void run() {
+						functionImage.setImage(image);
+					}
+				});
+			}
+		});
+	}
+
+}
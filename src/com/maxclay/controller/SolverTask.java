@@ -0,0 +1,153 @@
+package com.maxclay.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.maxclay.model.CauchyProblem;
+import com.maxclay.model.SolverListener;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.scene.chart.XYChart;
+
+/**
+ * Runs solver on background thread and shows accepted points in chart series while solving.<br/>
+ * Points are collected on solver thread and handed to JavaFX application thread in batches,
+ * at most once per {@link #FRAME_NANOS frame}, so long integrations don't flood the event queue.
+ * Only about {@link #PREVIEW_POINTS_NUM} evenly spaced points are shown while solving; the whole
+ * solution is expected to be shown through {@link com.maxclay.chart.DecimatedSeries} when the task succeeds.
+ * Cancelling the task stops the solver at the next step.
+ */
+public abstract class SolverTask extends Task<Void> implements SolverListener {
+
+	/**
+	 * Minimal time between two chart updates: one frame at 60 fps.
+	 */
+	public static final long FRAME_NANOS = 1000000000L / 60;
+
+	/**
+	 * Number of points shown while solving.
+	 */
+	public static final int PREVIEW_POINTS_NUM = 2000;
+
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+
+		public Thread newThread(Runnable runnable) {
+
+			Thread thread = new Thread(runnable, "solver");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private final XYChart.Series<Number, Number> series;
+
+	private final Object lock = new Object();
+	private List<XYChart.Data<Number, Number>> pendingPoints;
+	private final AtomicBoolean publishScheduled;
+	private long lastPublishTime;
+
+	private double lowerBoundary;
+	private double intervalLength;
+	private double nextPreviewX;
+
+	/**
+	 * @param series - series to add accepted points to. First component of y is shown.
+	 */
+	public SolverTask(XYChart.Series<Number, Number> series) {
+
+		this.series = series;
+		pendingPoints = new ArrayList<>();
+		publishScheduled = new AtomicBoolean();
+	}
+
+	/**
+	 * Starts the task on solver thread.
+	 */
+	public void start() {
+		EXECUTOR.execute(this);
+	}
+
+	/**
+	 * Runs the solver. Called on solver thread.
+	 * @param listener - listener to pass to the solver.
+	 */
+	protected abstract void solve(SolverListener listener);
+
+	@Override
+	protected Void call() throws Exception {
+
+		solve(this);
+		return null;
+	}
+
+	public void onStart(String methodName, CauchyProblem problem) {
+
+		lowerBoundary = problem.getLowerBoundary();
+		intervalLength = problem.getHigherBoundary() - problem.getLowerBoundary();
+		nextPreviewX = lowerBoundary;
+		addPoint(lowerBoundary, problem.getStartingY()[0]);
+	}
+
+	public void onStep(double x, double h, double[] y, double[][] stages, double error, boolean accepted) {
+
+		if(isCancelled())
+			throw new CancellationException();
+
+		if(!accepted)
+			return;
+
+		updateProgress(x - lowerBoundary, intervalLength);
+		if(x < nextPreviewX)
+			return;
+
+		addPoint(x, y[0]);
+		nextPreviewX = x + intervalLength / PREVIEW_POINTS_NUM;
+
+		long now = System.nanoTime();
+		if(now - lastPublishTime >= FRAME_NANOS) {
+			lastPublishTime = now;
+			schedulePublish();
+		}
+	}
+
+	public void onFinish(double[] valuesX, double[] valuesY, int acceptedStepsNum, int rejectedStepsNum, int functionEvaluationsNum) {
+		schedulePublish();
+	}
+
+	private void addPoint(double x, double y) {
+
+		synchronized (lock) {
+			pendingPoints.add(new XYChart.Data<Number, Number>(x, y));
+		}
+	}
+
+	private void schedulePublish() {
+
+		if(publishScheduled.compareAndSet(false, true))
+			Platform.runLater(new Runnable() {
+
+				public void run() {
+					publish();
+				}
+			});
+	}
+
+	private void publish() {
+
+		List<XYChart.Data<Number, Number>> points;
+		synchronized (lock) {
+			publishScheduled.set(false);
+			points = pendingPoints;
+			pendingPoints = new ArrayList<>();
+		}
+
+		// one change event for the whole batch
+		series.getData().addAll(points);
+	}
+}
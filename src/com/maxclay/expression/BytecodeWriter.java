@@ -0,0 +1,255 @@
+package com.maxclay.expression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal class file writer producing a final class that implements {@link ScalarFunction}
+ * with a single straight-line method apply(double x, double y).<br/>
+ * Expression nodes {@link Expression#generate(BytecodeWriter) append} their instructions, operands are kept on
+ * the operand stack, so no local variables besides x and y are needed.
+ */
+final class BytecodeWriter {
+
+	private static final int VERSION = 52;
+
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+
+	private static final int DCONST_0 = 0x0e;
+	private static final int DCONST_1 = 0x0f;
+	private static final int LDC2_W = 0x14;
+	private static final int DLOAD_1 = 0x27;
+	private static final int DLOAD_3 = 0x29;
+	private static final int ALOAD_0 = 0x2a;
+	private static final int DNEG = 0x77;
+	private static final int DRETURN = 0xaf;
+	private static final int RETURN = 0xb1;
+	private static final int INVOKESPECIAL = 0xb7;
+	private static final int INVOKESTATIC = 0xb8;
+
+	private final ByteArrayOutputStream constantPool = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(constantPool);
+	private final Map<String, Integer> constants = new HashMap<>();
+	private int constantsNum = 1;
+
+	private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+
+	/**
+	 * Writes class file of the expression.
+	 * @param className - binary class name with '/' separators.
+	 * @param expression - expression to compile.
+	 * @return class file bytes.
+	 */
+	static byte[] write(String className, Expression expression) {
+
+		BytecodeWriter writer = new BytecodeWriter();
+		expression.generate(writer);
+		writer.code.write(DRETURN);
+		return writer.toClassFile(className, expression.stackSize());
+	}
+
+	void loadX() {
+		code.write(DLOAD_1);
+	}
+
+	void loadY() {
+		code.write(DLOAD_3);
+	}
+
+	void loadConstant(double value) {
+
+		if(Double.doubleToRawLongBits(value) == 0)
+			code.write(DCONST_0);
+		else if(value == 1)
+			code.write(DCONST_1);
+		else
+			writeInstruction(LDC2_W, doubleConstant(value));
+	}
+
+	/**
+	 * @param opcode - one of dadd, dsub, dmul, ddiv, dneg.
+	 */
+	void arithmetic(int opcode) {
+		code.write(opcode);
+	}
+
+	void negate() {
+		code.write(DNEG);
+	}
+
+	void invokeStatic(Class<?> owner, String name, String descriptor) {
+		writeInstruction(INVOKESTATIC, methodConstant(owner.getName().replace('.', '/'), name, descriptor));
+	}
+
+	private void writeInstruction(int opcode, int index) {
+
+		code.write(opcode);
+		code.write(index >> 8);
+		code.write(index);
+	}
+
+	private byte[] toClassFile(String className, int maxStack) {
+
+		int thisClass = classConstant(className);
+		int superClass = classConstant("java/lang/Object");
+		int functionInterface = classConstant(ScalarFunction.class.getName().replace('.', '/'));
+		int constructor = methodConstant("java/lang/Object", "<init>", "()V");
+		int initName = utf8Constant("<init>");
+		int initDescriptor = utf8Constant("()V");
+		int applyName = utf8Constant("apply");
+		int applyDescriptor = utf8Constant("(DD)D");
+		int codeName = utf8Constant("Code");
+
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(VERSION);
+			out.writeShort(constantsNum);
+			pool.flush();
+			constantPool.writeTo(out);
+
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(1);
+			out.writeShort(functionInterface);
+			out.writeShort(0);
+
+			out.writeShort(2);
+
+			byte[] init = { (byte) ALOAD_0, (byte) INVOKESPECIAL, (byte) (constructor >> 8), (byte) constructor, (byte) RETURN };
+			writeMethod(out, ACC_PUBLIC, initName, initDescriptor, codeName, 1, 1, init);
+			// locals: this, x (2 slots), y (2 slots)
+			writeMethod(out, ACC_PUBLIC | ACC_FINAL, applyName, applyDescriptor, codeName, maxStack, 5, code.toByteArray());
+
+			out.writeShort(0);
+			out.flush();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeMethod(DataOutputStream out, int access, int name, int descriptor, int codeName,
+			int maxStack, int maxLocals, byte[] code) throws IOException {
+
+		out.writeShort(access);
+		out.writeShort(name);
+		out.writeShort(descriptor);
+		out.writeShort(1);
+
+		out.writeShort(codeName);
+		out.writeInt(12 + code.length);
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.length);
+		out.write(code);
+		out.writeShort(0);
+		out.writeShort(0);
+	}
+
+	private int utf8Constant(String value) {
+
+		String key = "U" + value;
+		Integer index = constants.get(key);
+		if(index != null)
+			return index;
+
+		try {
+			pool.writeByte(1);
+			pool.writeUTF(value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return register(key, 1);
+	}
+
+	private int classConstant(String name) {
+
+		String key = "C" + name;
+		Integer index = constants.get(key);
+		if(index != null)
+			return index;
+
+		int nameIndex = utf8Constant(name);
+		try {
+			pool.writeByte(7);
+			pool.writeShort(nameIndex);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return register(key, 1);
+	}
+
+	private int methodConstant(String owner, String name, String descriptor) {
+
+		String key = "M" + owner + '.' + name + descriptor;
+		Integer index = constants.get(key);
+		if(index != null)
+			return index;
+
+		int ownerIndex = classConstant(owner);
+		int nameAndType = nameAndTypeConstant(name, descriptor);
+		try {
+			pool.writeByte(10);
+			pool.writeShort(ownerIndex);
+			pool.writeShort(nameAndType);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return register(key, 1);
+	}
+
+	private int nameAndTypeConstant(String name, String descriptor) {
+
+		String key = "N" + name + descriptor;
+		Integer index = constants.get(key);
+		if(index != null)
+			return index;
+
+		int nameIndex = utf8Constant(name);
+		int descriptorIndex = utf8Constant(descriptor);
+		try {
+			pool.writeByte(12);
+			pool.writeShort(nameIndex);
+			pool.writeShort(descriptorIndex);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return register(key, 1);
+	}
+
+	private int doubleConstant(double value) {
+
+		String key = "D" + Double.doubleToRawLongBits(value);
+		Integer index = constants.get(key);
+		if(index != null)
+			return index;
+
+		try {
+			pool.writeByte(6);
+			pool.writeDouble(value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		// double constants take two entries
+		return register(key, 2);
+	}
+
+	private int register(String key, int size) {
+
+		int index = constantsNum;
+		constants.put(key, index);
+		constantsNum += size;
+		return index;
+	}
+}
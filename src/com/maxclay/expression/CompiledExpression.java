@@ -0,0 +1,81 @@
+package com.maxclay.expression;
+
+import com.maxclay.model.CauchyProblem;
+import com.maxclay.model.RightHandSide;
+
+/**
+ * Right-hand side of scalar equation <msup><mi>y</mi><mo>&#x2032;</mo></msup> = f(x, y);
+ * given by user-entered expression.<br/>
+ * Expression is compiled once to a class whose method computes it the same way hand-written Java would
+ * (or to a tree of method handles where classes can't be defined at runtime), so evaluation doesn't walk
+ * the expression tree on every call.
+ * Instances are obtained through {@link ExpressionCompiler#compile(String)}.
+ */
+public final class CompiledExpression implements RightHandSide {
+
+	private final String text;
+	private final Expression expression;
+	private final ScalarFunction function;
+
+	CompiledExpression(String text, Expression expression) {
+
+		this.text = text;
+		this.expression = expression;
+		this.function = FunctionLoader.load(expression);
+	}
+
+	public void evaluate(double x, double[] y, double[] dydx) {
+		dydx[0] = evaluate(x, y[0]);
+	}
+
+	/**
+	 * Computes f(x, y) of scalar equation.
+	 * @param x - x parameter.
+	 * @param y - y parameter.
+	 * @return function value.
+	 */
+	public double evaluate(double x, double y) {
+		return function.apply(x, y);
+	}
+
+	/**
+	 *
+	 * @return expression text as it was entered.
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 *
+	 * @return parsed expression.
+	 */
+	public Expression getExpression() {
+		return expression;
+	}
+
+	/**
+	 * Creates MathML document showing equation and proviso in the same form as formula image of default equation.
+	 * @param problem - problem to show proviso of.
+	 * @return MathML document.
+	 */
+	public String toMathML(CauchyProblem problem) {
+
+		StringBuilder mathML = new StringBuilder();
+		mathML.append("<math xmlns='http://www.w3.org/1998/Math/MathML' display='block' mathsize='2em'>");
+		mathML.append("<mrow><msup><mi>y</mi><mo>&#x2032;</mo></msup></mrow><mo>=</mo><mrow>");
+		expression.appendMathML(mathML);
+		mathML.append("</mrow><mo>;</mo>");
+		mathML.append("<mspace width='.5em' /><mrow><mo>(x0;y0) = (").append(problem.getLowerBoundary())
+			.append(';').append(problem.getStartingY()[0]).append(");</mo></mrow>");
+		mathML.append("<mspace width='.5em' /><mrow><mo>[x0;").append(problem.getHigherBoundary()).append("];</mo></mrow>");
+		mathML.append("<mspace width='.5em' /><mrow><mo>N = ").append(problem.getControlPointsNum()).append(";</mo></mrow>");
+		mathML.append("</math>");
+		return mathML.toString();
+	}
+
+	@Override
+	public String toString() {
+		return expression.toString();
+	}
+}
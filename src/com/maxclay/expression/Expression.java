@@ -0,0 +1,426 @@
+package com.maxclay.expression;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Parsed right-hand side f(x, y) of differential equation <msup><mi>y</mi><mo>&#x2032;</mo></msup> = f(x, y);<br/>
+ * Expression tree can be evaluated directly, compiled to bytecode or to {@link MethodHandle} of type
+ * (double x, double y)double, and written as MathML.
+ */
+public abstract class Expression {
+
+	/**
+	 * Type of compiled expression: (double x, double y)double.
+	 */
+	public static final MethodType TYPE = MethodType.methodType(double.class, double.class, double.class);
+
+	private static final MethodType UNARY = MethodType.methodType(double.class, double.class);
+	private static final MethodType BINARY = MethodType.methodType(double.class, double.class, double.class);
+
+	/**
+	 * Evaluates expression without compiling it.
+	 * @param x - x parameter.
+	 * @param y - y parameter.
+	 * @return expression value.
+	 */
+	public abstract double evaluate(double x, double y);
+
+	/**
+	 * Builds method handle tree computing the expression. Constant subexpressions are folded.
+	 * @return method handle of {@link #TYPE} type.
+	 */
+	public abstract MethodHandle compile();
+
+	/**
+	 * Appends instructions leaving expression value on the operand stack.
+	 * @param code - writer of the method computing the expression.
+	 */
+	abstract void generate(BytecodeWriter code);
+
+	/**
+	 *
+	 * @return number of operand stack slots needed to compute the expression.
+	 */
+	abstract int stackSize();
+
+	/**
+	 * Appends MathML presentation of the expression.
+	 * @param mathML - builder to append to.
+	 */
+	public abstract void appendMathML(StringBuilder mathML);
+
+	/**
+	 *
+	 * @return true if expression doesn't depend on x and y.
+	 */
+	public boolean isConstant() {
+		return false;
+	}
+
+	/**
+	 * Operator precedence used to place parentheses.
+	 */
+	abstract int precedence();
+
+	static final int ADDITIVE = 1;
+	static final int MULTIPLICATIVE = 2;
+	static final int UNARY_MINUS = 3;
+	static final int POWER = 4;
+	static final int PRIMARY = 5;
+
+	private static final int DADD = 0x63;
+	private static final int DSUB = 0x67;
+	private static final int DMUL = 0x6b;
+	private static final int DDIV = 0x6f;
+
+	static Expression constant(double value) {
+		return new Constant(value);
+	}
+
+	static Expression variable(String name) {
+		return new Variable(name);
+	}
+
+	static Expression negate(Expression operand) {
+
+		if(operand.isConstant())
+			return new Constant(-operand.evaluate(0, 0));
+		return new Negation(operand);
+	}
+
+	static Expression binary(char operator, Expression left, Expression right) {
+
+		Expression expression = new BinaryOperation(operator, left, right);
+		if(left.isConstant() && right.isConstant())
+			return new Constant(expression.evaluate(0, 0));
+		return expression;
+	}
+
+	static Expression function(String name, Expression argument) {
+
+		Expression expression = new FunctionCall(Function.forName(name), argument);
+		if(argument.isConstant())
+			return new Constant(expression.evaluate(0, 0));
+		return expression;
+	}
+
+	static final class Constant extends Expression {
+
+		private final double value;
+
+		Constant(double value) {
+			this.value = value;
+		}
+
+		public double evaluate(double x, double y) {
+			return value;
+		}
+
+		public MethodHandle compile() {
+			return MethodHandles.dropArguments(MethodHandles.constant(double.class, value), 0, double.class, double.class);
+		}
+
+		void generate(BytecodeWriter code) {
+			code.loadConstant(value);
+		}
+
+		int stackSize() {
+			return 2;
+		}
+
+		public void appendMathML(StringBuilder mathML) {
+
+			if(value == Math.PI)
+				mathML.append("<mi>&#x3C0;</mi>");
+			else if(value == Math.E)
+				mathML.append("<mi>e</mi>");
+			else
+				mathML.append("<mn>").append(format(value)).append("</mn>");
+		}
+
+		@Override
+		public boolean isConstant() {
+			return true;
+		}
+
+		int precedence() {
+			return value < 0 ? UNARY_MINUS : PRIMARY;
+		}
+
+		@Override
+		public String toString() {
+			return format(value);
+		}
+
+		private static String format(double value) {
+			return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+		}
+	}
+
+	static final class Variable extends Expression {
+
+		private final String name;
+
+		Variable(String name) {
+			this.name = name;
+		}
+
+		public double evaluate(double x, double y) {
+			return "x".equals(name) ? x : y;
+		}
+
+		public MethodHandle compile() {
+
+			MethodHandle identity = MethodHandles.identity(double.class);
+			return "x".equals(name) ? MethodHandles.dropArguments(identity, 1, double.class)
+					: MethodHandles.dropArguments(identity, 0, double.class);
+		}
+
+		void generate(BytecodeWriter code) {
+
+			if("x".equals(name))
+				code.loadX();
+			else
+				code.loadY();
+		}
+
+		int stackSize() {
+			return 2;
+		}
+
+		public void appendMathML(StringBuilder mathML) {
+			mathML.append("<mi>").append(name).append("</mi>");
+		}
+
+		int precedence() {
+			return PRIMARY;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	static final class Negation extends Expression {
+
+		private final Expression operand;
+
+		Negation(Expression operand) {
+			this.operand = operand;
+		}
+
+		public double evaluate(double x, double y) {
+			return -operand.evaluate(x, y);
+		}
+
+		public MethodHandle compile() {
+			return MethodHandles.filterReturnValue(operand.compile(), Operations.handle("negate", UNARY));
+		}
+
+		void generate(BytecodeWriter code) {
+
+			operand.generate(code);
+			code.negate();
+		}
+
+		int stackSize() {
+			return operand.stackSize();
+		}
+
+		public void appendMathML(StringBuilder mathML) {
+
+			mathML.append("<mo>-</mo>");
+			appendOperand(mathML, operand, UNARY_MINUS + 1);
+		}
+
+		int precedence() {
+			return UNARY_MINUS;
+		}
+
+		@Override
+		public String toString() {
+			return "-" + parenthesize(operand, UNARY_MINUS + 1);
+		}
+	}
+
+	static final class BinaryOperation extends Expression {
+
+		private final char operator;
+		private final Expression left;
+		private final Expression right;
+
+		BinaryOperation(char operator, Expression left, Expression right) {
+
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+
+		public double evaluate(double x, double y) {
+
+			double a = left.evaluate(x, y);
+			double b = right.evaluate(x, y);
+			switch(operator) {
+				case '+': return a + b;
+				case '-': return a - b;
+				case '*': return a * b;
+				case '/': return a / b;
+				default: return Math.pow(a, b);
+			}
+		}
+
+		public MethodHandle compile() {
+
+			MethodHandle operation;
+			switch(operator) {
+				case '+': operation = Operations.handle("add", BINARY); break;
+				case '-': operation = Operations.handle("subtract", BINARY); break;
+				case '*': operation = Operations.handle("multiply", BINARY); break;
+				case '/': operation = Operations.handle("divide", BINARY); break;
+				default: operation = Operations.handle(Math.class, "pow", BINARY);
+			}
+
+			// (x, y, x, y) -> operation(left(x, y), right(x, y)), then both pairs are bound to the same (x, y)
+			MethodHandle combined = MethodHandles.collectArguments(operation, 0, left.compile());
+			combined = MethodHandles.collectArguments(combined, 2, right.compile());
+			return MethodHandles.permuteArguments(combined, TYPE, 0, 1, 0, 1);
+		}
+
+		void generate(BytecodeWriter code) {
+
+			left.generate(code);
+			right.generate(code);
+			switch(operator) {
+				case '+': code.arithmetic(DADD); break;
+				case '-': code.arithmetic(DSUB); break;
+				case '*': code.arithmetic(DMUL); break;
+				case '/': code.arithmetic(DDIV); break;
+				default: code.invokeStatic(Math.class, "pow", "(DD)D");
+			}
+		}
+
+		int stackSize() {
+			// left value stays on the stack while right one is computed
+			return Math.max(left.stackSize(), 2 + right.stackSize());
+		}
+
+		public void appendMathML(StringBuilder mathML) {
+
+			if(operator == '/') {
+				mathML.append("<mfrac><mrow>");
+				left.appendMathML(mathML);
+				mathML.append("</mrow><mrow>");
+				right.appendMathML(mathML);
+				mathML.append("</mrow></mfrac>");
+			}
+			else if(operator == '^') {
+				mathML.append("<msup><mrow>");
+				appendOperand(mathML, left, POWER + 1);
+				mathML.append("</mrow><mrow>");
+				right.appendMathML(mathML);
+				mathML.append("</mrow></msup>");
+			}
+			else {
+				appendOperand(mathML, left, precedence());
+				mathML.append("<mo>").append(operator == '*' ? "&#x22C5;" : String.valueOf(operator)).append("</mo>");
+				appendOperand(mathML, right, precedence() + 1);
+			}
+		}
+
+		int precedence() {
+
+			switch(operator) {
+				case '+':
+				case '-': return ADDITIVE;
+				case '*':
+				case '/': return MULTIPLICATIVE;
+				default: return POWER;
+			}
+		}
+
+		@Override
+		public String toString() {
+
+			// power is right-associative, other operators are left-associative
+			if(operator == '^')
+				return parenthesize(left, POWER + 1) + " ^ " + parenthesize(right, POWER);
+			return parenthesize(left, precedence()) + " " + operator + " " + parenthesize(right, precedence() + 1);
+		}
+	}
+
+	static final class FunctionCall extends Expression {
+
+		private final Function function;
+		private final Expression argument;
+
+		FunctionCall(Function function, Expression argument) {
+
+			this.function = function;
+			this.argument = argument;
+		}
+
+		public double evaluate(double x, double y) {
+			return function.apply(argument.evaluate(x, y));
+		}
+
+		public MethodHandle compile() {
+			return MethodHandles.filterReturnValue(argument.compile(), Operations.handle(Math.class, function.getMethodName(), UNARY));
+		}
+
+		void generate(BytecodeWriter code) {
+
+			argument.generate(code);
+			code.invokeStatic(Math.class, function.getMethodName(), "(D)D");
+		}
+
+		int stackSize() {
+			return argument.stackSize();
+		}
+
+		public void appendMathML(StringBuilder mathML) {
+
+			if(function == Function.SQRT) {
+				mathML.append("<msqrt>");
+				argument.appendMathML(mathML);
+				mathML.append("</msqrt>");
+			}
+			else if(function == Function.ABS) {
+				mathML.append("<mo>|</mo>");
+				argument.appendMathML(mathML);
+				mathML.append("<mo>|</mo>");
+			}
+			else {
+				mathML.append("<mi>").append(function.getName()).append("</mi><mo>&#x2061;</mo><mrow><mo>(</mo>");
+				argument.appendMathML(mathML);
+				mathML.append("<mo>)</mo></mrow>");
+			}
+		}
+
+		int precedence() {
+			return PRIMARY;
+		}
+
+		@Override
+		public String toString() {
+			return function.getName() + "(" + argument + ")";
+		}
+	}
+
+	static String parenthesize(Expression expression, int minPrecedence) {
+		return expression.precedence() < minPrecedence ? "(" + expression + ")" : expression.toString();
+	}
+
+	static void appendOperand(StringBuilder mathML, Expression expression, int minPrecedence) {
+
+		if(expression.precedence() < minPrecedence) {
+			mathML.append("<mrow><mo>(</mo>");
+			expression.appendMathML(mathML);
+			mathML.append("<mo>)</mo></mrow>");
+		}
+		else
+			expression.appendMathML(mathML);
+	}
+}
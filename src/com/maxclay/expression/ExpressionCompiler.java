@@ -0,0 +1,70 @@
+package com.maxclay.expression;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiles expressions entered by user and caches compiled functions by expression text,
+ * so solving the same equation again doesn't parse and compile it again.
+ * Only {@link #CACHE_SIZE} recently used expressions are kept. Generated classes of evicted expressions are unloaded
+ * on Java 15 and later only, where they are hidden classes; on Java 9 - 14 they live as long as the application.
+ */
+public final class ExpressionCompiler {
+
+	/**
+	 * Expression of default differential equation.
+	 */
+	public static final String DEFAULT_EXPRESSION = "y - 2*x/y";
+
+	/**
+	 * Maximal number of compiled expressions kept in cache.
+	 */
+	public static final int CACHE_SIZE = 256;
+
+	private static final Map<String, CompiledExpression> CACHE = new LinkedHashMap<String, CompiledExpression>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private ExpressionCompiler() {
+	}
+
+	/**
+	 * Parses and compiles expression, or returns previously compiled one with the same text.
+	 * @param text - expression f(x, y), e.g. "y - 2*x/y". Leading and trailing spaces are ignored.
+	 * @return compiled right-hand side.
+	 * @throws ExpressionParseException if text is not a valid expression.
+	 */
+	public static CompiledExpression compile(String text) {
+
+		String key = text.trim();
+		CompiledExpression compiled;
+		synchronized(CACHE) {
+			compiled = CACHE.get(key);
+		}
+		if(compiled == null) {
+			// parse outside of the lock, so other expressions are not blocked by compilation
+			compiled = new CompiledExpression(key, ExpressionParser.parse(key));
+			synchronized(CACHE) {
+				CompiledExpression previous = CACHE.putIfAbsent(key, compiled);
+				if(previous != null)
+					compiled = previous;
+			}
+		}
+		return compiled;
+	}
+
+	/**
+	 * Checks whether expression is the same as {@link #DEFAULT_EXPRESSION}, so analytical solution is known.
+	 * @param compiled - compiled expression.
+	 * @return true for default equation written in any equivalent form with the same expression tree.
+	 */
+	public static boolean isDefaultEquation(CompiledExpression compiled) {
+		return compiled.toString().equals(compile(DEFAULT_EXPRESSION).toString());
+	}
+}
@@ -0,0 +1,29 @@
+package com.maxclay.expression;
+
+/**
+ * Thrown when expression text can't be parsed.
+ */
+public class ExpressionParseException extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int position;
+
+	/**
+	 * @param message - error description.
+	 * @param position - index of the character the error was found at.
+	 */
+	public ExpressionParseException(String message, int position) {
+
+		super(message + " at position " + (position + 1));
+		this.position = position;
+	}
+
+	/**
+	 *
+	 * @return index of the character the error was found at.
+	 */
+	public int getPosition() {
+		return position;
+	}
+}
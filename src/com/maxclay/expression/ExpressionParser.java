@@ -0,0 +1,173 @@
+package com.maxclay.expression;
+
+/**
+ * Recursive descent parser of expressions f(x, y).<br/>
+ * Grammar:
+ * <pre>
+ * expression := term (('+' | '-') term)*
+ * term       := unary (('*' | '/') unary)*
+ * unary      := '-' unary | power
+ * power      := primary ('^' unary)?
+ * primary    := number | 'x' | 'y' | 'pi' | 'e' | function '(' expression ')' | '(' expression ')'
+ * </pre>
+ * Supported functions are sin, cos, tan, exp, ln, log, sqrt and abs.
+ */
+public class ExpressionParser {
+
+	private final String text;
+	private int position;
+
+	private ExpressionParser(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * Parses expression text.
+	 * @param text - expression, e.g. "y - 2*x/y".
+	 * @return expression tree.
+	 * @throws ExpressionParseException if text is not a valid expression.
+	 */
+	public static Expression parse(String text) {
+
+		ExpressionParser parser = new ExpressionParser(text);
+		Expression expression = parser.parseExpression();
+		parser.skipSpaces();
+		if(parser.position < text.length())
+			throw new ExpressionParseException("Unexpected '" + text.charAt(parser.position) + "'", parser.position);
+		return expression;
+	}
+
+	private Expression parseExpression() {
+
+		Expression expression = parseTerm();
+		while(true) {
+			if(accept('+'))
+				expression = Expression.binary('+', expression, parseTerm());
+			else if(accept('-'))
+				expression = Expression.binary('-', expression, parseTerm());
+			else
+				return expression;
+		}
+	}
+
+	private Expression parseTerm() {
+
+		Expression expression = parseUnary();
+		while(true) {
+			if(accept('*'))
+				expression = Expression.binary('*', expression, parseUnary());
+			else if(accept('/'))
+				expression = Expression.binary('/', expression, parseUnary());
+			else
+				return expression;
+		}
+	}
+
+	private Expression parseUnary() {
+
+		if(accept('-'))
+			return Expression.negate(parseUnary());
+		return parsePower();
+	}
+
+	private Expression parsePower() {
+
+		Expression base = parsePrimary();
+		if(accept('^'))
+			return Expression.binary('^', base, parseUnary());
+		return base;
+	}
+
+	private Expression parsePrimary() {
+
+		skipSpaces();
+		if(position == text.length())
+			throw new ExpressionParseException("Unexpected end of expression", position);
+
+		char c = text.charAt(position);
+		if(accept('(')) {
+			Expression expression = parseExpression();
+			expect(')');
+			return expression;
+		}
+		if(Character.isDigit(c) || c == '.')
+			return parseNumber();
+		if(Character.isLetter(c))
+			return parseIdentifier();
+
+		throw new ExpressionParseException("Unexpected '" + c + "'", position);
+	}
+
+	private Expression parseNumber() {
+
+		int start = position;
+		while(position < text.length() && (Character.isDigit(text.charAt(position)) || text.charAt(position) == '.'))
+			position++;
+
+		// exponent, e.g. 1e-5
+		if(position < text.length() && (text.charAt(position) == 'e' || text.charAt(position) == 'E')) {
+			int exponent = position + 1;
+			if(exponent < text.length() && (text.charAt(exponent) == '+' || text.charAt(exponent) == '-'))
+				exponent++;
+			if(exponent < text.length() && Character.isDigit(text.charAt(exponent))) {
+				position = exponent;
+				while(position < text.length() && Character.isDigit(text.charAt(position)))
+					position++;
+			}
+		}
+
+		try {
+			return Expression.constant(Double.parseDouble(text.substring(start, position)));
+		} catch (NumberFormatException e) {
+			throw new ExpressionParseException("Invalid number '" + text.substring(start, position) + "'", start);
+		}
+	}
+
+	private Expression parseIdentifier() {
+
+		int start = position;
+		while(position < text.length() && Character.isLetterOrDigit(text.charAt(position)))
+			position++;
+		String name = text.substring(start, position);
+
+		switch(name) {
+			case "x":
+			case "y":
+				return Expression.variable(name);
+			case "pi":
+				return Expression.constant(Math.PI);
+			case "e":
+				return Expression.constant(Math.E);
+		}
+
+		if(!Function.isFunction(name))
+			throw new ExpressionParseException("Unknown identifier '" + name + "'", start);
+
+		expect('(');
+		Expression argument = parseExpression();
+		expect(')');
+		return Expression.function(name, argument);
+	}
+
+	private boolean accept(char c) {
+
+		skipSpaces();
+		if(position < text.length() && text.charAt(position) == c) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(char c) {
+
+		if(!accept(c))
+			throw new ExpressionParseException("'" + c + "' expected", position);
+	}
+
+	private void skipSpaces() {
+
+		while(position < text.length() && Character.isWhitespace(text.charAt(position)))
+			position++;
+	}
+}
@@ -0,0 +1,74 @@
+package com.maxclay.expression;
+
+/**
+ * Functions of one argument that can be used in expressions.
+ */
+enum Function {
+
+	SIN("sin", "sin"),
+	COS("cos", "cos"),
+	TAN("tan", "tan"),
+	EXP("exp", "exp"),
+	LN("ln", "log"),
+	LOG("log", "log"),
+	SQRT("sqrt", "sqrt"),
+	ABS("abs", "abs");
+
+	private final String name;
+	private final String methodName;
+
+	Function(String name, String methodName) {
+
+		this.name = name;
+		this.methodName = methodName;
+	}
+
+	/**
+	 *
+	 * @return name used in expressions.
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 *
+	 * @return name of {@link Math} method computing the function.
+	 */
+	String getMethodName() {
+		return methodName;
+	}
+
+	double apply(double argument) {
+
+		switch(this) {
+			case SIN: return Math.sin(argument);
+			case COS: return Math.cos(argument);
+			case TAN: return Math.tan(argument);
+			case EXP: return Math.exp(argument);
+			case SQRT: return Math.sqrt(argument);
+			case ABS: return Math.abs(argument);
+			default: return Math.log(argument);
+		}
+	}
+
+	static boolean isFunction(String name) {
+		return find(name) != null;
+	}
+
+	static Function forName(String name) {
+
+		Function function = find(name);
+		if(function == null)
+			throw new IllegalArgumentException("Unknown function " + name);
+		return function;
+	}
+
+	private static Function find(String name) {
+
+		for(Function function : values())
+			if(function.name.equals(name))
+				return function;
+		return null;
+	}
+}
@@ -0,0 +1,106 @@
+package com.maxclay.expression;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Turns expression into {@link ScalarFunction}.<br/>
+ * On Java 15 and later expression is compiled to bytecode of a hidden class, on Java 9 - 14 the class is defined
+ * with Lookup.defineClass. Hidden classes are unloaded once their function is unreachable, classes defined with
+ * defineClass belong to the class loader of this class and are never unloaded. Both are looked up reflectively,
+ * since the project targets Java 8, where expression is compiled to a tree of method handles instead.
+ */
+final class FunctionLoader {
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+	private static final AtomicInteger COUNTER = new AtomicInteger();
+
+	private static final Method DEFINE_HIDDEN_CLASS;
+	private static final Object NO_OPTIONS;
+	private static final Method LOOKUP_CLASS;
+	private static final Method DEFINE_CLASS;
+
+	static {
+
+		Method defineHiddenClass = null;
+		Object noOptions = null;
+		Method lookupClass = null;
+		Method defineClass = null;
+		try {
+			Class<?> optionClass = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+			noOptions = Array.newInstance(optionClass, 0);
+			defineHiddenClass = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, noOptions.getClass());
+			lookupClass = MethodHandles.Lookup.class.getMethod("lookupClass");
+		} catch (ReflectiveOperationException e) {
+			defineHiddenClass = null;
+		}
+		try {
+			defineClass = MethodHandles.Lookup.class.getMethod("defineClass", byte[].class);
+		} catch (NoSuchMethodException e) {
+			defineClass = null;
+		}
+
+		DEFINE_HIDDEN_CLASS = defineHiddenClass;
+		NO_OPTIONS = noOptions;
+		LOOKUP_CLASS = lookupClass;
+		DEFINE_CLASS = defineClass;
+	}
+
+	private FunctionLoader() {
+	}
+
+	static ScalarFunction load(Expression expression) {
+
+		if(DEFINE_HIDDEN_CLASS != null || DEFINE_CLASS != null) {
+			try {
+				return newInstance(defineClass(expression));
+			} catch (ReflectiveOperationException | LinkageError e) {
+				// fall back to method handles
+			}
+		}
+		return new HandleFunction(expression.compile());
+	}
+
+	private static Class<?> defineClass(Expression expression) throws ReflectiveOperationException {
+
+		String className = FunctionLoader.class.getPackage().getName().replace('.', '/') + "/CompiledFunction" + COUNTER.incrementAndGet();
+		byte[] bytes = BytecodeWriter.write(className, expression);
+
+		if(DEFINE_HIDDEN_CLASS != null) {
+			Object lookup = DEFINE_HIDDEN_CLASS.invoke(LOOKUP, bytes, true, NO_OPTIONS);
+			return (Class<?>) LOOKUP_CLASS.invoke(lookup);
+		}
+		return (Class<?>) DEFINE_CLASS.invoke(LOOKUP, (Object) bytes);
+	}
+
+	private static ScalarFunction newInstance(Class<?> functionClass) throws ReflectiveOperationException {
+		return (ScalarFunction) functionClass.getConstructor().newInstance();
+	}
+
+	/**
+	 * Function computed by method handle tree, used when classes can't be defined at runtime.
+	 */
+	private static final class HandleFunction implements ScalarFunction {
+
+		private final MethodHandle handle;
+
+		HandleFunction(MethodHandle handle) {
+			this.handle = handle.asType(MethodType.methodType(double.class, double.class, double.class));
+		}
+
+		public double apply(double x, double y) {
+
+			try {
+				return (double) handle.invokeExact(x, y);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
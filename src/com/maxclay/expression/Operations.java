@@ -0,0 +1,49 @@
+package com.maxclay.expression;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Arithmetic operations expression trees are compiled to.
+ */
+final class Operations {
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private Operations() {
+	}
+
+	static double add(double a, double b) {
+		return a + b;
+	}
+
+	static double subtract(double a, double b) {
+		return a - b;
+	}
+
+	static double multiply(double a, double b) {
+		return a * b;
+	}
+
+	static double divide(double a, double b) {
+		return a / b;
+	}
+
+	static double negate(double a) {
+		return -a;
+	}
+
+	static MethodHandle handle(String name, MethodType type) {
+		return handle(Operations.class, name, type);
+	}
+
+	static MethodHandle handle(Class<?> owner, String name, MethodType type) {
+
+		try {
+			return LOOKUP.findStatic(owner, name, type);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
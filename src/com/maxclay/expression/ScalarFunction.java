@@ -0,0 +1,9 @@
+package com.maxclay.expression;
+
+/**
+ * Compiled expression f(x, y).
+ */
+interface ScalarFunction {
+
+	double apply(double x, double y);
+}
@@ -0,0 +1,177 @@
+package com.maxclay.formula;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.imageio.ImageIO;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+
+/**
+ * Cache of rendered formula images keyed by MathML source.<br/>
+ * Every formula is rendered once, in background. Rendered images are also stored as PNG files in
+ * {@link #getDirectory() cache directory}, so on the next start they are loaded without parsing MathML
+ * and without loading Xerces and JEuclid at all.
+ */
+public final class FormulaImageCache {
+
+	/**
+	 * System property to override cache directory.
+	 */
+	public static final String DIRECTORY_PROPERTY = "cauchyproblem.formulaCache";
+
+	private static final FormulaImageCache INSTANCE = new FormulaImageCache(defaultDirectory());
+
+	private final Path directory;
+	private final ConcurrentMap<String, CompletableFuture<Image>> images;
+	private final ExecutorService executor;
+
+	private FormulaImageCache(Path directory) {
+
+		this.directory = directory;
+		images = new ConcurrentHashMap<>();
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+			public Thread newThread(Runnable runnable) {
+
+				Thread thread = new Thread(runnable, "formula-renderer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public static FormulaImageCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 *
+	 * @return directory rendered PNG files are stored in.
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Finds image of the formula, rendering it in background if it is not cached yet.
+	 * @param mathML - MathML source.
+	 * @return future completed with the image.
+	 */
+	public CompletableFuture<Image> getImage(final String mathML) {
+
+		CompletableFuture<Image> image = images.get(mathML);
+		if(image != null)
+			return image;
+
+		CompletableFuture<Image> created = new CompletableFuture<>();
+		image = images.putIfAbsent(mathML, created);
+		if(image != null)
+			return image;
+
+		executor.execute(new Runnable() {
+
+			public void run() {
+
+				try {
+					created.complete(load(mathML));
+				} catch (Exception e) {
+					images.remove(mathML, created);
+					created.completeExceptionally(e);
+				}
+			}
+		});
+
+		return created;
+	}
+
+	/**
+	 * Converts AWT image to JavaFX image, copying all pixels at once.
+	 * @param bf - AWT image.
+	 * @return JavaFX image.
+	 */
+	public static WritableImage toFXImage(BufferedImage bf) {
+
+		int width = bf.getWidth();
+		int height = bf.getHeight();
+		int[] argb = bf.getRGB(0, 0, width, height, null, 0, width);
+
+		WritableImage image = new WritableImage(width, height);
+		PixelWriter pw = image.getPixelWriter();
+		pw.setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), IntBuffer.wrap(argb), width);
+		return image;
+	}
+
+	private Image load(String mathML) throws IOException {
+
+		Path file = directory.resolve(hash(mathML) + ".png");
+		if(Files.isRegularFile(file)) {
+
+			try(InputStream in = Files.newInputStream(file)) {
+				Image image = new Image(in);
+				if(!image.isError())
+					return image;
+			}
+		}
+
+		BufferedImage rendered = FormulaRenderer.render(mathML);
+		store(rendered, file);
+		return toFXImage(rendered);
+	}
+
+	private void store(BufferedImage image, Path file) {
+
+		try {
+			Files.createDirectories(directory);
+			Path temp = Files.createTempFile(directory, "formula", ".tmp");
+			try {
+				ImageIO.write(image, "png", temp.toFile());
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch (IOException e) {
+			// the image is still cached in memory
+			e.printStackTrace();
+		}
+	}
+
+	private static String hash(String mathML) {
+
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(mathML.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for(byte b : digest)
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Path defaultDirectory() {
+
+		String directory = System.getProperty(DIRECTORY_PROPERTY);
+		if(directory != null)
+			return Paths.get(directory);
+		return Paths.get(System.getProperty("user.home"), ".cauchyproblem", "formula-cache");
+	}
+}
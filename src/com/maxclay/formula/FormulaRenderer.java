@@ -0,0 +1,48 @@
+package com.maxclay.formula;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import com.sun.org.apache.xerces.internal.parsers.DOMParser;
+
+import net.sourceforge.jeuclid.context.LayoutContextImpl;
+import net.sourceforge.jeuclid.converter.Converter;
+
+/**
+ * Renders MathML with JEuclid. Kept apart from {@link FormulaImageCache}, so that Xerces and JEuclid
+ * classes are loaded only when a formula is not found in the cache.
+ */
+@SuppressWarnings("restriction")
+final class FormulaRenderer {
+
+	private FormulaRenderer() {
+	}
+
+	/**
+	 * @param mathML - MathML source.
+	 * @return rendered formula.
+	 * @throws IOException if formula can't be parsed or rendered.
+	 */
+	static BufferedImage render(String mathML) throws IOException {
+
+		DOMParser parser = new DOMParser();
+		try {
+			parser.parse(new InputSource(new StringReader(mathML)));
+		} catch (SAXException e) {
+			throw new IOException("Invalid MathML", e);
+		}
+
+		Document doc = parser.getDocument();
+		Converter jeuclidConverter = Converter.getInstance();
+		BufferedImage image = jeuclidConverter.render(doc, LayoutContextImpl.getDefaultLayoutContext());
+		if(image == null)
+			throw new IOException("MathML can't be rendered");
+
+		return image;
+	}
+}
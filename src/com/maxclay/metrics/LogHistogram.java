@@ -0,0 +1,126 @@
+package com.maxclay.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of positive values with one bucket per power of two: value v falls into bucket of
+ * 2^e <mo>&#x2264;</mo> v &lt; 2^(e + 1), so quantiles are known within factor of two over the whole double range
+ * with fixed memory.<br/>
+ * Values are usually counted in a local long[] by {@link #bucket(double)} and {@link #add(long[]) added} in bulk,
+ * so the shared counters are not touched on every recorded value.
+ */
+public final class LogHistogram {
+
+	/**
+	 * Exponent of the lowest bucket. Smaller values, zero and negative values fall into it as well.
+	 */
+	public static final int MIN_EXPONENT = -64;
+
+	/**
+	 * Exponent of the highest bucket. Greater values fall into it as well.
+	 */
+	public static final int MAX_EXPONENT = 63;
+
+	/**
+	 * Number of buckets.
+	 */
+	public static final int BUCKETS_NUM = MAX_EXPONENT - MIN_EXPONENT + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS_NUM);
+
+	/**
+	 * @param value - value to find bucket of.
+	 * @return index of the bucket.
+	 */
+	public static int bucket(double value) {
+
+		if(!(value > 0))
+			return 0;
+		int exponent = Math.getExponent(value);
+		return Math.max(MIN_EXPONENT, Math.min(MAX_EXPONENT, exponent)) - MIN_EXPONENT;
+	}
+
+	/**
+	 * @param bucket - index of the bucket.
+	 * @return lower bound of the bucket values.
+	 */
+	public static double lowerBound(int bucket) {
+		return Math.scalb(1.0, bucket + MIN_EXPONENT);
+	}
+
+	/**
+	 * Records single value.
+	 * @param value - value to record.
+	 */
+	public void record(double value) {
+		counts.incrementAndGet(bucket(value));
+	}
+
+	/**
+	 * Adds counts collected locally.
+	 * @param localCounts - number of values in each bucket, {@link #BUCKETS_NUM} elements.
+	 */
+	public void add(long[] localCounts) {
+
+		for(int i = 0; i < BUCKETS_NUM; i++)
+			if(localCounts[i] != 0)
+				counts.addAndGet(i, localCounts[i]);
+	}
+
+	/**
+	 *
+	 * @return number of recorded values.
+	 */
+	public long getCount() {
+
+		long count = 0;
+		for(int i = 0; i < BUCKETS_NUM; i++)
+			count += counts.get(i);
+		return count;
+	}
+
+	/**
+	 * Finds value below which given fraction of recorded values lies, with accuracy of one bucket.
+	 * @param quantile - fraction from 0 to 1, e.g. 0.99.
+	 * @return upper bound of the bucket the quantile falls into, or NaN if histogram is empty.
+	 */
+	public double getQuantile(double quantile) {
+
+		long[] snapshot = getCounts();
+		long total = 0;
+		for(long count : snapshot)
+			total += count;
+		if(total == 0)
+			return Double.NaN;
+
+		long rank = (long) Math.ceil(quantile * total);
+		long seen = 0;
+		for(int i = 0; i < BUCKETS_NUM; i++) {
+			seen += snapshot[i];
+			if(seen >= rank && snapshot[i] > 0)
+				return lowerBound(i + 1);
+		}
+		return lowerBound(BUCKETS_NUM);
+	}
+
+	/**
+	 *
+	 * @return copy of bucket counts.
+	 */
+	public long[] getCounts() {
+
+		long[] snapshot = new long[BUCKETS_NUM];
+		for(int i = 0; i < BUCKETS_NUM; i++)
+			snapshot[i] = counts.get(i);
+		return snapshot;
+	}
+
+	/**
+	 * Removes all recorded values.
+	 */
+	public void reset() {
+
+		for(int i = 0; i < BUCKETS_NUM; i++)
+			counts.set(i, 0);
+	}
+}
@@ -0,0 +1,83 @@
+package com.maxclay.metrics;
+
+import java.util.Arrays;
+
+import com.maxclay.model.CauchyProblem;
+import com.maxclay.model.SolverListener;
+
+/**
+ * Records solver events into {@link SolverMetrics}.<br/>
+ * Steps are counted in plain fields and arrays owned by the listener and added to the shared metrics every
+ * {@link #FLUSH_STEPS_NUM} steps and at the end of the run, so each step costs a few increments without
+ * synchronization. One listener must be used by one solver thread at a time; any number of listeners may
+ * report to the same metrics.
+ */
+public class MetricsListener implements SolverListener {
+
+	/**
+	 * Number of steps after which locally collected counts are added to the shared metrics.
+	 */
+	public static final int FLUSH_STEPS_NUM = 4096;
+
+	private final SolverMetrics metrics;
+
+	private final long[] stepSizeCounts = new long[LogHistogram.BUCKETS_NUM];
+	private final long[] errorEstimateCounts = new long[LogHistogram.BUCKETS_NUM];
+	private long acceptedStepsNum;
+	private long rejectedStepsNum;
+	private int pendingStepsNum;
+
+	private long startTime;
+
+	/**
+	 * @param metrics - metrics to record to.
+	 */
+	public MetricsListener(SolverMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public void onStart(String methodName, CauchyProblem problem) {
+		startTime = System.nanoTime();
+	}
+
+	public void onStep(double x, double h, double[] y, double[][] stages, double error, boolean accepted) {
+
+		if(accepted) {
+			acceptedStepsNum++;
+			stepSizeCounts[LogHistogram.bucket(h)]++;
+		}
+		else
+			rejectedStepsNum++;
+
+		// fixed-step methods don't estimate error
+		if(!Double.isNaN(error))
+			errorEstimateCounts[LogHistogram.bucket(error)]++;
+
+		if(++pendingStepsNum == FLUSH_STEPS_NUM)
+			flush();
+	}
+
+	public void onFinish(double[] valuesX, double[] valuesY, int acceptedStepsNum, int rejectedStepsNum, int functionEvaluationsNum) {
+
+		flush();
+		metrics.addRun(System.nanoTime() - startTime, functionEvaluationsNum);
+	}
+
+	private void flush() {
+
+		metrics.add(acceptedStepsNum, rejectedStepsNum, stepSizeCounts, errorEstimateCounts);
+		acceptedStepsNum = 0;
+		rejectedStepsNum = 0;
+		pendingStepsNum = 0;
+		Arrays.fill(stepSizeCounts, 0);
+		Arrays.fill(errorEstimateCounts, 0);
+	}
+
+	/**
+	 *
+	 * @return metrics the listener records to.
+	 */
+	public SolverMetrics getMetrics() {
+		return metrics;
+	}
+}
@@ -0,0 +1,192 @@
+package com.maxclay.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and histograms aggregated over runs of any number of solvers, possibly on different threads.<br/>
+ * Solvers report to metrics through {@link MetricsListener}, which counts steps locally and adds them in bulk,
+ * so recording can stay on without slowing down the integration loop.
+ * Metrics obtained by {@link #forName(String)} are registered as platform MXBeans.
+ */
+public final class SolverMetrics implements SolverMetricsMXBean {
+
+	/**
+	 * Domain of registered MXBeans.
+	 */
+	public static final String DOMAIN = "com.maxclay";
+
+	private static final ConcurrentMap<String, SolverMetrics> REGISTERED = new ConcurrentHashMap<>();
+
+	private final String name;
+
+	private final LongAdder runsNum = new LongAdder();
+	private final LongAdder acceptedStepsNum = new LongAdder();
+	private final LongAdder rejectedStepsNum = new LongAdder();
+	private final LongAdder functionEvaluationsNum = new LongAdder();
+	private final LongAdder runNanos = new LongAdder();
+
+	private final LogHistogram stepSizes = new LogHistogram();
+	private final LogHistogram errorEstimates = new LogHistogram();
+	private final LogHistogram runTimes = new LogHistogram();
+
+	/**
+	 * Creates metrics that are not registered in JMX.
+	 * @param name - name of the metrics.
+	 */
+	public SolverMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Finds metrics with given name, creating and registering them as MXBean on the first call.
+	 * @param name - name of the metrics, usually the method name.
+	 * @return shared metrics.
+	 */
+	public static SolverMetrics forName(String name) {
+
+		SolverMetrics metrics = REGISTERED.get(name);
+		if(metrics == null) {
+			SolverMetrics created = new SolverMetrics(name);
+			metrics = REGISTERED.putIfAbsent(name, created);
+			if(metrics == null) {
+				metrics = created;
+				metrics.register();
+			}
+		}
+		return metrics;
+	}
+
+	private void register() {
+
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(this, new ObjectName(DOMAIN + ":type=SolverMetrics,name=" + ObjectName.quote(name)));
+		} catch (JMException | SecurityException e) {
+			// metrics are still collected and available through getters
+		}
+	}
+
+	/**
+	 * Adds counts collected by a listener.
+	 */
+	void add(long acceptedStepsNum, long rejectedStepsNum, long[] stepSizeCounts, long[] errorEstimateCounts) {
+
+		this.acceptedStepsNum.add(acceptedStepsNum);
+		this.rejectedStepsNum.add(rejectedStepsNum);
+		stepSizes.add(stepSizeCounts);
+		errorEstimates.add(errorEstimateCounts);
+	}
+
+	/**
+	 * Adds finished run.
+	 */
+	void addRun(long nanos, long functionEvaluationsNum) {
+
+		runsNum.increment();
+		runNanos.add(nanos);
+		this.functionEvaluationsNum.add(functionEvaluationsNum);
+		runTimes.record(nanos / 1e9);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getRunsNum() {
+		return runsNum.sum();
+	}
+
+	public long getAcceptedStepsNum() {
+		return acceptedStepsNum.sum();
+	}
+
+	public long getRejectedStepsNum() {
+		return rejectedStepsNum.sum();
+	}
+
+	public long getFunctionEvaluationsNum() {
+		return functionEvaluationsNum.sum();
+	}
+
+	public double getTotalRunTime() {
+		return runNanos.sum() / 1e9;
+	}
+
+	public double getMeanRunTime() {
+
+		long runs = runsNum.sum();
+		return runs == 0 ? Double.NaN : runNanos.sum() / 1e9 / runs;
+	}
+
+	public double getRunTimeP99() {
+		return runTimes.getQuantile(0.99);
+	}
+
+	public double getStepSizeMedian() {
+		return stepSizes.getQuantile(0.5);
+	}
+
+	public double getStepSizeP1() {
+		return stepSizes.getQuantile(0.01);
+	}
+
+	public double getErrorEstimateMedian() {
+		return errorEstimates.getQuantile(0.5);
+	}
+
+	public double getErrorEstimateP99() {
+		return errorEstimates.getQuantile(0.99);
+	}
+
+	public long[] getStepSizeHistogram() {
+		return stepSizes.getCounts();
+	}
+
+	public long[] getErrorEstimateHistogram() {
+		return errorEstimates.getCounts();
+	}
+
+	/**
+	 *
+	 * @return histogram of accepted step sizes.
+	 */
+	public LogHistogram getStepSizes() {
+		return stepSizes;
+	}
+
+	/**
+	 *
+	 * @return histogram of error estimates.
+	 */
+	public LogHistogram getErrorEstimates() {
+		return errorEstimates;
+	}
+
+	public void reset() {
+
+		runsNum.reset();
+		acceptedStepsNum.reset();
+		rejectedStepsNum.reset();
+		functionEvaluationsNum.reset();
+		runNanos.reset();
+		stepSizes.reset();
+		errorEstimates.reset();
+		runTimes.reset();
+	}
+
+	@Override
+	public String toString() {
+
+		return name + ": runs: " + getRunsNum() + ", accepted steps: " + getAcceptedStepsNum()
+			+ ", rejected steps: " + getRejectedStepsNum() + ", function evaluations: " + getFunctionEvaluationsNum()
+			+ ", run time: " + getTotalRunTime() + " s, median step: " + getStepSizeMedian()
+			+ ", median error estimate: " + getErrorEstimateMedian();
+	}
+}
@@ -0,0 +1,97 @@
+package com.maxclay.metrics;
+
+/**
+ * Management interface of {@link SolverMetrics}, shown by JMX clients such as JConsole or VisualVM
+ * under "com.maxclay:type=SolverMetrics".
+ */
+public interface SolverMetricsMXBean {
+
+	/**
+	 *
+	 * @return name of the metrics, usually the method name.
+	 */
+	String getName();
+
+	/**
+	 *
+	 * @return number of finished runs.
+	 */
+	long getRunsNum();
+
+	/**
+	 *
+	 * @return total number of accepted steps.
+	 */
+	long getAcceptedStepsNum();
+
+	/**
+	 *
+	 * @return total number of rejected steps.
+	 */
+	long getRejectedStepsNum();
+
+	/**
+	 *
+	 * @return total number of right-hand side evaluations of finished runs.
+	 */
+	long getFunctionEvaluationsNum();
+
+	/**
+	 *
+	 * @return total wall time of finished runs in seconds.
+	 */
+	double getTotalRunTime();
+
+	/**
+	 *
+	 * @return mean wall time of a run in seconds.
+	 */
+	double getMeanRunTime();
+
+	/**
+	 *
+	 * @return 99th percentile of run wall time in seconds, within factor of two.
+	 */
+	double getRunTimeP99();
+
+	/**
+	 *
+	 * @return median of accepted step sizes, within factor of two.
+	 */
+	double getStepSizeMedian();
+
+	/**
+	 *
+	 * @return 1st percentile of accepted step sizes, within factor of two.
+	 */
+	double getStepSizeP1();
+
+	/**
+	 *
+	 * @return median of error estimates of accepted and rejected steps, within factor of two.
+	 */
+	double getErrorEstimateMedian();
+
+	/**
+	 *
+	 * @return 99th percentile of error estimates, within factor of two.
+	 */
+	double getErrorEstimateP99();
+
+	/**
+	 *
+	 * @return number of accepted steps in each power of two bucket, see {@link LogHistogram}.
+	 */
+	long[] getStepSizeHistogram();
+
+	/**
+	 *
+	 * @return number of error estimates in each power of two bucket, see {@link LogHistogram}.
+	 */
+	long[] getErrorEstimateHistogram();
+
+	/**
+	 * Clears all counters and histograms.
+	 */
+	void reset();
+}
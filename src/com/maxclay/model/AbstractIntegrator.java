@@ -0,0 +1,178 @@
+package com.maxclay.model;
+
+import java.util.Optional;
+
+/**
+ * Base of integrators: keeps problem, output grid, step counters, trajectory and report,
+ * and sends start and finish events around {@link #solve(SolverListener) solving}.<br/>
+ * By default output grid consists of {@link CauchyProblem#getControlPointsNum() control points number}
+ * evenly spaced points covering whole interval, and solution is found at each of them by sampling
+ * the {@link #getTrajectory() trajectory} of accepted steps.
+ */
+public abstract class AbstractIntegrator implements Integrator {
+
+	protected final RightHandSide function;
+	protected final CauchyProblem problem;
+	protected final int dimension;
+
+	protected double[] valuesX;
+	protected double[] valuesY;
+	protected Trajectory trajectory;
+	protected boolean trajectoryRecording;
+
+	protected int acceptedStepsNum;
+	protected int rejectedStepsNum;
+	protected int functionEvaluationsNum;
+
+	private SolverListener listener;
+	private StringBuilder reportBuilder;
+
+	/**
+	 * @param function - right-hand side of the equation.
+	 * @param problem - interval, initial value, accuracy and number of control points.
+	 */
+	protected AbstractIntegrator(RightHandSide function, CauchyProblem problem) {
+
+		this.function = function;
+		this.problem = problem;
+		this.dimension = problem.getDimension();
+
+		valuesX = new double[problem.getControlPointsNum()];
+		valuesY = new double[problem.getControlPointsNum() * dimension];
+		trajectory = new Trajectory(dimension, Trajectory.DEFAULT_CAPACITY);
+		trajectoryRecording = true;
+		listener = NullSolverListener.INSTANCE;
+
+		fillArrayX(valuesX, findStep(problem.getLowerBoundary(), problem.getHigherBoundary(), problem.getControlPointsNum() - 1));
+	}
+
+	public void run(boolean generateReport) {
+
+		SolverListener listener = this.listener;
+		if(generateReport) {
+			reportBuilder = new StringBuilder();
+			listener = CompositeSolverListener.of(new ReportWriter(reportBuilder), listener);
+		}
+
+		listener.onStart(getMethodName(), getStartingProblem());
+
+		acceptedStepsNum = 0;
+		rejectedStepsNum = 0;
+		functionEvaluationsNum = 0;
+		solve(listener);
+
+		listener.onFinish(valuesX, valuesY, acceptedStepsNum, rejectedStepsNum, functionEvaluationsNum);
+	}
+
+	/**
+	 * Problem {@link SolverListener#onStart(String, CauchyProblem) reported} to listeners, whose lower boundary and
+	 * initial value are the point the first step starts at.
+	 * @return the problem, unless integration continues from another point.
+	 */
+	protected CauchyProblem getStartingProblem() {
+		return problem;
+	}
+
+	/**
+	 * Solves the problem over its whole interval and fills values of the output grid.
+	 * Counters are reset before the call.
+	 * @param listener - listener receiving steps.
+	 */
+	protected abstract void solve(SolverListener listener);
+
+	/**
+	 * Evaluates right-hand side, counting evaluations.
+	 */
+	protected void evaluate(double x, double[] y, double[] dydx) {
+
+		functionEvaluationsNum++;
+		function.evaluate(x, y, dydx);
+	}
+
+	/**
+	 * Sets 'x' values the solution is sampled at after {@link #run(boolean) run(boolean)}.
+	 * @param outputX - ascending x values within problem interval.
+	 */
+	public void setOutputGrid(double[] outputX) {
+
+		valuesX = outputX.clone();
+		valuesY = new double[valuesX.length * dimension];
+	}
+
+	public void setListener(SolverListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Specifies whether accepted steps are kept in memory. When recording is off, trajectory stays empty and
+	 * output grid values are not updated, so steps can only be received by {@link #setListener(SolverListener) listener},
+	 * e.g. {@link TrajectoryFileWriter}. This allows to solve problems whose solution doesn't fit in memory.
+	 * @param trajectoryRecording - true to record trajectory (default), false otherwise.
+	 */
+	public void setTrajectoryRecording(boolean trajectoryRecording) {
+		this.trajectoryRecording = trajectoryRecording;
+	}
+
+	/**
+	 * Replaces trajectory accepted steps are recorded to, e.g. with {@link OffHeapTrajectory} when solution
+	 * doesn't fit in the heap. Trajectory is cleared on each run.
+	 * @param trajectory - trajectory of the problem's dimension.
+	 */
+	public void setTrajectory(Trajectory trajectory) {
+
+		if(trajectory.getDimension() != dimension)
+			throw new IllegalArgumentException("Trajectory dimension must be " + dimension);
+		this.trajectory = trajectory;
+	}
+
+	public CauchyProblem getProblem() {
+		return problem;
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	/**
+	 *
+	 * @return steps that were actually accepted during last run.
+	 */
+	public Trajectory getTrajectory() {
+		return trajectory;
+	}
+
+	public int getAcceptedStepsNum() {
+		return acceptedStepsNum;
+	}
+
+	public int getRejectedStepsNum() {
+		return rejectedStepsNum;
+	}
+
+	public int getFunctionEvaluationsNum() {
+		return functionEvaluationsNum;
+	}
+
+	public Optional<String> getReport() {
+		return (reportBuilder != null) ? Optional.of(reportBuilder.toString()) : Optional.<String>empty();
+	}
+
+	public double[] getArrayX() {
+		return valuesX;
+	}
+
+	public double[] getArrayY() {
+		return valuesY;
+	}
+
+	protected void fillArrayX(double[] x, double h) {
+
+		x[0] = problem.getLowerBoundary();
+		for (int i = 1; i < x.length; i++)
+			x[i] = x[i - 1] + h;
+	}
+
+	protected static double findStep(double lowerBoundary, double higherBoundary, int stepsNum) {
+		return (higherBoundary - lowerBoundary) / stepsNum;
+	}
+}
@@ -0,0 +1,95 @@
+package com.maxclay.model;
+
+/**
+ * Results of {@link KuttaMersonBatchSolver batch solving}: final vectors of all problems in one row-major
+ * matrix and per-problem step statistics. Instance can be reused for several batches of the same size.
+ */
+public class BatchResult {
+
+	private final int problemsNum;
+	private final int dimension;
+
+	private final double[] valuesY;
+	private final int[] acceptedStepsNum;
+	private final int[] rejectedStepsNum;
+	private final int[] functionEvaluationsNum;
+	private final boolean[] failed;
+
+	/**
+	 * @param problemsNum - number of problems in the batch.
+	 * @param dimension - number of unknowns of each problem.
+	 */
+	public BatchResult(int problemsNum, int dimension) {
+
+		this.problemsNum = problemsNum;
+		this.dimension = dimension;
+
+		valuesY = new double[problemsNum * dimension];
+		acceptedStepsNum = new int[problemsNum];
+		rejectedStepsNum = new int[problemsNum];
+		functionEvaluationsNum = new int[problemsNum];
+		failed = new boolean[problemsNum];
+	}
+
+	public int getProblemsNum() {
+		return problemsNum;
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	/**
+	 *
+	 * @return y vectors at higher boundary in row-major order:
+	 * component j of i-th problem is stored at index i * dimension + j.
+	 */
+	public double[] getArrayY() {
+		return valuesY;
+	}
+
+	public double getY(int problem, int component) {
+		return valuesY[problem * dimension + component];
+	}
+
+	public int getAcceptedStepsNum(int problem) {
+		return acceptedStepsNum[problem];
+	}
+
+	public int getRejectedStepsNum(int problem) {
+		return rejectedStepsNum[problem];
+	}
+
+	public int getFunctionEvaluationsNum(int problem) {
+		return functionEvaluationsNum[problem];
+	}
+
+	/**
+	 *
+	 * @param problem - problem index.
+	 * @return true if required accuracy couldn't be achieved for the problem. Its y vector is filled with NaN.
+	 */
+	public boolean isFailed(int problem) {
+		return failed[problem];
+	}
+
+	/**
+	 *
+	 * @return total number of right-hand side evaluations over all problems.
+	 */
+	public long getTotalFunctionEvaluationsNum() {
+
+		long total = 0;
+		for(int i = 0; i < problemsNum; i++)
+			total += functionEvaluationsNum[i];
+		return total;
+	}
+
+	void setStatistics(int problem, int accepted, int rejected, int evaluations, boolean failed) {
+
+		acceptedStepsNum[problem] = accepted;
+		rejectedStepsNum[problem] = rejected;
+		functionEvaluationsNum[problem] = evaluations;
+		this.failed[problem] = failed;
+	}
+}
@@ -0,0 +1,52 @@
+package com.maxclay.model;
+
+/**
+ * Right-hand side f(x, y, p) of a family of equations differing in scalar parameter p, evaluated for
+ * several parameter values at once.<br/>
+ * Vectors of all members of the batch are interleaved: component j of member m is stored at index j * count + m,
+ * so loops over members run over contiguous memory and can be vectorized by JIT compiler, e.g.
+ * <pre>
+ * for(int m = 0; m &lt; count; m++)
+ *     dydx[m] = y[m] - p[m] * x / y[m];
+ * </pre>
+ */
+@FunctionalInterface
+public interface BatchRightHandSide {
+
+	/**
+	 * Evaluates f(x, y, p) for each member of the batch.
+	 * @param x - x parameter, the same for all members.
+	 * @param y - interleaved y vectors. Must not be modified.
+	 * @param p - parameter of each member.
+	 * @param count - number of members.
+	 * @param dydx - array to write interleaved function results to.
+	 */
+	void evaluate(double x, double[] y, double[] p, int count, double[] dydx);
+
+	/**
+	 * Adapts function evaluating one member at a time. Members are copied in and out of scratch vectors,
+	 * so it is convenient rather than fast.
+	 * @param function - parametric right-hand side.
+	 * @param dimension - number of unknowns.
+	 * @return batch right-hand side, safe to call from several threads if the function is.
+	 */
+	static BatchRightHandSide of(final ParametricRightHandSide function, final int dimension) {
+
+		return new BatchRightHandSide() {
+
+			public void evaluate(double x, double[] y, double[] p, int count, double[] dydx) {
+
+				double[] memberY = new double[dimension];
+				double[] memberDydx = new double[dimension];
+				for(int m = 0; m < count; m++) {
+
+					for(int j = 0; j < dimension; j++)
+						memberY[j] = y[j * count + m];
+					function.evaluate(x, memberY, p[m], memberDydx);
+					for(int j = 0; j < dimension; j++)
+						dydx[j * count + m] = memberDydx[j];
+				}
+			}
+		};
+	}
+}
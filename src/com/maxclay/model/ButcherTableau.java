@@ -0,0 +1,235 @@
+package com.maxclay.model;
+
+/**
+ * Coefficients of explicit Runge-Kutta method:
+ * y(x + h) = y + h * <mo>&#x2211;</mo> b[i] * k[i], where k[i] = f(x + c[i] * h, y + h * <mo>&#x2211;</mo> a[i][j] * k[j]).<br/>
+ * Embedded methods also have weights bHat of the second solution; difference of the two solutions estimates local error.
+ * Tableau is FSAL (first same as last) if its last stage is evaluated at the new point, so it is reused as the first
+ * stage of the next step.
+ */
+public final class ButcherTableau {
+
+	/**
+	 * Explicit midpoint method of second order.
+	 */
+	public static final ButcherTableau MIDPOINT = new ButcherTableau("Midpoint method", 2,
+			new double[] { 0, 1.0 / 2 },
+			new double[][] { {}, { 1.0 / 2 } },
+			new double[] { 0, 1 });
+
+	/**
+	 * Classic Runge-Kutta method of fourth order.
+	 */
+	public static final ButcherTableau RK4 = new ButcherTableau("Runge-Kutta 4 method", 4,
+			new double[] { 0, 1.0 / 2, 1.0 / 2, 1 },
+			new double[][] { {}, { 1.0 / 2 }, { 0, 1.0 / 2 }, { 0, 0, 1 } },
+			new double[] { 1.0 / 6, 1.0 / 3, 1.0 / 3, 1.0 / 6 });
+
+	/**
+	 * Kutta-Merson method of fourth order. Its error estimate is of fifth order for linear equations, and it is
+	 * scaled by 0.2 the same way as in {@link KuttaMersonMethodAlgorithm}.
+	 */
+	public static final ButcherTableau MERSON = new ButcherTableau("Kutta-Merson method", 4,
+			new double[] { 0, 1.0 / 3, 1.0 / 3, 1.0 / 2, 1 },
+			new double[][] { {}, { 1.0 / 3 }, { 1.0 / 6, 1.0 / 6 }, { 1.0 / 8, 0, 3.0 / 8 }, { 1.0 / 2, 0, -3.0 / 2, 2 } },
+			new double[] { 1.0 / 6, 0, 0, 2.0 / 3, 1.0 / 6 },
+			new double[] { 1.0 / 2, 0, -3.0 / 2, 2, 0 }, 4, 0.2);
+
+	/**
+	 * Bogacki-Shampine 3(2) FSAL pair.
+	 */
+	public static final ButcherTableau BOGACKI_SHAMPINE = new ButcherTableau("Bogacki-Shampine 3(2) method", 3,
+			new double[] { 0, 1.0 / 2, 3.0 / 4, 1 },
+			new double[][] { {}, { 1.0 / 2 }, { 0, 3.0 / 4 }, { 2.0 / 9, 1.0 / 3, 4.0 / 9 } },
+			new double[] { 2.0 / 9, 1.0 / 3, 4.0 / 9, 0 },
+			new double[] { 7.0 / 24, 1.0 / 4, 1.0 / 3, 1.0 / 8 }, 2, 1);
+
+	/**
+	 * Dormand-Prince 5(4) FSAL pair.
+	 */
+	public static final ButcherTableau DORMAND_PRINCE = new ButcherTableau("Dormand-Prince 5(4) method", 5,
+			new double[] { 0, 1.0 / 5, 3.0 / 10, 4.0 / 5, 8.0 / 9, 1, 1 },
+			new double[][] {
+				{},
+				{ 1.0 / 5 },
+				{ 3.0 / 40, 9.0 / 40 },
+				{ 44.0 / 45, -56.0 / 15, 32.0 / 9 },
+				{ 19372.0 / 6561, -25360.0 / 2187, 64448.0 / 6561, -212.0 / 729 },
+				{ 9017.0 / 3168, -355.0 / 33, 46732.0 / 5247, 49.0 / 176, -5103.0 / 18656 },
+				{ 35.0 / 384, 0, 500.0 / 1113, 125.0 / 192, -2187.0 / 6784, 11.0 / 84 } },
+			new double[] { 35.0 / 384, 0, 500.0 / 1113, 125.0 / 192, -2187.0 / 6784, 11.0 / 84, 0 },
+			new double[] { 5179.0 / 57600, 0, 7571.0 / 16695, 393.0 / 640, -92097.0 / 339200, 187.0 / 2100, 1.0 / 40 }, 4, 1);
+
+	/**
+	 * Verner's "most efficient" 6(5) FSAL pair. Nodes and the first rows are exact fractions, the other
+	 * coefficients are given to double precision.
+	 */
+	public static final ButcherTableau VERNER = new ButcherTableau("Verner 6(5) method", 6,
+			new double[] { 0, 3.0 / 50, 1439.0 / 15000, 1439.0 / 10000, 4973.0 / 10000, 389.0 / 400, 1999.0 / 2000, 1, 1 },
+			new double[][] {
+				{},
+				{ 3.0 / 50 },
+				{ 519479.0 / 27000000, 2070721.0 / 27000000 },
+				{ 1439.0 / 40000, 0, 4317.0 / 40000 },
+				{ 109225017611.0 / 82828840000L, 0, -417627820623.0 / 82828840000L, 43699198143.0 / 10353605000L },
+				{ -41.872591664327516, 0, 159.4325621631375, -122.11921356501004, 5.531743066200054 },
+				{ -54.430156935316504, 0, 207.06725136501845, -158.61081378459, 6.991816585950242, -0.018597231062203234 },
+				{ -54.66374178728198, 0, 207.95280625538936, -159.2889574744995, 7.018743740796944, -0.018338785905045722,
+					-0.0005119484997882099 },
+				{ 0.03438957868357036, 0, 0, 0.2582624555633503, 0.4209371189673537, 4.40539646966931, -176.48311902429865,
+					172.36413340141507 } },
+			new double[] { 0.03438957868357036, 0, 0, 0.2582624555633503, 0.4209371189673537, 4.40539646966931, -176.48311902429865,
+				172.36413340141507, 0 },
+			new double[] { 0.0490996764838249, 0, 0, 0.22511122295165242, 0.4694682253029562, 0.8065792249988868, 0,
+				-0.607119489177796, 0.05686113944047573 }, 5, 1);
+
+	private final String name;
+	private final int order;
+	private final double[] c;
+	private final double[][] a;
+	private final double[] b;
+	private final double[] errorWeights;
+	private final int errorOrder;
+	private final double errorFactor;
+	private final boolean fsal;
+
+	/**
+	 * Creates tableau of fixed-step method.
+	 * @param name - method name used in reports.
+	 * @param order - order of the method.
+	 * @param c - nodes, c[0] must be 0.
+	 * @param a - lower-triangular matrix, i-th row has i elements.
+	 * @param b - weights.
+	 */
+	public ButcherTableau(String name, int order, double[] c, double[][] a, double[] b) {
+		this(name, order, c, a, b, null, 0, 0);
+	}
+
+	/**
+	 * Creates tableau of embedded method.
+	 * @param name - method name used in reports.
+	 * @param order - order of the solution that is propagated.
+	 * @param c - nodes, c[0] must be 0.
+	 * @param a - lower-triangular matrix, i-th row has i elements.
+	 * @param b - weights of the propagated solution.
+	 * @param bHat - weights of the embedded solution, or null for fixed-step method.
+	 * @param errorOrder - p such that local error estimate behaves as h^(p + 1).
+	 * @param errorFactor - factor the difference of solutions is multiplied by to get error estimate.
+	 */
+	public ButcherTableau(String name, int order, double[] c, double[][] a, double[] b, double[] bHat, int errorOrder, double errorFactor) {
+
+		int stagesNum = c.length;
+		if(stagesNum == 0 || c[0] != 0)
+			throw new IllegalArgumentException("First node must be 0");
+		if(a.length != stagesNum || b.length != stagesNum || (bHat != null && bHat.length != stagesNum))
+			throw new IllegalArgumentException("Tableau must have " + stagesNum + " rows and weights");
+		for(int i = 0; i < stagesNum; i++)
+			if(a[i].length != i)
+				throw new IllegalArgumentException("Row " + i + " of explicit method must have " + i + " elements");
+
+		this.name = name;
+		this.order = order;
+		this.c = c.clone();
+		this.a = new double[stagesNum][];
+		for(int i = 0; i < stagesNum; i++)
+			this.a[i] = a[i].clone();
+		this.b = b.clone();
+		this.errorOrder = errorOrder;
+		this.errorFactor = errorFactor;
+
+		if(bHat != null) {
+			errorWeights = new double[stagesNum];
+			for(int i = 0; i < stagesNum; i++)
+				errorWeights[i] = b[i] - bHat[i];
+		}
+		else
+			errorWeights = null;
+
+		// last stage is f(x + h, y(x + h)) when its row equals the weights
+		boolean lastRowIsB = stagesNum > 1 && c[stagesNum - 1] == 1 && b[stagesNum - 1] == 0;
+		for(int j = 0; lastRowIsB && j < stagesNum - 1; j++)
+			lastRowIsB = a[stagesNum - 1][j] == b[j];
+		fsal = lastRowIsB;
+	}
+
+	/**
+	 *
+	 * @return method name used in reports.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 *
+	 * @return order of the propagated solution.
+	 */
+	public int getOrder() {
+		return order;
+	}
+
+	/**
+	 *
+	 * @return number of stages.
+	 */
+	public int getStagesNum() {
+		return c.length;
+	}
+
+	public double getC(int i) {
+		return c[i];
+	}
+
+	public double getA(int i, int j) {
+		return a[i][j];
+	}
+
+	public double getB(int i) {
+		return b[i];
+	}
+
+	/**
+	 *
+	 * @return true if tableau has embedded solution, so step can be chosen adaptively.
+	 */
+	public boolean isEmbedded() {
+		return errorWeights != null;
+	}
+
+	/**
+	 * @param i - stage index.
+	 * @return weight of i-th stage in difference of propagated and embedded solutions, b[i] - bHat[i].
+	 */
+	public double getErrorWeight(int i) {
+		return errorWeights[i];
+	}
+
+	/**
+	 *
+	 * @return p such that local error estimate behaves as h^(p + 1).
+	 */
+	public int getErrorOrder() {
+		return errorOrder;
+	}
+
+	/**
+	 *
+	 * @return factor the difference of solutions is multiplied by to get error estimate.
+	 */
+	public double getErrorFactor() {
+		return errorFactor;
+	}
+
+	/**
+	 *
+	 * @return true if the last stage is the first stage of the next step.
+	 */
+	public boolean isFsal() {
+		return fsal;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,113 @@
+package com.maxclay.model;
+
+import java.util.Optional;
+
+/**
+ * Solution returned by {@link SolutionCache}: values at the output grid, accepted steps and statistics of the work
+ * that was actually done to get it.
+ */
+public class CachedSolution {
+
+	/**
+	 * Where solution came from.
+	 */
+	public enum Source {
+
+		/**
+		 * Problem was solved from scratch.
+		 */
+		SOLVED,
+
+		/**
+		 * Solution was found in memory.
+		 */
+		MEMORY,
+
+		/**
+		 * Solution was read from disk.
+		 */
+		DISK,
+
+		/**
+		 * Cached solution of shorter interval was continued up to the higher boundary.
+		 */
+		EXTENDED
+	}
+
+	private final Source source;
+	private final int dimension;
+	private final double[] valuesX;
+	private final double[] valuesY;
+	private final Trajectory trajectory;
+	private final String report;
+	private final int acceptedStepsNum;
+	private final int rejectedStepsNum;
+	private final int functionEvaluationsNum;
+
+	CachedSolution(Source source, int dimension, double[] valuesX, double[] valuesY, Trajectory trajectory, String report,
+			int acceptedStepsNum, int rejectedStepsNum, int functionEvaluationsNum) {
+
+		this.source = source;
+		this.dimension = dimension;
+		this.valuesX = valuesX;
+		this.valuesY = valuesY;
+		this.trajectory = trajectory;
+		this.report = report;
+		this.acceptedStepsNum = acceptedStepsNum;
+		this.rejectedStepsNum = rejectedStepsNum;
+		this.functionEvaluationsNum = functionEvaluationsNum;
+	}
+
+	public Source getSource() {
+		return source;
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	public double[] getArrayX() {
+		return valuesX;
+	}
+
+	/**
+	 *
+	 * @return y values at the output grid in row-major order.
+	 */
+	public double[] getArrayY() {
+		return valuesY;
+	}
+
+	/**
+	 *
+	 * @return accepted steps covering at least the whole interval of the problem, empty for methods that don't record them.
+	 * Trajectory is shared with the cache and must not be modified.
+	 */
+	public Trajectory getTrajectory() {
+		return trajectory;
+	}
+
+	/**
+	 *
+	 * @return report, if it was requested.
+	 */
+	public Optional<String> getReport() {
+		return Optional.ofNullable(report);
+	}
+
+	/**
+	 *
+	 * @return steps accepted to get this solution, 0 if it was taken from cache as is.
+	 */
+	public int getAcceptedStepsNum() {
+		return acceptedStepsNum;
+	}
+
+	public int getRejectedStepsNum() {
+		return rejectedStepsNum;
+	}
+
+	public int getFunctionEvaluationsNum() {
+		return functionEvaluationsNum;
+	}
+}
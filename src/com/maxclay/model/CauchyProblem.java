@@ -0,0 +1,105 @@
+package com.maxclay.model;
+
+/**
+ * Describes Cauchy problem to be solved: interval x <mo>&#x2208;</mo> [lowerBoundary; higherBoundary],
+ * initial value y0 = y(lowerBoundary), required accuracy and number of control points.
+ */
+public class CauchyProblem {
+
+	/**
+	 * Default algorithm accuracy.
+	 */
+	public static final double DEFAULT_ACCURACY = 1e-5;
+	
+	/**
+	 * Default number of control points.
+	 */
+	public static final int DEFAULT_CONTROL_POINTS_NUM = 33;
+	
+	/**
+	 * Starting value y0 according to the next default proviso (x0;y0) = (0;1);
+	 */
+	public static final double STARTING_Y = 1;
+	
+	/**
+	 * Default lower x boundary in x <mo>&#x2208;</mo> [LOWER_BOUNDARY; HIGHER_BOUNDARY];
+	 */
+	public static final int LOWER_BOUNDARY = 0;
+	
+	/**
+	 * Default higher x boundary in x <mo>&#x2208;</mo> [LOWER_BOUNDARY; HIGHER_BOUNDARY];
+	 */
+	public static final int HIGHER_BOUNDARY = 5;
+	
+	
+	private final double lowerBoundary;
+	private final double higherBoundary;
+	private final double[] startingY;
+	private final double accuracy;
+	private final int controlPointsNum;
+	
+	/**
+	 * @param lowerBoundary - x0, lower x boundary of the interval.
+	 * @param higherBoundary - higher x boundary of the interval.
+	 * @param startingY - initial value y(x0).
+	 * @param accuracy - algorithm accuracy.
+	 * @param controlPointsNum - number of control points.
+	 */
+	public CauchyProblem(double lowerBoundary, double higherBoundary, double[] startingY, double accuracy, int controlPointsNum) {
+		
+		if(!(higherBoundary > lowerBoundary))
+			throw new IllegalArgumentException("Higher boundary must be greater than lower boundary");
+		if(startingY.length == 0)
+			throw new IllegalArgumentException("Starting value must have at least one component");
+		if(!(accuracy > 0))
+			throw new IllegalArgumentException("Accuracy must be positive");
+		if(controlPointsNum < 2)
+			throw new IllegalArgumentException("At least two control points are required");
+		
+		this.lowerBoundary = lowerBoundary;
+		this.higherBoundary = higherBoundary;
+		this.startingY = startingY.clone();
+		this.accuracy = accuracy;
+		this.controlPointsNum = controlPointsNum;
+	}
+	
+	/**
+	 * 
+	 * @return problem for default differential equation with default proviso (x0;y0) = (0;1), x <mo>&#x2208;</mo> [0; 5].
+	 */
+	public static CauchyProblem defaultProblem() {
+		return new CauchyProblem(LOWER_BOUNDARY, HIGHER_BOUNDARY, new double[] { STARTING_Y }, DEFAULT_ACCURACY, DEFAULT_CONTROL_POINTS_NUM);
+	}
+	
+	public double getLowerBoundary() {
+		return lowerBoundary;
+	}
+	
+	public double getHigherBoundary() {
+		return higherBoundary;
+	}
+	
+	/**
+	 * 
+	 * @return copy of initial value y(x0).
+	 */
+	public double[] getStartingY() {
+		return startingY.clone();
+	}
+	
+	/**
+	 * 
+	 * @return number of unknowns.
+	 */
+	public int getDimension() {
+		return startingY.length;
+	}
+	
+	public double getAccuracy() {
+		return accuracy;
+	}
+	
+	public int getControlPointsNum() {
+		return controlPointsNum;
+	}
+}
@@ -0,0 +1,44 @@
+package com.maxclay.model;
+
+/**
+ * Forwards events to several listeners in the given order.
+ */
+public class CompositeSolverListener implements SolverListener {
+
+	private final SolverListener[] listeners;
+
+	public CompositeSolverListener(SolverListener... listeners) {
+		this.listeners = listeners.clone();
+	}
+
+	/**
+	 * Combines two listeners, skipping {@link NullSolverListener}.
+	 * @return listener forwarding events to both listeners.
+	 */
+	public static SolverListener of(SolverListener first, SolverListener second) {
+
+		if(first == NullSolverListener.INSTANCE)
+			return second;
+		if(second == NullSolverListener.INSTANCE)
+			return first;
+		return new CompositeSolverListener(first, second);
+	}
+
+	public void onStart(String methodName, CauchyProblem problem) {
+
+		for(SolverListener listener : listeners)
+			listener.onStart(methodName, problem);
+	}
+
+	public void onStep(double x, double h, double[] y, double[][] stages, double error, boolean accepted) {
+
+		for(SolverListener listener : listeners)
+			listener.onStep(x, h, y, stages, error, accepted);
+	}
+
+	public void onFinish(double[] valuesX, double[] valuesY, int acceptedStepsNum, int rejectedStepsNum, int functionEvaluationsNum) {
+
+		for(SolverListener listener : listeners)
+			listener.onFinish(valuesX, valuesY, acceptedStepsNum, rejectedStepsNum, functionEvaluationsNum);
+	}
+}
@@ -0,0 +1,32 @@
+package com.maxclay.model;
+
+/**
+ * Default differential equation <msup><mi>y</mi><mo>&#x2032;</mo></msup> = y - 2 * x / y;
+ */
+public class DefaultEquation implements RightHandSide {
+
+	public void evaluate(double x, double[] y, double[] dydx) {
+		dydx[0] = function(x, y[0]);
+	}
+
+	/**
+	 * Represents function y - 2 * x / y in default differential equation
+	 * <msup><mi>y</mi><mo>&#x2032;</mo></msup> = y - 2 * x / y;
+	 * @param x - x parameter.
+	 * @param y - y parameter.
+	 * @return function result.
+	 */
+	public static double function(double x, double y) {
+		return y - 2 * x / y;
+	}
+
+	/**
+	 * Represents function sqrt(2x + 1) that is an analytical solution for default differential equation
+	 * <msup><mi>y</mi><mo>&#x2032;</mo></msup> = y - 2 * x / y;
+	 * @param x - x parameter.
+	 * @return function result.
+	 */
+	public static double analyticalSolution(double x) {
+		return Math.sqrt(2 * x + 1);
+	}
+}
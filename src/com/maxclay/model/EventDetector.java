@@ -0,0 +1,172 @@
+package com.maxclay.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks accepted steps for sign changes of event functions.<br/>
+ * Inside the step solution is recovered with cubic Hermite interpolation between its ends, the same dense output
+ * {@link Trajectory} uses, and the crossing is refined by Illinois method, so locating events takes
+ * no evaluations of the right-hand side.
+ */
+final class EventDetector {
+
+	/**
+	 * Maximal number of Illinois iterations per crossing.
+	 */
+	static final int MAX_ITERATIONS = 100;
+
+	/**
+	 * Relative to the step length, tolerance events are located with.
+	 */
+	static final double TOLERANCE = 1e-12;
+
+	private final List<EventFunction> functions = new ArrayList<>();
+	private final List<Boolean> terminal = new ArrayList<>();
+	private final List<EventPoint> events = new ArrayList<>();
+
+	private int dimension;
+	private double[] previousG;
+	private double[] interpolated;
+
+	private double stopX;
+	private double[] stopY;
+
+	void add(EventFunction function, boolean terminal) {
+
+		functions.add(function);
+		this.terminal.add(terminal);
+	}
+
+	void clear() {
+
+		functions.clear();
+		terminal.clear();
+		events.clear();
+	}
+
+	boolean isEmpty() {
+		return functions.isEmpty();
+	}
+
+	/**
+	 * Starts new integration: forgets detected events and evaluates functions at starting point.
+	 * Events occurring exactly at starting point are not reported.
+	 */
+	void start(double x, double[] y) {
+
+		dimension = y.length;
+		events.clear();
+		previousG = new double[functions.size()];
+		interpolated = new double[dimension];
+		stopY = new double[dimension];
+		stopX = Double.NaN;
+		for(int i = 0; i < previousG.length; i++)
+			previousG[i] = functions.get(i).evaluate(x, y);
+	}
+
+	/**
+	 * Checks accepted step from (x0, y0) to (x1, y1) and records events that occurred in it, in order of x.
+	 * @return true if terminal event occurred; then {@link #getStopX()} and {@link #getStopY()} give the point
+	 * integration must stop at, and events after it are not recorded.
+	 */
+	boolean step(double x0, double[] y0, double[] dydx0, double x1, double[] y1, double[] dydx1) {
+
+		int first = events.size();
+		double terminalX = Double.POSITIVE_INFINITY;
+		for(int i = 0; i < previousG.length; i++) {
+
+			double g0 = previousG[i];
+			double g1 = functions.get(i).evaluate(x1, y1);
+			previousG[i] = g1;
+			if(g0 == 0 || !(g1 == 0 || (g0 < 0) != (g1 < 0)))
+				continue;
+
+			double x = (g1 == 0) ? x1 : locate(functions.get(i), x0, y0, dydx0, g0, x1, y1, dydx1, g1);
+			interpolate(x0, y0, dydx0, x1, y1, dydx1, x, interpolated);
+
+			// keep events of the step ordered by x
+			int position = events.size();
+			while(position > first && events.get(position - 1).getX() > x)
+				position--;
+			boolean stop = terminal.get(i);
+			events.add(position, new EventPoint(i, x, interpolated.clone(), stop));
+			if(stop && x < terminalX) {
+				terminalX = x;
+				System.arraycopy(interpolated, 0, stopY, 0, dimension);
+			}
+		}
+
+		if(terminalX == Double.POSITIVE_INFINITY)
+			return false;
+
+		// events after the first terminal one didn't happen
+		for(int i = events.size() - 1; i >= first && events.get(i).getX() > terminalX; i--)
+			events.remove(i);
+		stopX = terminalX;
+		return true;
+	}
+
+	List<EventPoint> getEvents() {
+		return events;
+	}
+
+	double getStopX() {
+		return stopX;
+	}
+
+	double[] getStopY() {
+		return stopY;
+	}
+
+	/**
+	 * Finds zero of g on interpolated solution by Illinois method: regula falsi that halves the value kept
+	 * at the same end twice in a row, so convergence doesn't stall at one end.
+	 */
+	private double locate(EventFunction function, double x0, double[] y0, double[] dydx0, double g0,
+			double x1, double[] y1, double[] dydx1, double g1) {
+
+		double a = x0;
+		double ga = g0;
+		double b = x1;
+		double gb = g1;
+		double tolerance = TOLERANCE * (x1 - x0) + Math.ulp(x1);
+
+		for(int iteration = 0; iteration < MAX_ITERATIONS && Math.abs(b - a) > tolerance; iteration++) {
+
+			double c = b - gb * (b - a) / (gb - ga);
+			interpolate(x0, y0, dydx0, x1, y1, dydx1, c, interpolated);
+			double gc = function.evaluate(c, interpolated);
+			if(gc == 0)
+				return c;
+
+			if((gc < 0) != (gb < 0)) {
+				a = b;
+				ga = gb;
+			}
+			else
+				ga /= 2;
+			b = c;
+			gb = gc;
+		}
+
+		return b;
+	}
+
+	private static void interpolate(double x0, double[] y0, double[] dydx0, double x1, double[] y1, double[] dydx1,
+			double x, double[] y) {
+
+		double h = x1 - x0;
+		double t = (x - x0) / h;
+		double t2 = t * t;
+		double t3 = t2 * t;
+
+		double h00 = 2 * t3 - 3 * t2 + 1;
+		double h10 = (t3 - 2 * t2 + t) * h;
+		double h01 = -2 * t3 + 3 * t2;
+		double h11 = (t3 - t2) * h;
+
+		for(int j = 0; j < y.length; j++)
+			y[j] = h00 * y0[j] + h10 * dydx0[j] + h01 * y1[j] + h11 * dydx1[j];
+	}
+}
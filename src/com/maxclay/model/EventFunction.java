@@ -0,0 +1,17 @@
+package com.maxclay.model;
+
+/**
+ * Event function g(x, y): event occurs where g changes its sign along the solution,
+ * e.g. g = y[0] - threshold detects the point where the first component reaches threshold.
+ */
+@FunctionalInterface
+public interface EventFunction {
+
+	/**
+	 * Evaluates g(x, y).
+	 * @param x - x parameter.
+	 * @param y - y parameter. Must not be modified.
+	 * @return value of the function.
+	 */
+	double evaluate(double x, double[] y);
+}
@@ -0,0 +1,53 @@
+package com.maxclay.model;
+
+/**
+ * Point at which event function crossed zero.
+ */
+public class EventPoint {
+
+	private final int eventIndex;
+	private final double x;
+	private final double[] y;
+	private final boolean terminal;
+
+	EventPoint(int eventIndex, double x, double[] y, boolean terminal) {
+
+		this.eventIndex = eventIndex;
+		this.x = x;
+		this.y = y;
+		this.terminal = terminal;
+	}
+
+	/**
+	 *
+	 * @return index of event function in order the functions were added.
+	 */
+	public int getEventIndex() {
+		return eventIndex;
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 *
+	 * @return copy of y at the event.
+	 */
+	public double[] getY() {
+		return y.clone();
+	}
+
+	/**
+	 *
+	 * @return true if integration was stopped at this event.
+	 */
+	public boolean isTerminal() {
+		return terminal;
+	}
+
+	@Override
+	public String toString() {
+		return "event " + eventIndex + " at x = " + x + (terminal ? ", integration stopped" : "");
+	}
+}
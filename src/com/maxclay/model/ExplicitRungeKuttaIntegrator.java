@@ -0,0 +1,179 @@
+package com.maxclay.model;
+
+/**
+ * Explicit Runge-Kutta method given by {@link ButcherTableau}.<br/>
+ * Methods with embedded solution choose integration step adaptively the same way as {@link KuttaMersonMethodAlgorithm},
+ * other methods make {@link CauchyProblem#getControlPointsNum() control points number} - 1 equal steps.
+ * For FSAL tableaus the last stage of accepted step is reused as the first stage of the next one.
+ */
+public class ExplicitRungeKuttaIntegrator extends AbstractIntegrator {
+
+	/**
+	 * Safety factor applied to the optimal step predicted from the error estimate.
+	 */
+	public static final double SAFETY_FACTOR = 0.9;
+
+	/**
+	 * Lower bound of the factor the step can be multiplied by after a single step.
+	 */
+	public static final double MIN_STEP_FACTOR = 0.2;
+
+	/**
+	 * Upper bound of the factor the step can be multiplied by after a single step.
+	 */
+	public static final double MAX_STEP_FACTOR = 5;
+
+	/**
+	 * Smallest allowed integration step. Reaching it means the required accuracy can't be achieved.
+	 */
+	public static final double MIN_STEP = 1e-12;
+
+	private final ButcherTableau tableau;
+	private final int stagesNum;
+
+	// stage vectors, reused across steps
+	private double[][] k;
+	private double[] y;
+	private double[] stageY;
+	private double[] nextY;
+
+	/**
+	 * @param tableau - coefficients of the method.
+	 * @param function - right-hand side of the equation.
+	 * @param problem - interval, initial value and accuracy.
+	 */
+	public ExplicitRungeKuttaIntegrator(ButcherTableau tableau, RightHandSide function, CauchyProblem problem) {
+
+		super(function, problem);
+		this.tableau = tableau;
+		this.stagesNum = tableau.getStagesNum();
+
+		k = new double[stagesNum][dimension];
+		y = new double[dimension];
+		stageY = new double[dimension];
+		nextY = new double[dimension];
+	}
+
+	public String getMethodName() {
+		return tableau.getName();
+	}
+
+	/**
+	 *
+	 * @return coefficients of the method.
+	 */
+	public ButcherTableau getTableau() {
+		return tableau;
+	}
+
+	protected void solve(SolverListener listener) {
+
+		System.arraycopy(problem.getStartingY(), 0, y, 0, dimension);
+		trajectory.clear();
+		solve(problem.getLowerBoundary(), problem.getHigherBoundary(), problem.getAccuracy(), trajectoryRecording, listener);
+
+		if(trajectoryRecording)
+			trajectory.sample(valuesX, valuesY);
+	}
+
+	public void integrate(double startingX, double higherBoundary, double accuracy, double[] y) {
+
+		System.arraycopy(y, 0, this.y, 0, dimension);
+		solve(startingX, higherBoundary, accuracy, false, NullSolverListener.INSTANCE);
+		System.arraycopy(this.y, 0, y, 0, dimension);
+	}
+
+	private void solve(double lowerBoundary, double higherBoundary, double E, boolean recordTrajectory, SolverListener listener) {
+
+		boolean adaptive = tableau.isEmbedded();
+		double maxStep = higherBoundary - lowerBoundary;
+		double h = adaptive ? findStep(lowerBoundary, higherBoundary, problem.getControlPointsNum())
+				: findStep(lowerBoundary, higherBoundary, problem.getControlPointsNum() - 1);
+		double exponent = adaptive ? 1.0 / (tableau.getErrorOrder() + 1) : 0;
+
+		double x = lowerBoundary;
+
+		acceptedStepsNum = 0;
+		rejectedStepsNum = 0;
+		functionEvaluationsNum = 0;
+
+		evaluate(x, y, k[0]);
+		if(recordTrajectory)
+			trajectory.append(x, y, k[0]);
+
+		int n = dimension;
+		int last = stagesNum - 1;
+		while(x < higherBoundary) {
+
+			// remainder that differs from h by rounding only is taken as the last step
+			boolean lastStep = x + h * (1 + 1e-9) >= higherBoundary;
+			if(lastStep)
+				h = higherBoundary - x;
+
+			for(int i = 1; i < stagesNum; i++) {
+
+				double[] stage = k[i];
+				for(int j = 0; j < n; j++) {
+					double sum = 0;
+					for(int m = 0; m < i; m++)
+						sum += tableau.getA(i, m) * k[m][j];
+					stageY[j] = y[j] + h * sum;
+				}
+				evaluate(x + tableau.getC(i) * h, stageY, stage);
+			}
+
+			double R = 0;
+			for(int j = 0; j < n; j++) {
+
+				double sum = 0;
+				double error = 0;
+				for(int i = 0; i < stagesNum; i++) {
+					sum += tableau.getB(i) * k[i][j];
+					if(adaptive)
+						error += tableau.getErrorWeight(i) * k[i][j];
+				}
+				nextY[j] = y[j] + h * sum;
+				R = Math.max(R, tableau.getErrorFactor() * Math.abs(h * error));
+			}
+
+			// error estimate is NaN or infinite if the function can't be evaluated at stage points
+			double factor = MAX_STEP_FACTOR;
+			if(adaptive && !Double.isFinite(R))
+				factor = MIN_STEP_FACTOR;
+			else if(adaptive && R > 0)
+				factor = Math.max(MIN_STEP_FACTOR, Math.min(MAX_STEP_FACTOR, SAFETY_FACTOR * Math.pow(E / R, exponent)));
+
+			if(adaptive && !(R <= E)) {
+
+				rejectedStepsNum++;
+				listener.onStep(x + h, h, nextY, k, R, false);
+
+				h = h * Math.min(factor, 1);
+				if(!(h >= MIN_STEP))
+					throw new IllegalStateException("Integration step became smaller than " + MIN_STEP + " at x = " + x);
+				continue;
+			}
+
+			acceptedStepsNum++;
+			x = lastStep ? higherBoundary : x + h;
+			listener.onStep(x, h, nextY, k, adaptive ? R : Double.NaN, true);
+
+			double[] swap = y;
+			y = nextY;
+			nextY = swap;
+
+			if(tableau.isFsal()) {
+				swap = k[0];
+				k[0] = k[last];
+				k[last] = swap;
+			}
+			else
+				evaluate(x, y, k[0]);
+			if(recordTrajectory)
+				trajectory.append(x, y, k[0]);
+
+			if(adaptive)
+				h = Math.min(maxStep, h * factor);
+		}
+	}
+}
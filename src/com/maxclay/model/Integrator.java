@@ -0,0 +1,90 @@
+package com.maxclay.model;
+
+import java.util.Optional;
+
+/**
+ * Numerical method solving Cauchy problem for differential equation or system of equations
+ * <msup><mi>y</mi><mo>&#x2032;</mo></msup> = f(x, y);<br/>
+ * Implementations are created for particular right-hand side and problem through {@link IntegratorRegistry}
+ * or directly, and can be run any number of times.
+ */
+public interface Integrator {
+
+	/**
+	 *
+	 * @return method name used in reports.
+	 */
+	String getMethodName();
+
+	/**
+	 * Solves the problem, finding 'y' values at each 'x' of the output grid.
+	 * @param generateReport - specifies whether to generate string report or not.
+	 * String report can be available by using {@link #getReport() getReport()} method.
+	 */
+	void run(boolean generateReport);
+
+	/**
+	 * Integrates the equation from arbitrary starting point up to higherBoundary, without storing
+	 * trajectory and report. Problem's interval and accuracy are ignored, step counters are updated.
+	 * @param startingX - x0.
+	 * @param higherBoundary - x to integrate up to.
+	 * @param accuracy - algorithm accuracy. Ignored by fixed-step methods.
+	 * @param y - initial value y(x0) on input, y(higherBoundary) on output.
+	 */
+	void integrate(double startingX, double higherBoundary, double accuracy, double[] y);
+
+	/**
+	 * Sets listener receiving events of every following run, in addition to the string report.
+	 * @param listener - listener, or {@link NullSolverListener#INSTANCE} to receive no events.
+	 */
+	void setListener(SolverListener listener);
+
+	/**
+	 *
+	 * @return solved problem.
+	 */
+	CauchyProblem getProblem();
+
+	/**
+	 *
+	 * @return number of unknowns.
+	 */
+	int getDimension();
+
+	/**
+	 *
+	 * @return array of x values of the output grid.
+	 */
+	double[] getArrayX();
+
+	/**
+	 *
+	 * @return array of y vectors at each x of the output grid in row-major order:
+	 * component j of i-th vector is stored at index i * dimension + j.
+	 */
+	double[] getArrayY();
+
+	/**
+	 * Provides report about iteration process of solving Cauchy problem.
+	 * @return report as an instance of {@link java.util.Optional Optional<T>} class.
+	 */
+	Optional<String> getReport();
+
+	/**
+	 *
+	 * @return number of accepted steps during last run.
+	 */
+	int getAcceptedStepsNum();
+
+	/**
+	 *
+	 * @return number of rejected steps during last run.
+	 */
+	int getRejectedStepsNum();
+
+	/**
+	 *
+	 * @return number of right-hand side evaluations during last run.
+	 */
+	int getFunctionEvaluationsNum();
+}
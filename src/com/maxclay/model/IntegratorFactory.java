@@ -0,0 +1,15 @@
+package com.maxclay.model;
+
+/**
+ * Creates integrator of particular method for given equation and problem.
+ */
+@FunctionalInterface
+public interface IntegratorFactory {
+
+	/**
+	 * @param function - right-hand side of the equation.
+	 * @param problem - problem to solve.
+	 * @return new integrator.
+	 */
+	Integrator create(RightHandSide function, CauchyProblem problem);
+}
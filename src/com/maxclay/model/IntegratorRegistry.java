@@ -0,0 +1,80 @@
+package com.maxclay.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Methods available for solving, in the order they are shown to the user.<br/>
+ * Besides the built-in methods, explicit Runge-Kutta method can be added for any {@link ButcherTableau}
+ * with {@link #register(ButcherTableau) register(ButcherTableau)}.
+ */
+public final class IntegratorRegistry {
+
+	private static final Map<String, IntegratorFactory> FACTORIES = new LinkedHashMap<>();
+
+	static {
+
+		register("Middle point method", MiddlePointMethodAlgorithm::new);
+		register("Kutta-Merson method", KuttaMersonMethodAlgorithm::new);
+		register(ButcherTableau.RK4);
+		register(ButcherTableau.BOGACKI_SHAMPINE);
+		register(ButcherTableau.DORMAND_PRINCE);
+		register(ButcherTableau.VERNER);
+		register("Rosenbrock method", RosenbrockMethodAlgorithm::new);
+		register(PararealSolver.METHOD_NAME, PararealSolver::new);
+	}
+
+	private IntegratorRegistry() {
+	}
+
+	/**
+	 * Adds method, replacing one with the same name.
+	 * @param name - method name shown to the user.
+	 * @param factory - factory creating integrators of the method.
+	 */
+	public static synchronized void register(String name, IntegratorFactory factory) {
+		FACTORIES.put(name, factory);
+	}
+
+	/**
+	 * Adds explicit Runge-Kutta method named after the tableau.
+	 * @param tableau - coefficients of the method.
+	 */
+	public static void register(final ButcherTableau tableau) {
+
+		register(tableau.getName(), new IntegratorFactory() {
+
+			public Integrator create(RightHandSide function, CauchyProblem problem) {
+				return new ExplicitRungeKuttaIntegrator(tableau, function, problem);
+			}
+		});
+	}
+
+	/**
+	 *
+	 * @return names of registered methods in registration order.
+	 */
+	public static synchronized List<String> getMethodNames() {
+		return new ArrayList<>(FACTORIES.keySet());
+	}
+
+	/**
+	 * Creates integrator of registered method.
+	 * @param name - method name.
+	 * @param function - right-hand side of the equation.
+	 * @param problem - problem to solve.
+	 * @return new integrator.
+	 */
+	public static Integrator create(String name, RightHandSide function, CauchyProblem problem) {
+
+		IntegratorFactory factory;
+		synchronized (IntegratorRegistry.class) {
+			factory = FACTORIES.get(name);
+		}
+		if(factory == null)
+			throw new IllegalArgumentException("Unknown method " + name);
+		return factory.create(function, problem);
+	}
+}
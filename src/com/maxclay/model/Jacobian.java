@@ -0,0 +1,18 @@
+package com.maxclay.model;
+
+/**
+ * Jacobian matrix <mfrac><mrow>&#x2202;f</mrow><mrow>&#x2202;y</mrow></mfrac> of right-hand side f(x, y),
+ * used by implicit solvers. When it is not supplied, solvers approximate it with finite differences.
+ */
+@FunctionalInterface
+public interface Jacobian {
+
+	/**
+	 * Evaluates partial derivatives of f(x, y) with respect to y.
+	 * @param x - x parameter.
+	 * @param y - y parameter. Must not be modified.
+	 * @param dfdy - array to write matrix to in row-major order:
+	 * derivative of i-th component of f with respect to y[j] is stored at index i * dimension + j.
+	 */
+	void evaluate(double x, double[] y, double[] dfdy);
+}
@@ -0,0 +1,137 @@
+package com.maxclay.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Solves many independent Cauchy problems for the same equation in parallel using Kutta-Merson method.<br/>
+ * Problems differ in starting point (x0;y0) and accuracy, and are all integrated up to the same higher boundary.
+ * Problems are split into chunks between {@link ForkJoinPool} workers; each chunk uses its own
+ * {@link KuttaMersonMethodAlgorithm} as scratch space, so no buffers are allocated per problem.
+ */
+public class KuttaMersonBatchSolver {
+
+	/**
+	 * Number of chunks per worker thread. More chunks than threads keep workers busy
+	 * when some problems take much more steps than others.
+	 */
+	public static final int CHUNKS_PER_THREAD = 4;
+
+	private final RightHandSide function;
+	private final CauchyProblem problem;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates solver that runs on common pool.
+	 * @param function - right-hand side of the equation.
+	 * @param problem - problem providing dimension, higher boundary and number of control points used for the initial step.
+	 */
+	public KuttaMersonBatchSolver(RightHandSide function, CauchyProblem problem) {
+		this(function, problem, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param function - right-hand side of the equation. Must be safe to call from several threads.
+	 * @param problem - problem providing dimension, higher boundary and number of control points used for the initial step.
+	 * @param pool - pool to run on.
+	 */
+	public KuttaMersonBatchSolver(RightHandSide function, CauchyProblem problem, ForkJoinPool pool) {
+
+		this.function = function;
+		this.problem = problem;
+		this.pool = pool;
+	}
+
+	/**
+	 * Solves batch of problems.
+	 * @param startingX - x0 of each problem.
+	 * @param startingY - y(x0) of each problem in row-major order.
+	 * @param accuracies - accuracy of each problem.
+	 * @return y vectors at higher boundary and step statistics.
+	 */
+	public BatchResult solve(double[] startingX, double[] startingY, double[] accuracies) {
+
+		BatchResult result = new BatchResult(startingX.length, problem.getDimension());
+		solve(startingX, startingY, accuracies, result);
+		return result;
+	}
+
+	/**
+	 * Solves batch of problems writing results into preallocated result.
+	 * @param startingX - x0 of each problem.
+	 * @param startingY - y(x0) of each problem in row-major order.
+	 * @param accuracies - accuracy of each problem.
+	 * @param result - result to write to, must be created for the same number of problems and dimension.
+	 */
+	public void solve(double[] startingX, double[] startingY, double[] accuracies, BatchResult result) {
+
+		int problemsNum = startingX.length;
+		int dimension = problem.getDimension();
+		if(startingY.length != problemsNum * dimension || accuracies.length != problemsNum)
+			throw new IllegalArgumentException("Starting values and accuracies must be given for each of " + problemsNum + " problems");
+		if(result.getProblemsNum() != problemsNum || result.getDimension() != dimension)
+			throw new IllegalArgumentException("Result size doesn't match the batch");
+
+		int chunkSize = Math.max(1, problemsNum / (pool.getParallelism() * CHUNKS_PER_THREAD));
+		pool.invoke(new BatchTask(startingX, startingY, accuracies, result, 0, problemsNum, chunkSize));
+	}
+
+	private class BatchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] startingX;
+		private final double[] startingY;
+		private final double[] accuracies;
+		private final BatchResult result;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+
+		BatchTask(double[] startingX, double[] startingY, double[] accuracies, BatchResult result, int from, int to, int chunkSize) {
+
+			this.startingX = startingX;
+			this.startingY = startingY;
+			this.accuracies = accuracies;
+			this.result = result;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(to - from > chunkSize) {
+
+				int middle = (from + to) >>> 1;
+				invokeAll(new BatchTask(startingX, startingY, accuracies, result, from, middle, chunkSize),
+						new BatchTask(startingX, startingY, accuracies, result, middle, to, chunkSize));
+				return;
+			}
+
+			int dimension = problem.getDimension();
+			double higherBoundary = problem.getHigherBoundary();
+			KuttaMersonMethodAlgorithm kuttaMerson = new KuttaMersonMethodAlgorithm(function, problem);
+			double[] y = new double[dimension];
+			double[] valuesY = result.getArrayY();
+
+			for(int i = from; i < to; i++) {
+
+				System.arraycopy(startingY, i * dimension, y, 0, dimension);
+				boolean failed = false;
+				try {
+					kuttaMerson.integrate(startingX[i], higherBoundary, accuracies[i], y);
+				} catch (IllegalStateException e) {
+					failed = true;
+					Arrays.fill(y, Double.NaN);
+				}
+
+				System.arraycopy(y, 0, valuesY, i * dimension, dimension);
+				result.setStatistics(i, kuttaMerson.getAcceptedStepsNum(), kuttaMerson.getRejectedStepsNum(),
+						kuttaMerson.getFunctionEvaluationsNum(), failed);
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.maxclay.model;
+
+/**
+ * Element-wise loops of a Kutta-Merson step over the state vector: stage arguments, the new value and the
+ * error estimate. {@link #scalar() Scalar} kernels are plain loops, {@link #vector() vector} kernels use
+ * jdk.incubator.vector and give exactly the same results, as they perform the same operations in the same order
+ * in each lane, so they only pay off for large systems.<br/>
+ * Vector kernels are compiled by "vector" build profile on Java 17 or later and are loaded only when the
+ * runtime has the module (--add-modules jdk.incubator.vector), otherwise scalar kernels are used.
+ */
+public interface KuttaMersonKernels {
+
+	/**
+	 * out = y + h * k1 / 3
+	 */
+	void secondStage(double[] y, double[] k1, double h, double[] out, int n);
+
+	/**
+	 * out = y + h * k1 / 6 + h * k2 / 6
+	 */
+	void thirdStage(double[] y, double[] k1, double[] k2, double h, double[] out, int n);
+
+	/**
+	 * out = y + h * k1 / 8 + 3h * k3 / 8
+	 */
+	void fourthStage(double[] y, double[] k1, double[] k3, double h, double[] out, int n);
+
+	/**
+	 * out = y + h * k1 / 2 - 3h * k3 / 2 + 2h * k4
+	 */
+	void fifthStage(double[] y, double[] k1, double[] k3, double[] k4, double h, double[] out, int n);
+
+	/**
+	 * Finds the new value of fourth order and of third order, and estimates error by their difference.
+	 * @param nextY - array to write y + h / 6 * (k1 + 4 * k4 + k5) to.
+	 * @param tempY - array to write y + h / 2 * (k1 - 3 * k3 + 4 * k4) to.
+	 * @return max of 0.2 * |nextY - tempY| over all components.
+	 */
+	double combine(double[] y, double[] k1, double[] k3, double[] k4, double[] k5, double h, double[] nextY, double[] tempY, int n);
+
+	/**
+	 *
+	 * @return plain loop kernels.
+	 */
+	static KuttaMersonKernels scalar() {
+		return ScalarKuttaMersonKernels.INSTANCE;
+	}
+
+	/**
+	 *
+	 * @return vector kernels if they are available, scalar kernels otherwise.
+	 */
+	static KuttaMersonKernels vector() {
+		return ScalarKuttaMersonKernels.VECTOR;
+	}
+
+	/**
+	 *
+	 * @return true if vector kernels were compiled and the runtime has jdk.incubator.vector module.
+	 */
+	static boolean isVectorAvailable() {
+		return ScalarKuttaMersonKernels.VECTOR != ScalarKuttaMersonKernels.INSTANCE;
+	}
+}
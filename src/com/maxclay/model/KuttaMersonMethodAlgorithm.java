@@ -1,206 +1,524 @@
 package com.maxclay.model;
 
-import java.util.Optional;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
-public class KuttaMersonMethodAlgorithm {
+/**
+ * Kutta-Merson method: five-stage method of fourth order with embedded error estimate and adaptive step.<br/>
+ * Accepted steps can be checked for {@link #addEvent(EventFunction, boolean) events}: points where given functions
+ * of the solution cross zero.<br/>
+ * Long runs can be {@link #setCheckpointing(Path, long) checkpointed} and {@link #resume(Path, boolean) resumed}
+ * after restart with exactly the same steps.
+ */
+public class KuttaMersonMethodAlgorithm extends AbstractIntegrator {
 
-	/**
-	 * Algorithm accuracy.
-	 */
-	public static final double E = 1e-5;
-	
 	/**
 	 * Number of stages. As Kutta-Merson method is five-stage method, value of STAGE_NUM is 5.
 	 */
 	public static final int STAGES_NUM = 5;
-	
+
+	/**
+	 * Method name used in reports.
+	 */
+	public static final String METHOD_NAME = "Kutta-Merson method";
+
+	/**
+	 * Safety factor applied to the optimal step predicted from the error estimate.
+	 */
+	public static final double SAFETY_FACTOR = 0.9;
+
+	/**
+	 * Lower bound of the factor the step can be multiplied by after a single step.
+	 */
+	public static final double MIN_STEP_FACTOR = 0.2;
+
+	/**
+	 * Upper bound of the factor the step can be multiplied by after a single step.
+	 */
+	public static final double MAX_STEP_FACTOR = 5;
+
+	/**
+	 * Smallest allowed integration step. Reaching it means the required accuracy can't be achieved.
+	 */
+	public static final double MIN_STEP = 1e-12;
+
 	/**
-	 * Default number of control points.
+	 * Estimated h * |<mi>&#x3BB;</mi>| above which step is considered to be limited by stability rather than accuracy.
+	 * Real stability interval of Kutta-Merson method is about [-3.5; 0].
 	 */
-	public static final int DEFAULT_CONTROL_POINTS_NUM = 33;
-	
+	public static final double STIFFNESS_BOUNDARY = 3.0;
+
 	/**
-	 * Starting value x0 according to the next default proviso (x0;y0) = (0;1);
+	 * Number of stability-limited steps after which the problem is considered stiff.
 	 */
-	public static final double STARTING_X = 0;
-	
+	public static final int STIFF_STEPS_NUM = 15;
+
 	/**
-	 * Starting value y0 according to the next default proviso (x0;y0) = (0;1);
+	 * Number of steps that are not limited by stability after which stiff steps count is reset.
 	 */
-	public static final double STARTING_Y = 1;
-	
+	public static final int NONSTIFF_STEPS_NUM = 6;
+
 	/**
-	 * Default lower x boundary in x <mo>&#x2208;</mo> [LOWER_BOUNDARY; HIGHER_BOUNDARY];
+	 * Largest system switched to stiff solver automatically. Stiff solver keeps three dense n * n matrices,
+	 * which take 24 MB for this dimension and grow quadratically.
 	 */
-	public static final int LOWER_BOUNDARY = 0;
-	
+	public static final int MAX_STIFF_SWITCHING_DIMENSION = 1000;
+
+	// stage vectors, reused across steps
+	private double[] k1;
+	private double[] k2;
+	private double[] k3;
+	private double[] k4;
+	private double[] k5;
+	private double[][] stages;
+
+	private double[] y;
+	private double[] stageY;
+	private double[] nextY;
+	private double[] tempY;
+
+	private boolean stiffnessSwitching;
+	private Jacobian jacobian;
+	private RosenbrockMethodAlgorithm stiffSolver;
+	private double switchingPoint;
+	private double switchingStep;
+
+	private final EventDetector events;
+	private double[] nextK1;
+	private double terminationPoint;
+
+	private KuttaMersonKernels kernels;
+
+	private Path checkpointFile;
+	private long checkpointIntervalNanos;
+	private SolverCheckpoint resumedCheckpoint;
+	private int passedPointsNum;
+
 	/**
-	 * Default higher x boundary in x <mo>&#x2208;</mo> [LOWER_BOUNDARY; HIGHER_BOUNDARY];
+	 * Creates solver for default differential equation <msup><mi>y</mi><mo>&#x2032;</mo></msup> = y - 2 * x / y;
+	 * with default proviso.
 	 */
-	public static final int HIGHER_BOUNDARY = 5;
-	
-	
-	private double[] functionValues;
-	private double[] valuesX;
-	private double[] valuesY;
-	
-	private StringBuilder reportBuilder;
-	
 	public KuttaMersonMethodAlgorithm() {
-		
-		functionValues = new double[STAGES_NUM];
-		valuesX = new double[DEFAULT_CONTROL_POINTS_NUM];
-		valuesY = new double[DEFAULT_CONTROL_POINTS_NUM];
-		
-	}
-	
-	/**
-	 * Solves default differential equation <msup><mi>y</mi><mo>&#x2032;</mo></msup> = y - 2 * x / y;<br/>
-	 * Finds corresponding 'y' values to each 'x' of set values, that formed using default boundaries and default number of control points.
-	 * @param generateReport - specifies whether to generate string report or not. 
-	 * String report can be available by using {@link #getReport() getReport()} method. 
-	 */
-	public void run(boolean generateReport) {
-		
-		if(generateReport) {
-			reportBuilder = new StringBuilder();
-			reportBuilder.append("Solving Cauchy problem using Kutta-Merson method\n");
+		this(new DefaultEquation(), CauchyProblem.defaultProblem());
+	}
+
+	/**
+	 * @param function - right-hand side of the equation.
+	 * @param problem - interval, initial value and accuracy.
+	 */
+	public KuttaMersonMethodAlgorithm(RightHandSide function, CauchyProblem problem) {
+
+		super(function, problem);
+
+		k1 = new double[dimension];
+		k2 = new double[dimension];
+		k3 = new double[dimension];
+		k4 = new double[dimension];
+		k5 = new double[dimension];
+		stages = new double[][] { k1, k2, k3, k4, k5 };
+		y = new double[dimension];
+		stageY = new double[dimension];
+		nextY = new double[dimension];
+		tempY = new double[dimension];
+		stiffnessSwitching = true;
+		switchingPoint = Double.NaN;
+		events = new EventDetector();
+		nextK1 = new double[dimension];
+		terminationPoint = Double.NaN;
+		kernels = KuttaMersonKernels.scalar();
+
+	}
+
+	public String getMethodName() {
+		return METHOD_NAME;
+	}
+
+	/**
+	 * Solves differential equation or system of equations <msup><mi>y</mi><mo>&#x2032;</mo></msup> = f(x, y);<br/>
+	 * Integration step is chosen adaptively: after each step it is grown or shrunk according to the error estimate.
+	 * Accepted steps are stored in {@link #getTrajectory() trajectory}, which is then sampled at each 'x' of the
+	 * output grid (see {@link #setOutputGrid(double[]) setOutputGrid(double[])}).<br/>
+	 * If the problem turns out to be stiff, the rest of the interval is solved by {@link RosenbrockMethodAlgorithm}
+	 * (see {@link #setStiffnessSwitching(boolean) setStiffnessSwitching(boolean)}).
+	 * When integration is stopped by terminal event, output grid values beyond it are NaN.
+	 */
+	protected void solve(SolverListener listener) {
+
+		System.arraycopy(problem.getStartingY(), 0, y, 0, dimension);
+		trajectory.clear();
+		solve(problem.getLowerBoundary(), problem.getHigherBoundary(), problem.getAccuracy(), trajectoryRecording, listener,
+				resumedCheckpoint, checkpointFile != null);
+		if(!Double.isNaN(switchingPoint))
+			solveStiff(problem.getHigherBoundary(), problem.getAccuracy(), trajectoryRecording ? trajectory : null, listener);
+
+		if(trajectoryRecording) {
+			trajectory.sample(valuesX, valuesY);
+			for(int i = 0; i < valuesX.length; i++)
+				if(valuesX[i] > terminationPoint)
+					for(int j = 0; j < dimension; j++)
+						valuesY[i * dimension + j] = Double.NaN;
+
+			// trajectory of resumed run starts at checkpoint, points before it are restored from checkpoint
+			if(resumedCheckpoint != null) {
+				double[] gridY = resumedCheckpoint.getGridY();
+				System.arraycopy(gridY, 0, valuesY, 0, gridY.length);
+			}
+		}
+	}
+
+	/**
+	 * Starts at checkpoint's x and y when the run is {@link #resume(Path, boolean) resumed}.
+	 */
+	@Override
+	protected CauchyProblem getStartingProblem() {
+
+		if(resumedCheckpoint == null)
+			return problem;
+		return new CauchyProblem(resumedCheckpoint.getX(), problem.getHigherBoundary(), resumedCheckpoint.getY(),
+				problem.getAccuracy(), problem.getControlPointsNum());
+	}
+
+	/**
+	 * Makes {@link #run(boolean) run} write {@link SolverCheckpoint checkpoint} of the solver state to the file after
+	 * accepted steps, at most once per given interval. Checkpoints are written while Kutta-Merson steps are made;
+	 * after switching to stiff solver the last one stays, and resuming from it repeats the switch.
+	 * @param file - checkpoint file, or null to stop checkpointing.
+	 * @param intervalMillis - minimal time between checkpoints, 0 to write one after every accepted step.
+	 * @throws UncheckedIOException from {@link #run(boolean) run} if checkpoint can't be written.
+	 */
+	public void setCheckpointing(Path file, long intervalMillis) {
+
+		if(intervalMillis < 0)
+			throw new IllegalArgumentException("Checkpoint interval can't be negative");
+		checkpointFile = file;
+		checkpointIntervalNanos = intervalMillis * 1_000_000L;
+	}
+
+	/**
+	 * Continues integration from checkpoint written by previous run of the same problem, so that the following steps,
+	 * step counters and the final result are exactly the same as if the run hadn't been interrupted. Trajectory and
+	 * listeners start at checkpoint's x, values of the output grid before it are restored from the checkpoint, and
+	 * events detected before it are not reported again. Checkpointing, if set, goes on during resumed run.
+	 * @param file - checkpoint file.
+	 * @param generateReport - true to generate report.
+	 * @throws IOException if checkpoint can't be read or is damaged.
+	 * @throws IllegalArgumentException if checkpoint was made for another problem.
+	 */
+	public void resume(Path file, boolean generateReport) throws IOException {
+
+		SolverCheckpoint checkpoint = SolverCheckpoint.read(file);
+		checkpoint.check(problem, valuesX);
+
+		resumedCheckpoint = checkpoint;
+		try {
+			run(generateReport);
+		} finally {
+			resumedCheckpoint = null;
 		}
-		
-		double h = findStep(LOWER_BOUNDARY, HIGHER_BOUNDARY, DEFAULT_CONTROL_POINTS_NUM);
+	}
+
+	/**
+	 * Integrates the equation from arbitrary starting point up to higherBoundary, without storing
+	 * trajectory and report. Problem's interval and accuracy are ignored, step counters are updated.<br/>
+	 * Solver can be reused for any number of such calls, its stage buffers are not reallocated.
+	 * Events are detected as well, and terminal event stops integration at its point.
+	 * @param startingX - x0.
+	 * @param higherBoundary - x to integrate up to.
+	 * @param accuracy - algorithm accuracy.
+	 * @param y - initial value y(x0) on input, y(higherBoundary) or y at {@link #getTerminationPoint() termination point} on output.
+	 */
+	public void integrate(double startingX, double higherBoundary, double accuracy, double[] y) {
+
+		System.arraycopy(y, 0, this.y, 0, dimension);
+		solve(startingX, higherBoundary, accuracy, false, NullSolverListener.INSTANCE, null, false);
+		if(!Double.isNaN(switchingPoint))
+			solveStiff(higherBoundary, accuracy, null, NullSolverListener.INSTANCE);
+		System.arraycopy(this.y, 0, y, 0, dimension);
+	}
+
+	/**
+	 * @param start - checkpoint to continue from, or null to start at lowerBoundary with current y.
+	 * @param checkpointing - true to write checkpoints.
+	 */
+	private void solve(double lowerBoundary, double higherBoundary, double E, boolean recordTrajectory, SolverListener listener,
+			SolverCheckpoint start, boolean checkpointing) {
+
+		double maxStep = higherBoundary - lowerBoundary;
+
+		double h;
 		double R = 1;
-		
-		valuesX[0] = STARTING_X;
-		valuesY[0] = STARTING_Y;
-		
-		fillArrayX(valuesX, h);
-		
-         
-		double tempY = 0;
-        int i = 0;
-        while(i < DEFAULT_CONTROL_POINTS_NUM - 1) {
-         
-        	// first stage
-        	functionValues[0] = defaultFunction(valuesX[i], valuesY[i]);
-        	 
+
+		double x;
+
+		switchingPoint = Double.NaN;
+		terminationPoint = Double.NaN;
+		int stiffStepsNum;
+		int nonstiffStepsNum;
+
+		if(start == null) {
+
+			h = findStep(lowerBoundary, higherBoundary, problem.getControlPointsNum());
+			x = lowerBoundary;
+			acceptedStepsNum = 0;
+			rejectedStepsNum = 0;
+			functionEvaluationsNum = 0;
+			stiffStepsNum = 0;
+			nonstiffStepsNum = 0;
+			passedPointsNum = 0;
+
+			// derivative at the current point is reused as the first stage of the next step
+			evaluate(x, y, k1);
+		}
+		else {
+
+			h = start.getStep();
+			x = start.getX();
+			acceptedStepsNum = start.getAcceptedStepsNum();
+			rejectedStepsNum = start.getRejectedStepsNum();
+			functionEvaluationsNum = start.getFunctionEvaluationsNum();
+			stiffStepsNum = start.getStiffStepsNum();
+			nonstiffStepsNum = start.getNonstiffStepsNum();
+			System.arraycopy(start.getY(), 0, y, 0, dimension);
+			System.arraycopy(start.getDerivative(), 0, k1, 0, dimension);
+			passedPointsNum = start.getPassedPointsNum();
+			System.arraycopy(start.getGridY(), 0, valuesY, 0, start.getGridY().length);
+		}
+		long lastCheckpoint = System.nanoTime();
+
+		if(recordTrajectory)
+			trajectory.append(x, y, k1);
+
+		boolean detectingEvents = !events.isEmpty();
+		if(detectingEvents)
+			events.start(x, y);
+
+		int n = dimension;
+        while(x < higherBoundary) {
+
+        	boolean lastStep = x + h >= higherBoundary;
+        	if(lastStep)
+        		h = higherBoundary - x;
+
         	// second stage
-        	functionValues[1] = defaultFunction(valuesX[i] + h / 3, valuesY[i] + h * functionValues[0] / 3);
-        	 
+        	kernels.secondStage(y, k1, h, stageY, n);
+        	evaluate(x + h / 3, stageY, k2);
+
         	// third stage
-        	functionValues[2] = defaultFunction(valuesX[i] + h / 3, valuesY[i] + h * functionValues[0] / 6 + h * functionValues[1] / 6);
-        	 
+        	kernels.thirdStage(y, k1, k2, h, stageY, n);
+        	evaluate(x + h / 3, stageY, k3);
+
         	// fourth stage
-        	functionValues[3] = defaultFunction(valuesX[i] + h / 2, valuesY[i] + h * functionValues[0] / 8 + h * 3 * functionValues[2] / 8);
-        	 
+        	kernels.fourthStage(y, k1, k3, h, stageY, n);
+        	evaluate(x + h / 2, stageY, k4);
+
         	// fifth stage
-        	functionValues[4] = defaultFunction(valuesX[i] + h, valuesY[i] + h * functionValues[0] / 2 - h * 3 * functionValues[2] / 2 + h * 2 * functionValues[3]);
-        	         	 
-        	valuesY[i + 1] = valuesY[i] + h / 6 * (functionValues[0] + 4 * functionValues[3] + functionValues[4]);
-        	tempY = valuesY[i] + h / 2 * (functionValues[0] - 3 * functionValues[2] + 4 * functionValues[3]);
-            R = 0.2 * Math.abs(valuesY[i + 1] - tempY);
-            
-            if(generateReport) {
-    			reportBuilder.append("\nFunction values:");
-    			reportBuilder.append("\nk1 = " + functionValues[0]);
-    			reportBuilder.append("\nk2 = " + functionValues[1]);
-    			reportBuilder.append("\nk3 = " + functionValues[2]);
-    			reportBuilder.append("\nk4 = " + functionValues[3]);
-    			reportBuilder.append("\nk5 = " + functionValues[4]);
-    			
-    			reportBuilder.append("\n\ny(" + (i + 1) + "): " + valuesY[i + 1]);
-            }
-            
-            if (R > E) {
-            	
-            	h = h / 2;
-            	if(generateReport) {
-            		reportBuilder.append("\n\nR > E!(" + R + " > " + E + ")");
-         			reportBuilder.append("\nDividing the integration step by 2");
-         			reportBuilder.append("\nh = " + h);
-            	}
+        	kernels.fifthStage(y, k1, k3, k4, h, stageY, n);
+        	evaluate(x + h, stageY, k5);
+
+        	R = kernels.combine(y, k1, k3, k4, k5, h, nextY, tempY, n);
+
+            double factor = (R == 0) ? MAX_STEP_FACTOR : SAFETY_FACTOR * Math.pow(E / R, 0.2);
+            // error estimate is NaN or infinite if the function can't be evaluated at stage points
+            factor = Double.isFinite(R) ? Math.max(MIN_STEP_FACTOR, Math.min(MAX_STEP_FACTOR, factor)) : MIN_STEP_FACTOR;
+
+            // NaN error rejects the step as well
+            if (!(R <= E)) {
+
+            	rejectedStepsNum++;
+            	listener.onStep(x + h, h, nextY, stages, R, false);
+
+            	h = h * Math.min(factor, 1);
+            	if(!(h >= MIN_STEP))
+            		throw new IllegalStateException("Integration step became smaller than " + MIN_STEP + " at x = " + x);
             }
             else {
-            	 
-            	if(generateReport) {
-            		reportBuilder.append("\n\nR < E(" + R + " < " + E + ")");
-         			reportBuilder.append("\nObtained approximate value for y[" + (i + 1) + "] = " + valuesY[i + 1]);
-         			reportBuilder.append("\nContinue iteration process");
-         			reportBuilder.append("\n*****************************************************************\n\n");
+
+            	acceptedStepsNum++;
+            	double previousX = x;
+            	x = lastStep ? higherBoundary : x + h;
+
+            	boolean terminated = false;
+            	if(detectingEvents) {
+
+            		// dense output needs derivative at the end of the step, which is then reused as the first stage
+            		evaluate(x, nextY, nextK1);
+            		if(events.step(previousX, y, k1, x, nextY, nextK1)) {
+            			terminated = true;
+            			x = events.getStopX();
+            			h = x - previousX;
+            			System.arraycopy(events.getStopY(), 0, nextY, 0, n);
+            			evaluate(x, nextY, nextK1);
+            		}
+            	}
+
+            	listener.onStep(x, h, nextY, stages, R, true);
+
+            	double[] swap = y;
+            	y = nextY;
+            	nextY = swap;
+            	if(detectingEvents)
+            		System.arraycopy(nextK1, 0, k1, 0, n);
+            	else
+            		evaluate(x, y, k1);
+            	if(recordTrajectory)
+            		trajectory.append(x, y, k1);
+
+            	if(terminated) {
+            		terminationPoint = x;
+            		return;
+            	}
+
+            	if(stiffnessSwitching && dimension <= MAX_STIFF_SWITCHING_DIMENSION) {
+
+            		// k2 and k3 are both evaluated at x + h / 3, so their difference estimates dominant eigenvalue of Jacobian
+            		double stiffness = stiffness(h);
+            		if(stiffness > STIFFNESS_BOUNDARY) {
+            			nonstiffStepsNum = 0;
+            			if(++stiffStepsNum == STIFF_STEPS_NUM && x < higherBoundary) {
+            				switchingPoint = x;
+            				switchingStep = h;
+            				return;
+            			}
+            		}
+            		else if(++nonstiffStepsNum == NONSTIFF_STEPS_NUM)
+            			stiffStepsNum = 0;
+            	}
+
+            	h = Math.min(maxStep, h * factor);
+
+            	if(checkpointing && x < higherBoundary && System.nanoTime() - lastCheckpoint >= checkpointIntervalNanos) {
+            		writeCheckpoint(lowerBoundary, higherBoundary, E, x, h, stiffStepsNum, nonstiffStepsNum, recordTrajectory);
+            		lastCheckpoint = System.nanoTime();
             	}
-            	i++;
             }
-             
-        }
-        
-        if(generateReport) {
-        	reportBuilder.append("\nIteration process ended");
-        	reportBuilder.append("\n\nResults:");
-        	printResult(reportBuilder, valuesX, valuesY);
-        	reportBuilder.append("\n*****************************************************************\n");
+
         }
-         
+
+	}
+
+	private void writeCheckpoint(double lowerBoundary, double higherBoundary, double E, double x, double h,
+			int stiffStepsNum, int nonstiffStepsNum, boolean recordTrajectory) {
+
+		// output grid points passed since the previous checkpoint get the same values final sampling gives them
+		if(recordTrajectory)
+			for(; passedPointsNum < valuesX.length && valuesX[passedPointsNum] <= x; passedPointsNum++)
+				trajectory.interpolate(valuesX[passedPointsNum], valuesY, passedPointsNum * dimension);
+
+		double[] gridX = Arrays.copyOf(valuesX, passedPointsNum);
+		double[] gridY = Arrays.copyOf(valuesY, passedPointsNum * dimension);
+		try {
+			new SolverCheckpoint(lowerBoundary, higherBoundary, E, x, h, y.clone(), k1.clone(), gridX, gridY,
+					acceptedStepsNum, rejectedStepsNum, functionEvaluationsNum, stiffStepsNum, nonstiffStepsNum).write(checkpointFile);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Estimates h * |<mi>&#x3BB;</mi>| from the second and the third stages of the last step as
+	 * ||k3 - k2|| / ||y3 - y2||, where y3 - y2 = h * (k2 - k1) / 6.
+	 */
+	private double stiffness(double h) {
+
+		double numerator = 0;
+		double denominator = 0;
+		for(int j = 0; j < dimension; j++) {
+			numerator = Math.max(numerator, Math.abs(k3[j] - k2[j]));
+			denominator = Math.max(denominator, Math.abs(k2[j] - k1[j]));
+		}
+		return denominator == 0 ? 0 : 6 * numerator / denominator;
+	}
+
+	/**
+	 * Continues integration from switching point with stiff solver and adds its step counters.
+	 */
+	private void solveStiff(double higherBoundary, double E, Trajectory trajectory, SolverListener listener) {
+
+		if(stiffSolver == null)
+			stiffSolver = new RosenbrockMethodAlgorithm(function, jacobian, problem);
+
+		stiffSolver.continueIntegration(switchingPoint, switchingStep, higherBoundary, E, y, trajectory, listener,
+				events.isEmpty() ? null : events);
+		if(!events.isEmpty())
+			terminationPoint = events.getStopX();
+
+		acceptedStepsNum += stiffSolver.getAcceptedStepsNum();
+		rejectedStepsNum += stiffSolver.getRejectedStepsNum();
+		functionEvaluationsNum += stiffSolver.getFunctionEvaluationsNum();
 	}
-	
+
 	/**
-	 * Provides report about iteration process of solving Cauchy problem.
-	 * @return report as an instance of {@link java.util.Optional Optional<T>} class.
+	 * Sets loops computing stage arguments and error estimate. {@link KuttaMersonKernels#vector() Vector kernels}
+	 * speed up large systems, results are the same with any kernels.
+	 * @param kernels - kernels, {@link KuttaMersonKernels#scalar() scalar} by default.
 	 */
-	public Optional<String> getReport() {
-		return (reportBuilder != null) ? Optional.of(reportBuilder.toString()) : Optional.<String>empty();
+	public void setKernels(KuttaMersonKernels kernels) {
+		this.kernels = kernels;
 	}
-	
+
+	/**
+	 * Specifies whether to switch to {@link RosenbrockMethodAlgorithm} when the problem is detected to be stiff:
+	 * when step size is limited by stability of the method rather than by accuracy for
+	 * {@link #STIFF_STEPS_NUM} steps. Explicit method would keep taking tiny steps on such problems.<br/>
+	 * Systems of more than {@link #MAX_STIFF_SWITCHING_DIMENSION} equations are never switched, since stiff solver
+	 * needs dense n * n matrices; they are solved by Kutta-Merson method on the whole interval.
+	 * @param stiffnessSwitching - true to switch (default), false to solve whole interval by Kutta-Merson method.
+	 */
+	public void setStiffnessSwitching(boolean stiffnessSwitching) {
+		this.stiffnessSwitching = stiffnessSwitching;
+	}
+
 	/**
-	 * 
-	 * @return array of x values.
+	 * Sets Jacobian used by stiff solver after switching.
+	 * @param jacobian - Jacobian of the right-hand side, or null to approximate it with finite differences (default).
 	 */
-	public double[] getArrayX() {
-		return valuesX;
+	public void setJacobian(Jacobian jacobian) {
+		this.jacobian = jacobian;
+		stiffSolver = null;
 	}
-	
+
 	/**
-	 * 
-	 * @return array of y values.
+	 * Adds event function checked after each accepted step, including steps of stiff solver after switching.
+	 * Crossing point is located on cubic Hermite interpolant of the step, so no additional steps are made.
+	 * @param function - event function g(x, y); event occurs where its sign changes.
+	 * @param terminal - true to stop integration at the first such event, false to only record it.
 	 */
-	public double[] getArrayY() {
-		return valuesY;
+	public void addEvent(EventFunction function, boolean terminal) {
+		events.add(function, terminal);
 	}
-	
+
 	/**
-	 * Represents function y - 2 * x / y in default differential equation
-	 * <msup><mi>y</mi><mo>&#x2032;</mo></msup> = y - 2 * x / y;
-	 * @param x - x parameter.
-	 * @param y - y parameter.
-	 * @return function result.
+	 * Removes all event functions.
 	 */
-	public static double defaultFunction(double x, double y) {
-		return y - 2 * x / y;
+	public void clearEvents() {
+		events.clear();
 	}
-	
+
 	/**
-	 * Represents function sqrt(2x + 1) that is an analytical solution for default differential equation
-	 * <msup><mi>y</mi><mo>&#x2032;</mo></msup> = y - 2 * x / y;
-	 * @param x - x parameter.
-	 * @return function result.
+	 *
+	 * @return events detected during the last run in order of x.
 	 */
-	public static double analyticalSolutionForDefaultEquation(double x) {
-		return Math.sqrt(2 * x + 1);
+	public List<EventPoint> getEvents() {
+		return new ArrayList<>(events.getEvents());
 	}
-	
-	private void fillArrayX(double[] x, double h) {
-        
-        for (int i = 1; i < x.length; i++)
-            x[i] = x[i - 1] + h;
-        
-    }
-	
-	private void printResult(StringBuilder report, double[] valuesX, double[] valuesY) {
-		
-		for(int i = 0; i < valuesX.length; i++)
-			report.append(String.format("\nx[%d] = %10.5f\ty[%d] = %10.5f", i, valuesX[i], i, valuesY[i]));
+
+	/**
+	 *
+	 * @return x at which last run was stopped by terminal event, or NaN if it wasn't.
+	 */
+	public double getTerminationPoint() {
+		return terminationPoint;
 	}
-	
-	private double findStep(double lowerBoundary, double higherBoundary, int controlPointsNum) {
-		return (higherBoundary - lowerBoundary) / controlPointsNum;
-		
+
+	/**
+	 *
+	 * @return x at which last run switched to stiff solver, or NaN if it didn't.
+	 */
+	public double getSwitchingPoint() {
+		return switchingPoint;
 	}
 }
@@ -0,0 +1,97 @@
+package com.maxclay.model;
+
+/**
+ * LU decomposition with partial pivoting of square matrix stored in row-major order.
+ * Buffers are allocated once, so the same instance is refactored and reused for any number of solves.
+ */
+final class LUDecomposition {
+
+	private final int n;
+	private final double[] lu;
+	private final int[] pivots;
+
+	/**
+	 * @param n - matrix order.
+	 */
+	LUDecomposition(int n) {
+
+		this.n = n;
+		lu = new double[n * n];
+		pivots = new int[n];
+	}
+
+	/**
+	 * Factors matrix. Matrix itself is not modified.
+	 * @param a - matrix in row-major order.
+	 * @return false if matrix is singular.
+	 */
+	boolean factor(double[] a) {
+
+		System.arraycopy(a, 0, lu, 0, n * n);
+		for(int k = 0; k < n; k++) {
+
+			int pivot = k;
+			double max = Math.abs(lu[k * n + k]);
+			for(int i = k + 1; i < n; i++) {
+				double value = Math.abs(lu[i * n + k]);
+				if(value > max) {
+					max = value;
+					pivot = i;
+				}
+			}
+
+			if(max == 0 || Double.isNaN(max))
+				return false;
+
+			pivots[k] = pivot;
+			if(pivot != k)
+				for(int j = 0; j < n; j++) {
+					double swap = lu[k * n + j];
+					lu[k * n + j] = lu[pivot * n + j];
+					lu[pivot * n + j] = swap;
+				}
+
+			double diagonal = lu[k * n + k];
+			for(int i = k + 1; i < n; i++) {
+
+				double multiplier = lu[i * n + k] / diagonal;
+				lu[i * n + k] = multiplier;
+				for(int j = k + 1; j < n; j++)
+					lu[i * n + j] -= multiplier * lu[k * n + j];
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Solves A * x = b using the last factorization.
+	 * @param b - right-hand side, overwritten with solution x.
+	 */
+	void solve(double[] b) {
+
+		for(int k = 0; k < n; k++) {
+			int pivot = pivots[k];
+			if(pivot != k) {
+				double swap = b[k];
+				b[k] = b[pivot];
+				b[pivot] = swap;
+			}
+		}
+
+		// forward substitution with unit lower triangle
+		for(int i = 1; i < n; i++) {
+			double sum = b[i];
+			for(int j = 0; j < i; j++)
+				sum -= lu[i * n + j] * b[j];
+			b[i] = sum;
+		}
+
+		// back substitution with upper triangle
+		for(int i = n - 1; i >= 0; i--) {
+			double sum = b[i];
+			for(int j = i + 1; j < n; j++)
+				sum -= lu[i * n + j] * b[j];
+			b[i] = sum / lu[i * n + i];
+		}
+	}
+}
@@ -1,165 +1,160 @@
 package com.maxclay.model;
 
-import java.util.Optional;
+/**
+ * Middle point method: two-stage method of second order with fixed step.
+ */
+public class MiddlePointMethodAlgorithm extends AbstractIntegrator {
 
-public class MiddlePointMethodAlgorithm {
-
-	/**
-	 * Algorithm accuracy.
-	 */
-	public static final double E = 1e-5;
-	
-	/**
-	 * Default number of control points.
-	 */
-	public static final int DEFAULT_CONTROL_POINTS_NUM = 33;
-	
-	/**
-	 * Starting value x0 according to the next default proviso (x0;y0) = (0;1);
-	 */
-	public static final double STARTING_X = 0;
-	
 	/**
-	 * Starting value y0 according to the next default proviso (x0;y0) = (0;1);
+	 * Method name used in reports.
 	 */
-	public static final double STARTING_Y = 1;
-	
-	/**
-	 * Default lower x boundary in x <mo>&#x2208;</mo> [LOWER_BOUNDARY; HIGHER_BOUNDARY];
-	 */
-	public static final int LOWER_BOUNDARY = 0;
-	
+	public static final String METHOD_NAME = "middle point method";
+
+	// stage vectors, reused across steps
+	private double[] k1;
+	private double[] k2;
+	private double[] stageY;
+	private double[][] stages;
+	private double[] nextY;
+	private double[] y;
+
+	private boolean outputGridSet;
+
 	/**
-	 * Default higher x boundary in x <mo>&#x2208;</mo> [LOWER_BOUNDARY; HIGHER_BOUNDARY];
+	 * Creates solver for default differential equation <msup><mi>y</mi><mo>&#x2032;</mo></msup> = y - 2 * x / y;
+	 * with default proviso.
 	 */
-	public static final int HIGHER_BOUNDARY = 5;
-	
-	
-	private double[] valuesX;
-	private double[] valuesY;
-	
-	private StringBuilder reportBuilder;
-	
 	public MiddlePointMethodAlgorithm() {
-		
-		valuesX = new double[DEFAULT_CONTROL_POINTS_NUM];
-		valuesY = new double[DEFAULT_CONTROL_POINTS_NUM];
-		
+		this(new DefaultEquation(), CauchyProblem.defaultProblem());
 	}
-	
+
 	/**
-	 * Solves default differential equation <msup><mi>y</mi><mo>&#x2032;</mo></msup> = y - 2 * x / y;<br/>
-	 * Finds corresponding 'y' values to each 'x' of set values, that formed using default boundaries and default number of control points.
-	 * @param generateReport - specifies whether to generate string report or not. 
-	 * String report can be available by using {@link #getReport() getReport()} method. 
+	 * @param function - right-hand side of the equation.
+	 * @param problem - interval, initial value and number of control points.
 	 */
-	public void run(boolean generateReport) {
-		
-		if(generateReport) {
-			reportBuilder = new StringBuilder();
-			reportBuilder.append("Solving Cauchy problem using middle point method");
-		}
-		
-		double h = findStep(LOWER_BOUNDARY, HIGHER_BOUNDARY, DEFAULT_CONTROL_POINTS_NUM);
-		
-		valuesX[0] = STARTING_X;
-		valuesY[0] = STARTING_Y;
-		
-		fillArrayX(valuesX, h);	
-        
-		if(generateReport)
-			reportBuilder.append("\n\nStep h = " + h);
-        int i = 0;
-        while(i < DEFAULT_CONTROL_POINTS_NUM - 1) {
-         
-        	double k1 = defaultFunction(valuesX[i], valuesY[i]);
-        	double xp = valuesX[i] + h / 2;
-        	double yp = valuesY[i] + k1* h / 2;
-        	double k2 = defaultFunction(xp, yp);
-        	
-        	valuesX[i + 1] = valuesX[i] + h;
-        	valuesY[i + 1] = valuesY[i] + h * k2;
-            
-            if(generateReport) {
-    			   		
-            	reportBuilder.append("\n\nx(" + (i + 1) + "): " + valuesX[i + 1]);
-    			reportBuilder.append("\ny(" + (i + 1) + "): " + valuesY[i + 1]);
-    			reportBuilder.append("\n*****************************************************************\n\n");
-            }
-            
-            i++;
-             
-        }
-        
-        if(generateReport) {
-        	reportBuilder.append("\nIteration process ended");
-        	reportBuilder.append("\n\nResults:");
-        	printResult(reportBuilder, valuesX, valuesY);
-        	reportBuilder.append("\n*****************************************************************\n");
-        }
-         
+	public MiddlePointMethodAlgorithm(RightHandSide function, CauchyProblem problem) {
+
+		super(function, problem);
+
+		k1 = new double[dimension];
+		k2 = new double[dimension];
+		stageY = new double[dimension];
+		stages = new double[][] { k1, k2 };
+		nextY = new double[dimension];
+		y = new double[dimension];
+
 	}
-	
-	/**
-	 * Provides report about iteration process of solving Cauchy problem.
-	 * @return report as an instance of {@link java.util.Optional Optional<T>} class.
-	 */
-	public Optional<String> getReport() {
-		return (reportBuilder != null) ? Optional.of(reportBuilder.toString()) : Optional.<String>empty();
+
+	public String getMethodName() {
+		return METHOD_NAME;
 	}
-	
+
 	/**
-	 * 
-	 * @return array of x values.
+	 * Solves differential equation or system of equations <msup><mi>y</mi><mo>&#x2032;</mo></msup> = f(x, y);<br/>
+	 * Finds corresponding 'y' values to each 'x' of set values, that formed using problem boundaries and number of control points:
+	 * x[i] = x0 + i * h, where h = (higherBoundary - x0) / controlPointsNum. Steps are stored in {@link #getTrajectory() trajectory},
+	 * so if {@link #setOutputGrid(double[]) output grid is set}, steps are made up to its last point and the trajectory is
+	 * sampled at its points instead.
 	 */
-	public double[] getArrayX() {
-		return valuesX;
+	protected void solve(SolverListener listener) {
+
+		int controlPointsNum = problem.getControlPointsNum();
+		double h = findStep(problem.getLowerBoundary(), problem.getHigherBoundary(), controlPointsNum);
+
+		int stepsNum = controlPointsNum - 1;
+		if(outputGridSet) {
+			double lastX = valuesX.length > 0 ? valuesX[valuesX.length - 1] : problem.getLowerBoundary();
+			stepsNum = (int) Math.max(0, Math.min(controlPointsNum, Math.ceil((lastX - problem.getLowerBoundary()) / h)));
+		}
+		else {
+			if(valuesX.length != controlPointsNum) {
+				valuesX = new double[controlPointsNum];
+				valuesY = new double[controlPointsNum * dimension];
+			}
+			fillArrayX(valuesX, h);
+			System.arraycopy(problem.getStartingY(), 0, valuesY, 0, dimension);
+		}
+
+		int n = dimension;
+		double x = problem.getLowerBoundary();
+		System.arraycopy(problem.getStartingY(), 0, y, 0, n);
+		trajectory.clear();
+
+		for(int i = 0; i < stepsNum; i++) {
+
+			System.arraycopy(y, 0, stageY, 0, n);
+			step(x, h, stageY, y, 0);
+
+			// the first stage is the derivative at the start of the step
+			if(trajectoryRecording)
+				trajectory.append(x, stageY, k1);
+
+			x += h;
+			if(!outputGridSet) {
+				valuesX[i + 1] = x;
+				System.arraycopy(y, 0, valuesY, (i + 1) * n, n);
+			}
+
+			listener.onStep(x, h, y, stages, Double.NaN, true);
+		}
+
+		if(trajectoryRecording) {
+
+			evaluate(x, y, k1);
+			trajectory.append(x, y, k1);
+			if(outputGridSet)
+				trajectory.sample(valuesX, valuesY);
+		}
+
+		acceptedStepsNum = stepsNum;
+
 	}
-	
+
 	/**
-	 * 
-	 * @return array of y values.
+	 * Integrates the equation with {@link CauchyProblem#getControlPointsNum() control points number} equal steps.
+	 * Accuracy is ignored.
 	 */
-	public double[] getArrayY() {
-		return valuesY;
+	public void integrate(double startingX, double higherBoundary, double accuracy, double[] y) {
+
+		int stepsNum = problem.getControlPointsNum();
+		double h = findStep(startingX, higherBoundary, stepsNum);
+
+		acceptedStepsNum = 0;
+		rejectedStepsNum = 0;
+		functionEvaluationsNum = 0;
+
+		for(int i = 0; i < stepsNum; i++) {
+
+			System.arraycopy(y, 0, stageY, 0, dimension);
+			step(startingX + i * h, h, stageY, y, 0);
+			acceptedStepsNum++;
+		}
 	}
-	
+
 	/**
-	 * Represents function y - 2 * x / y in default differential equation
-	 * <msup><mi>y</mi><mo>&#x2032;</mo></msup> = y - 2 * x / y;
-	 * @param x - x parameter.
-	 * @param y - y parameter.
-	 * @return function result.
+	 * Makes one step from (x, y) and writes result to out starting from offset. y is overwritten.
 	 */
-	public static double defaultFunction(double x, double y) {
-		return y - 2 * x / y;
+	private void step(double x, double h, double[] y, double[] out, int offset) {
+
+		int n = dimension;
+		evaluate(x, y, k1);
+		for(int j = 0; j < n; j++)
+			nextY[j] = y[j] + k1[j] * h / 2;
+		evaluate(x + h / 2, nextY, k2);
+
+		for(int j = 0; j < n; j++)
+			out[offset + j] = y[j] + h * k2[j];
 	}
-	
+
 	/**
-	 * Represents function sqrt(2x + 1) that is an analytical solution for default differential equation
-	 * <msup><mi>y</mi><mo>&#x2032;</mo></msup> = y - 2 * x / y;
-	 * @param x - x parameter.
-	 * @return function result.
+	 * Sets 'x' values the solution is sampled at; steps stay the same, so values between them are interpolated.
+	 * Trajectory recording must be on.
+	 * @param outputX - ascending x values within problem interval.
 	 */
-	public static double analyticalSolutionForDefaultEquation(double x) {
-		return Math.sqrt(2 * x + 1);
-	}
-	
-	private void fillArrayX(double[] x, double h) {
-        
-        for (int i = 1; i < x.length; i++)
-            x[i] = x[i - 1] + h;
-        
-    }
-	
-	private void printResult(StringBuilder report, double[] valuesX, double[] valuesY) {
-		
-		for(int i = 0; i < valuesX.length; i++)
-			report.append(String.format("\nx[%d] = %10.5f\ty[%d] = %10.5f", i, valuesX[i], i, valuesY[i]));
-	}
-	
-	private double findStep(double lowerBoundary, double higherBoundary, int controlPointsNum) {
-		return (higherBoundary - lowerBoundary) / controlPointsNum;
-		
+	@Override
+	public void setOutputGrid(double[] outputX) {
+
+		super.setOutputGrid(outputX);
+		outputGridSet = true;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package com.maxclay.model;
+
+/**
+ * Listener that ignores all events. Calls to it are inlined to nothing by JIT compiler.
+ */
+public final class NullSolverListener implements SolverListener {
+
+	public static final NullSolverListener INSTANCE = new NullSolverListener();
+
+	private NullSolverListener() {
+	}
+
+	public void onStart(String methodName, CauchyProblem problem) {
+	}
+
+	public void onStep(double x, double h, double[] y, double[][] stages, double error, boolean accepted) {
+	}
+
+	public void onFinish(double[] valuesX, double[] valuesY, int acceptedStepsNum, int rejectedStepsNum, int functionEvaluationsNum) {
+	}
+}
@@ -0,0 +1,340 @@
+package com.maxclay.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link Trajectory} kept outside of the Java heap, for solutions that don't fit in it.<br/>
+ * Points are stored in chunks of direct buffers of about {@link #DEFAULT_CHUNK_BYTES} bytes each, holding a power of
+ * two number of points, but at least one point for any dimension. Trajectory grows by allocating
+ * new chunks, so appending never copies stored points, and the heap holds only a few objects per chunk, so
+ * garbage collection pauses don't grow with trajectory length. Within a chunk each point is stored as
+ * x, y vector and y' vector, one after another.<br/>
+ * Size of the trajectory is limited by direct memory (-XX:MaxDirectMemorySize), which is released when the
+ * trajectory is no longer referenced or after {@link #clear() clear()} and {@link #trimToSize() trimToSize()}.<br/>
+ * Long trajectories should be read with {@link #cursor() cursor}; {@link #getArrayX() getArrayX()} and
+ * {@link #getArrayY() getArrayY()} copy them into the heap.
+ */
+public class OffHeapTrajectory extends Trajectory {
+
+	/**
+	 * Default size of one chunk in bytes. Chunk holds as many points as fit in it, rounded down to a power of two.
+	 */
+	public static final int DEFAULT_CHUNK_BYTES = 1 << 22;
+
+	private final int dimension;
+	private final int stride;
+	private final int chunkShift;
+	private final int chunkMask;
+	private final List<DoubleBuffer> chunks;
+	private int size;
+
+	/**
+	 * Creates trajectory with chunks of about {@link #DEFAULT_CHUNK_BYTES} bytes.
+	 * @param dimension - number of unknowns.
+	 */
+	public OffHeapTrajectory(int dimension) {
+		this(dimension, chunkPoints(dimension, DEFAULT_CHUNK_BYTES));
+	}
+
+	/**
+	 * @param dimension - number of unknowns.
+	 * @param chunkPoints - number of points in one chunk, power of two.
+	 * @throws IllegalArgumentException if chunk takes more than {@link Integer#MAX_VALUE} bytes.
+	 */
+	public OffHeapTrajectory(int dimension, int chunkPoints) {
+
+		super(dimension, 0);
+		if(chunkPoints <= 0 || Integer.bitCount(chunkPoints) != 1)
+			throw new IllegalArgumentException("Number of points in chunk must be a power of two");
+		if(chunkPoints * pointBytes(dimension) > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Chunk is too large for dimension " + dimension);
+
+		this.dimension = dimension;
+		stride = 1 + 2 * dimension;
+		chunkShift = Integer.numberOfTrailingZeros(chunkPoints);
+		chunkMask = chunkPoints - 1;
+		chunks = new ArrayList<>();
+	}
+
+	@Override
+	public void append(double x, double[] y, double[] dydx) {
+
+		if(size == Integer.MAX_VALUE)
+			throw new IllegalStateException("Trajectory is full");
+		if(size >>> chunkShift == chunks.size())
+			chunks.add(ByteBuffer.allocateDirect((int) getChunkBytes()).order(ByteOrder.nativeOrder()).asDoubleBuffer());
+
+		DoubleBuffer chunk = chunks.get(size >>> chunkShift);
+		int offset = (size & chunkMask) * stride;
+		chunk.put(offset, x);
+		for(int j = 0; j < dimension; j++) {
+			chunk.put(offset + 1 + j, y[j]);
+			chunk.put(offset + 1 + dimension + j, dydx[j]);
+		}
+		size++;
+	}
+
+	@Override
+	public void append(Trajectory other) {
+
+		if(other.getDimension() != dimension)
+			throw new IllegalArgumentException("Trajectory dimensions differ");
+
+		double[] y = new double[dimension];
+		double[] dydx = new double[dimension];
+		TrajectoryCursor cursor = other.cursor();
+		if(size > 0)
+			cursor.seek(getX(size - 1));
+
+		while(cursor.next()) {
+
+			if(size > 0 && cursor.getX() <= getX(size - 1))
+				continue;
+
+			for(int j = 0; j < dimension; j++) {
+				y[j] = cursor.getY(j);
+				dydx[j] = cursor.getDerivative(j);
+			}
+			append(cursor.getX(), y, dydx);
+		}
+	}
+
+	/**
+	 * Removes all points, keeping allocated chunks.
+	 */
+	@Override
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Releases chunks that hold no points.
+	 */
+	public void trimToSize() {
+
+		int used = (size + chunkMask) >>> chunkShift;
+		while(chunks.size() > used)
+			chunks.remove(chunks.size() - 1);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int getDimension() {
+		return dimension;
+	}
+
+	/**
+	 *
+	 * @return number of bytes of direct memory held by the trajectory.
+	 */
+	public long getAllocatedBytes() {
+		return chunks.size() * getChunkBytes();
+	}
+
+	/**
+	 *
+	 * @return number of points in one chunk.
+	 */
+	public int getChunkPoints() {
+		return chunkMask + 1;
+	}
+
+	/**
+	 *
+	 * @return number of bytes of direct memory allocated for one chunk.
+	 */
+	public long getChunkBytes() {
+		return (chunkMask + 1) * pointBytes(dimension);
+	}
+
+	/**
+	 * Finds number of points in a chunk of about given size.
+	 * @param dimension - number of unknowns.
+	 * @param chunkBytes - target size of one chunk in bytes.
+	 * @return the largest power of two number of points that fits in chunkBytes, at least one.
+	 */
+	public static int chunkPoints(int dimension, long chunkBytes) {
+		return (int) Math.max(1, Long.highestOneBit(Math.min(chunkBytes / pointBytes(dimension), 1 << 30)));
+	}
+
+	private static long pointBytes(int dimension) {
+		return (1 + 2L * dimension) * Double.BYTES;
+	}
+
+	@Override
+	public double getX(int i) {
+		return chunks.get(i >>> chunkShift).get((i & chunkMask) * stride);
+	}
+
+	@Override
+	public double getY(int i) {
+		return getY(i, 0);
+	}
+
+	@Override
+	public double getY(int i, int component) {
+		return chunks.get(i >>> chunkShift).get((i & chunkMask) * stride + 1 + component);
+	}
+
+	@Override
+	public double getDerivative(int i, int component) {
+		return chunks.get(i >>> chunkShift).get((i & chunkMask) * stride + 1 + dimension + component);
+	}
+
+	@Override
+	public void getY(int i, double[] y) {
+
+		DoubleBuffer chunk = chunks.get(i >>> chunkShift);
+		int offset = (i & chunkMask) * stride + 1;
+		for(int j = 0; j < dimension; j++)
+			y[j] = chunk.get(offset + j);
+	}
+
+	@Override
+	public void getDerivative(int i, double[] dydx) {
+
+		DoubleBuffer chunk = chunks.get(i >>> chunkShift);
+		int offset = (i & chunkMask) * stride + 1 + dimension;
+		for(int j = 0; j < dimension; j++)
+			dydx[j] = chunk.get(offset + j);
+	}
+
+	@Override
+	public TrajectoryCursor cursor() {
+		return new ChunkCursor();
+	}
+
+	/**
+	 *
+	 * @return copy of stored x values in the heap.
+	 */
+	@Override
+	public double[] getArrayX() {
+
+		double[] valuesX = new double[size];
+		for(int i = 0; i < size; i++)
+			valuesX[i] = getX(i);
+		return valuesX;
+	}
+
+	/**
+	 *
+	 * @return copy of stored y values in row-major order in the heap.
+	 * @throws IllegalStateException if they don't fit in an array.
+	 */
+	@Override
+	public double[] getArrayY() {
+
+		if((long) size * dimension > Integer.MAX_VALUE - 8)
+			throw new IllegalStateException("Trajectory is too long to be copied into an array");
+
+		double[] valuesY = new double[size * dimension];
+		for(int i = 0; i < size; i++)
+			getY(i, valuesY, i * dimension);
+		return valuesY;
+	}
+
+	@Override
+	public void interpolate(double x, double[] y, int offset) {
+
+		if(size == 0)
+			throw new IllegalStateException("Trajectory is empty");
+		if(size == 1) {
+			getY(0, y, offset);
+			return;
+		}
+
+		int i = findSegment(x);
+		DoubleBuffer startChunk = chunks.get(i >>> chunkShift);
+		DoubleBuffer endChunk = chunks.get((i + 1) >>> chunkShift);
+		int start = (i & chunkMask) * stride;
+		int end = ((i + 1) & chunkMask) * stride;
+
+		double h = endChunk.get(end) - startChunk.get(start);
+		double t = (x - startChunk.get(start)) / h;
+		double t2 = t * t;
+		double t3 = t2 * t;
+
+		double h00 = 2 * t3 - 3 * t2 + 1;
+		double h10 = (t3 - 2 * t2 + t) * h;
+		double h01 = -2 * t3 + 3 * t2;
+		double h11 = (t3 - t2) * h;
+
+		for(int j = 0; j < dimension; j++)
+			y[offset + j] = h00 * startChunk.get(start + 1 + j) + h10 * startChunk.get(start + 1 + dimension + j)
+					+ h01 * endChunk.get(end + 1 + j) + h11 * endChunk.get(end + 1 + dimension + j);
+	}
+
+	private void getY(int i, double[] y, int offset) {
+
+		DoubleBuffer chunk = chunks.get(i >>> chunkShift);
+		int start = (i & chunkMask) * stride + 1;
+		for(int j = 0; j < dimension; j++)
+			y[offset + j] = chunk.get(start + j);
+	}
+
+	private int findSegment(double x) {
+
+		int low = 0;
+		int high = size - 2;
+		while(low < high) {
+
+			int middle = (low + high + 1) >>> 1;
+			if(getX(middle) <= x)
+				low = middle;
+			else
+				high = middle - 1;
+		}
+
+		return low;
+	}
+
+	private class ChunkCursor implements TrajectoryCursor {
+
+		private int index = -1;
+		private DoubleBuffer chunk;
+		private int offset;
+
+		public boolean next() {
+
+			if(index + 1 >= size)
+				return false;
+
+			index++;
+			offset = (index & chunkMask) * stride;
+			if(offset == 0 || chunk == null)
+				chunk = chunks.get(index >>> chunkShift);
+			return true;
+		}
+
+		public void seek(double x) {
+
+			index = (size == 0 || x <= OffHeapTrajectory.this.getX(0)) ? -1 : findSegment(x) - 1;
+			chunk = null;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public double getX() {
+			return chunk.get(offset);
+		}
+
+		public double getY(int component) {
+			return chunk.get(offset + 1 + component);
+		}
+
+		public double getDerivative(int component) {
+			return chunk.get(offset + 1 + dimension + component);
+		}
+	}
+}
@@ -0,0 +1,358 @@
+package com.maxclay.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Solves the same Cauchy problem for many values of equation parameter p by Kutta-Merson method, together with
+ * forward sensitivities s = dy/dp, which allow to {@link SweepResult#interpolate(double, int, int) interpolate}
+ * between swept values or to drive optimizers.<br/>
+ * Parameter values are split into batches that are integrated in lock-step: the whole batch makes the same steps,
+ * chosen by the largest error estimate of its members, and each stage is a single {@link BatchRightHandSide} call over
+ * interleaved vectors, so loop overhead is shared and loops over members can be vectorized. Batches are solved in
+ * parallel on {@link ForkJoinPool} workers.<br/>
+ * Sensitivities follow s' = (<mfrac><mrow>&#x2202;f</mrow><mrow>&#x2202;y</mrow></mfrac>) s + <mfrac><mrow>&#x2202;f</mrow><mrow>&#x2202;p</mrow></mfrac>,
+ * s(x0) = 0, and are integrated by the same stages as y. The right-hand side of this equation is found as directional
+ * difference (f(x, y + &#x3B5; s, p + &#x3B5;) - f(x, y, p)) / &#x3B5;, which costs one more batch evaluation per stage
+ * and needs no Jacobian. Step size is controlled by error of y only.<br/>
+ * Steps are shortened to end at the points of the output grid, so solution is found there without interpolation.
+ */
+public class ParameterSweep {
+
+	/**
+	 * Default number of parameter values integrated in lock-step.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	/**
+	 * Relative increment of the parameter used for directional differences.
+	 */
+	public static final double DIFFERENCE_STEP = Math.sqrt(Math.ulp(1.0));
+
+	private final BatchRightHandSide function;
+	private final CauchyProblem problem;
+	private final ForkJoinPool pool;
+
+	private int batchSize;
+	private boolean sensitivityComputation;
+
+	/**
+	 * Creates sweep that runs on common pool.
+	 * @param function - right-hand side of the equations. Must be safe to call from several threads.
+	 * @param problem - interval, initial value, accuracy and number of control points, the same for all parameter values.
+	 */
+	public ParameterSweep(BatchRightHandSide function, CauchyProblem problem) {
+		this(function, problem, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param function - right-hand side of the equations. Must be safe to call from several threads.
+	 * @param problem - interval, initial value, accuracy and number of control points, the same for all parameter values.
+	 * @param pool - pool to run on.
+	 */
+	public ParameterSweep(BatchRightHandSide function, CauchyProblem problem, ForkJoinPool pool) {
+
+		this.function = function;
+		this.problem = problem;
+		this.pool = pool;
+		batchSize = DEFAULT_BATCH_SIZE;
+		sensitivityComputation = true;
+	}
+
+	/**
+	 * Sets number of parameter values integrated in lock-step. Larger batches share more overhead, but the whole batch
+	 * makes as small steps as its most demanding member needs.
+	 * @param batchSize - number of values, at least 1.
+	 */
+	public void setBatchSize(int batchSize) {
+
+		if(batchSize < 1)
+			throw new IllegalArgumentException("Batch must contain at least one parameter value");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Specifies whether to integrate sensitivities dy/dp along with y.
+	 * @param sensitivityComputation - true to compute sensitivities (default), false to halve the number of evaluations.
+	 */
+	public void setSensitivityComputation(boolean sensitivityComputation) {
+		this.sensitivityComputation = sensitivityComputation;
+	}
+
+	/**
+	 * Solves the problem for each parameter value.
+	 * @param parameters - parameter values. They must be in ascending order to interpolate between them.
+	 * @return y and sensitivities at {@link CauchyProblem#getControlPointsNum() control points number} evenly spaced points.
+	 */
+	public SweepResult solve(double[] parameters) {
+
+		double[] valuesX = new double[problem.getControlPointsNum()];
+		double h = (problem.getHigherBoundary() - problem.getLowerBoundary()) / (valuesX.length - 1);
+		valuesX[0] = problem.getLowerBoundary();
+		for(int i = 1; i < valuesX.length; i++)
+			valuesX[i] = valuesX[i - 1] + h;
+		valuesX[valuesX.length - 1] = problem.getHigherBoundary();
+
+		SweepResult result = new SweepResult(parameters, valuesX, problem.getDimension(), sensitivityComputation);
+		if(parameters.length > 0)
+			pool.invoke(new SweepTask(parameters, result, 0, parameters.length));
+		return result;
+	}
+
+	private class SweepTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] parameters;
+		private final SweepResult result;
+		private final int from;
+		private final int to;
+
+		SweepTask(double[] parameters, SweepResult result, int from, int to) {
+
+			this.parameters = parameters;
+			this.result = result;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(to - from > batchSize) {
+
+				// split at batch boundary, so batches are full except the last one
+				int middle = from + ((to - from) / batchSize + 1) / 2 * batchSize;
+				invokeAll(new SweepTask(parameters, result, from, middle), new SweepTask(parameters, result, middle, to));
+				return;
+			}
+
+			new Batch(Arrays.copyOfRange(parameters, from, to)).solve(result, from);
+		}
+	}
+
+	/**
+	 * Buffers and step loop of one batch. Vectors are interleaved: component j of member m is at index j * count + m.
+	 */
+	private class Batch {
+
+		private final int count;
+		private final int size;
+		private final double[] p;
+		private final double[] shiftedP;
+		private final double[] epsilon;
+
+		private double[] y;
+		private double[] s;
+		private double[] nextY;
+		private double[] nextS;
+		private final double[] tempY;
+		private final double[] stageY;
+		private final double[] stageS;
+		private final double[] shiftedY;
+		private final double[] shiftedF;
+		private final double[][] k;
+		private final double[][] l;
+
+		private int evaluationsNum;
+
+		Batch(double[] p) {
+
+			this.p = p;
+			count = p.length;
+			size = count * problem.getDimension();
+
+			shiftedP = new double[count];
+			epsilon = new double[count];
+			for(int m = 0; m < count; m++) {
+				epsilon[m] = DIFFERENCE_STEP * Math.max(1, Math.abs(p[m]));
+				shiftedP[m] = p[m] + epsilon[m];
+			}
+
+			y = new double[size];
+			nextY = new double[size];
+			tempY = new double[size];
+			stageY = new double[size];
+			k = new double[KuttaMersonMethodAlgorithm.STAGES_NUM][size];
+
+			int sensitivitySize = sensitivityComputation ? size : 0;
+			s = new double[sensitivitySize];
+			nextS = new double[sensitivitySize];
+			stageS = new double[sensitivitySize];
+			shiftedY = new double[sensitivitySize];
+			shiftedF = new double[sensitivitySize];
+			l = new double[KuttaMersonMethodAlgorithm.STAGES_NUM][sensitivitySize];
+		}
+
+		void solve(SweepResult result, int first) {
+
+			double[] startingY = problem.getStartingY();
+			for(int j = 0; j < startingY.length; j++)
+				Arrays.fill(y, j * count, (j + 1) * count, startingY[j]);
+
+			int acceptedStepsNum = 0;
+			int rejectedStepsNum = 0;
+			boolean failed = false;
+			try {
+				double[] valuesX = result.getArrayX();
+				store(result, first, 0);
+
+				double E = problem.getAccuracy();
+				double maxStep = problem.getHigherBoundary() - problem.getLowerBoundary();
+				double h = maxStep / problem.getControlPointsNum();
+				double x = valuesX[0];
+				int point = 1;
+
+				evaluateStage(x, y, s, 0);
+				while(point < valuesX.length) {
+
+					double target = valuesX[point];
+					boolean clipped = x + h >= target;
+					double stepH = clipped ? target - x : h;
+
+					double R = step(x, stepH);
+					double factor = (R == 0) ? KuttaMersonMethodAlgorithm.MAX_STEP_FACTOR
+							: KuttaMersonMethodAlgorithm.SAFETY_FACTOR * Math.pow(E / R, 0.2);
+					factor = Double.isFinite(R)
+							? Math.max(KuttaMersonMethodAlgorithm.MIN_STEP_FACTOR, Math.min(KuttaMersonMethodAlgorithm.MAX_STEP_FACTOR, factor))
+							: KuttaMersonMethodAlgorithm.MIN_STEP_FACTOR;
+
+					// NaN error rejects the step as well
+					if(!(R <= E)) {
+
+						rejectedStepsNum++;
+						h = stepH * Math.min(factor, 1);
+						if(!(h >= KuttaMersonMethodAlgorithm.MIN_STEP))
+							throw new IllegalStateException("Integration step became smaller than " + KuttaMersonMethodAlgorithm.MIN_STEP + " at x = " + x);
+						continue;
+					}
+
+					acceptedStepsNum++;
+					x = clipped ? target : x + stepH;
+
+					double[] swap = y;
+					y = nextY;
+					nextY = swap;
+					swap = s;
+					s = nextS;
+					nextS = swap;
+					evaluateStage(x, y, s, 0);
+
+					if(clipped)
+						store(result, first, point++);
+
+					// step shortened to reach the grid point says nothing about the step that can be made next
+					h = Math.min(maxStep, clipped ? Math.max(h, stepH * factor) : stepH * factor);
+				}
+			} catch (IllegalStateException e) {
+				failed = true;
+				fillNaN(result, first);
+			}
+
+			for(int m = 0; m < count; m++)
+				result.setStatistics(first + m, acceptedStepsNum, rejectedStepsNum, evaluationsNum, failed);
+		}
+
+		/**
+		 * Makes Kutta-Merson step from x with first stage already evaluated, writes result to nextY and nextS.
+		 * @return error estimate of y, the largest over all members.
+		 */
+		private double step(double x, double h) {
+
+			double[] k1 = k[0], k2 = k[1], k3 = k[2], k4 = k[3], k5 = k[4];
+			double[] l1 = l[0], l2 = l[1], l3 = l[2], l4 = l[3], l5 = l[4];
+			int n = stageS.length;
+
+			for(int i = 0; i < size; i++)
+				stageY[i] = y[i] + h * k1[i] / 3;
+			for(int i = 0; i < n; i++)
+				stageS[i] = s[i] + h * l1[i] / 3;
+			evaluateStage(x + h / 3, stageY, stageS, 1);
+
+			for(int i = 0; i < size; i++)
+				stageY[i] = y[i] + h * k1[i] / 6 + h * k2[i] / 6;
+			for(int i = 0; i < n; i++)
+				stageS[i] = s[i] + h * l1[i] / 6 + h * l2[i] / 6;
+			evaluateStage(x + h / 3, stageY, stageS, 2);
+
+			for(int i = 0; i < size; i++)
+				stageY[i] = y[i] + h * k1[i] / 8 + h * 3 * k3[i] / 8;
+			for(int i = 0; i < n; i++)
+				stageS[i] = s[i] + h * l1[i] / 8 + h * 3 * l3[i] / 8;
+			evaluateStage(x + h / 2, stageY, stageS, 3);
+
+			for(int i = 0; i < size; i++)
+				stageY[i] = y[i] + h * k1[i] / 2 - h * 3 * k3[i] / 2 + h * 2 * k4[i];
+			for(int i = 0; i < n; i++)
+				stageS[i] = s[i] + h * l1[i] / 2 - h * 3 * l3[i] / 2 + h * 2 * l4[i];
+			evaluateStage(x + h, stageY, stageS, 4);
+
+			double R = 0;
+			for(int i = 0; i < size; i++) {
+				nextY[i] = y[i] + h / 6 * (k1[i] + 4 * k4[i] + k5[i]);
+				tempY[i] = y[i] + h / 2 * (k1[i] - 3 * k3[i] + 4 * k4[i]);
+				R = Math.max(R, 0.2 * Math.abs(nextY[i] - tempY[i]));
+			}
+			for(int i = 0; i < n; i++)
+				nextS[i] = s[i] + h / 6 * (l1[i] + 4 * l4[i] + l5[i]);
+
+			return R;
+		}
+
+		/**
+		 * Evaluates f into k[stage] and right-hand side of sensitivity equation into l[stage].
+		 */
+		private void evaluateStage(double x, double[] stageY, double[] stageS, int stage) {
+
+			double[] f = k[stage];
+			function.evaluate(x, stageY, p, count, f);
+			evaluationsNum++;
+			if(!sensitivityComputation)
+				return;
+
+			int dimension = problem.getDimension();
+			for(int j = 0; j < dimension; j++) {
+				int offset = j * count;
+				for(int m = 0; m < count; m++)
+					shiftedY[offset + m] = stageY[offset + m] + epsilon[m] * stageS[offset + m];
+			}
+			function.evaluate(x, shiftedY, shiftedP, count, shiftedF);
+			evaluationsNum++;
+
+			double[] g = l[stage];
+			for(int j = 0; j < dimension; j++) {
+				int offset = j * count;
+				for(int m = 0; m < count; m++)
+					g[offset + m] = (shiftedF[offset + m] - f[offset + m]) / epsilon[m];
+			}
+		}
+
+		private void store(SweepResult result, int first, int point) {
+
+			double[] valuesY = result.getArrayY();
+			double[] sensitivities = result.getArraySensitivities();
+			int dimension = problem.getDimension();
+			for(int m = 0; m < count; m++)
+				for(int j = 0; j < dimension; j++) {
+					int index = result.index(point, first + m, j);
+					valuesY[index] = y[j * count + m];
+					if(sensitivities != null)
+						sensitivities[index] = s[j * count + m];
+				}
+		}
+
+		private void fillNaN(SweepResult result, int first) {
+
+			double[] sensitivities = result.getArraySensitivities();
+			for(int point = 0; point < result.getArrayX().length; point++)
+				for(int m = 0; m < count; m++)
+					for(int j = 0; j < problem.getDimension(); j++) {
+						int index = result.index(point, first + m, j);
+						result.getArrayY()[index] = Double.NaN;
+						if(sensitivities != null)
+							sensitivities[index] = Double.NaN;
+					}
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.maxclay.model;
+
+/**
+ * Right-hand side f(x, y, p) of a family of equations <msup><mi>y</mi><mo>&#x2032;</mo></msup> = f(x, y, p);
+ * differing in scalar parameter p.
+ */
+@FunctionalInterface
+public interface ParametricRightHandSide {
+
+	/**
+	 * Evaluates f(x, y, p).
+	 * @param x - x parameter.
+	 * @param y - y parameter. Must not be modified.
+	 * @param p - parameter of the equation.
+	 * @param dydx - array to write function result to.
+	 */
+	void evaluate(double x, double[] y, double p, double[] dydx);
+}
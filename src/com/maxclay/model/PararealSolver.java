@@ -0,0 +1,427 @@
+package com.maxclay.model;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel-in-time integration by Parareal method.<br/>
+ * Interval is split into slices at the points of the output grid. Each iteration solves all slices at once with the fine
+ * propagator ({@link KuttaMersonMethodAlgorithm}) on {@link ForkJoinPool} workers, starting from the current
+ * values at slice boundaries, and then corrects the boundaries with a sequential sweep of the cheap coarse
+ * propagator ({@link MiddlePointMethodAlgorithm} with {@link #setCoarseStepsNum(int) few} steps per slice):<br/>
+ * U[i + 1] = G(U'[i]) + F(U[i]) - G(U[i]), where U' are the new values.<br/>
+ * Iterations stop when boundary values change by no more than problem accuracy. After k iterations the first k
+ * slices are exact, so at most as many iterations as slices are made and solved slices are not recomputed.
+ * Solving pays off when iterations are much fewer than slices and cores are available for the fine sweeps;
+ * {@link #setSpeedupMeasurement(boolean) speedup} against serial Kutta-Merson run can be measured along with solving.
+ */
+public class PararealSolver extends AbstractIntegrator {
+
+	/**
+	 * Method name used in reports.
+	 */
+	public static final String METHOD_NAME = "Parareal method";
+
+	/**
+	 * Default number of steps coarse propagator makes per slice.
+	 */
+	public static final int DEFAULT_COARSE_STEPS_NUM = 2;
+
+	/**
+	 * Default limit of iterations.
+	 */
+	public static final int DEFAULT_MAX_ITERATIONS = 20;
+
+	private final ForkJoinPool pool;
+
+	private int coarseStepsNum;
+	private int maxIterations;
+	private boolean speedupMeasurement;
+	private MiddlePointMethodAlgorithm coarse;
+
+	// statistics of the last run
+	private int slicesNum;
+	private int iterationsNum;
+	private boolean converged;
+	private double[] corrections;
+	private long parallelNanos;
+	private long serialNanos;
+	private double serialDeviation;
+
+	/**
+	 * Creates solver that runs on common pool.
+	 * @param function - right-hand side of the equation. Must be safe to call from several threads.
+	 * @param problem - interval, initial value, accuracy and number of control points, which also bound the slices.
+	 */
+	public PararealSolver(RightHandSide function, CauchyProblem problem) {
+		this(function, problem, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param function - right-hand side of the equation. Must be safe to call from several threads.
+	 * @param problem - interval, initial value, accuracy and number of control points, which also bound the slices.
+	 * @param pool - pool to run fine propagator on.
+	 */
+	public PararealSolver(RightHandSide function, CauchyProblem problem, ForkJoinPool pool) {
+
+		super(function, problem);
+
+		this.pool = pool;
+		coarseStepsNum = DEFAULT_COARSE_STEPS_NUM;
+		maxIterations = DEFAULT_MAX_ITERATIONS;
+		corrections = new double[0];
+		serialDeviation = Double.NaN;
+	}
+
+	public String getMethodName() {
+		return METHOD_NAME;
+	}
+
+	/**
+	 * Solves differential equation or system of equations <msup><mi>y</mi><mo>&#x2032;</mo></msup> = f(x, y);<br/>
+	 * Slices are bounded by lower boundary and the points of output grid, so solution is found at each of them directly.
+	 * Listener receives the slice boundaries once iterations are over. Step counters sum up steps of both propagators
+	 * over all iterations.
+	 */
+	protected void solve(SolverListener listener) {
+
+		long start = System.nanoTime();
+
+		double lowerBoundary = problem.getLowerBoundary();
+		boolean lowerIncluded = valuesX[0] == lowerBoundary;
+		double[] boundaries = valuesX;
+		if(!lowerIncluded) {
+			boundaries = new double[valuesX.length + 1];
+			boundaries[0] = lowerBoundary;
+			System.arraycopy(valuesX, 0, boundaries, 1, valuesX.length);
+		}
+
+		double[] u = iterate(boundaries, problem.getStartingY(), problem.getAccuracy());
+		System.arraycopy(u, lowerIncluded ? 0 : dimension, valuesY, 0, valuesX.length * dimension);
+
+		int d = dimension;
+		double[] y = new double[d];
+		trajectory.clear();
+		double[] dydx = new double[d];
+		double[][] stages = { dydx };
+		for(int i = 0; i < boundaries.length; i++) {
+
+			System.arraycopy(u, i * d, y, 0, d);
+			if(trajectoryRecording) {
+				evaluate(boundaries[i], y, dydx);
+				trajectory.append(boundaries[i], y, dydx);
+			}
+			if(i > 0)
+				listener.onStep(boundaries[i], boundaries[i] - boundaries[i - 1], y, stages, Double.NaN, true);
+		}
+
+		parallelNanos = System.nanoTime() - start;
+
+		if(speedupMeasurement)
+			measureSerialRun();
+	}
+
+	/**
+	 * Integrates the equation from arbitrary starting point up to higherBoundary by Parareal method, splitting the interval
+	 * into {@link CauchyProblem#getControlPointsNum() control points number} - 1 equal slices. Trajectory and report
+	 * are not stored, step counters and iteration statistics are updated.
+	 * @param startingX - x0.
+	 * @param higherBoundary - x to integrate up to.
+	 * @param accuracy - accuracy of fine propagator and of the convergence check.
+	 * @param y - initial value y(x0) on input, y(higherBoundary) on output.
+	 */
+	public void integrate(double startingX, double higherBoundary, double accuracy, double[] y) {
+
+		int n = problem.getControlPointsNum() - 1;
+		double[] boundaries = new double[n + 1];
+		double h = findStep(startingX, higherBoundary, n);
+		for(int i = 0; i < n; i++)
+			boundaries[i] = startingX + i * h;
+		boundaries[n] = higherBoundary;
+
+		acceptedStepsNum = 0;
+		rejectedStepsNum = 0;
+		functionEvaluationsNum = 0;
+
+		double[] u = iterate(boundaries, y, accuracy);
+		System.arraycopy(u, n * dimension, y, 0, dimension);
+	}
+
+	/**
+	 * Makes Parareal iterations over given slices, adding steps of both propagators to the counters.
+	 * @return values at slice boundaries in row-major order.
+	 */
+	private double[] iterate(double[] boundaries, double[] startingY, double accuracy) {
+
+		int n = boundaries.length - 1;
+		int d = dimension;
+		int iterationsLimit = Math.min(maxIterations, n);
+
+		if(coarse == null || coarse.getProblem().getControlPointsNum() != coarseStepsNum)
+			coarse = new MiddlePointMethodAlgorithm(function, new CauchyProblem(problem.getLowerBoundary(), problem.getHigherBoundary(),
+					problem.getStartingY(), problem.getAccuracy(), coarseStepsNum));
+
+		// values at slice boundaries, coarse and fine solutions at the ends of slices, all in row-major order
+		double[] u = new double[(n + 1) * d];
+		double[] coarseY = new double[n * d];
+		double[] fineY = new double[n * d];
+		int[] fineCounters = new int[n * 3];
+		double[] y = new double[d];
+
+		slicesNum = n;
+		iterationsNum = 0;
+		converged = false;
+		corrections = new double[iterationsLimit];
+
+		// initial guess
+		System.arraycopy(startingY, 0, u, 0, d);
+		for(int i = 0; i < n; i++) {
+
+			System.arraycopy(u, i * d, y, 0, d);
+			propagateCoarse(boundaries[i], boundaries[i + 1], y);
+			System.arraycopy(y, 0, coarseY, i * d, d);
+			System.arraycopy(y, 0, u, (i + 1) * d, d);
+		}
+
+		for(int k = 0; k < iterationsLimit && !converged; k++) {
+
+			int chunkSize = Math.max(1, (n - k) / (pool.getParallelism() * KuttaMersonBatchSolver.CHUNKS_PER_THREAD));
+			pool.invoke(new FineTask(boundaries, u, fineY, fineCounters, k, n, chunkSize, accuracy));
+			for(int i = k; i < n; i++) {
+				acceptedStepsNum += fineCounters[i * 3];
+				rejectedStepsNum += fineCounters[i * 3 + 1];
+				functionEvaluationsNum += fineCounters[i * 3 + 2];
+			}
+
+			// start of slice k is already exact, so its end is the fine solution
+			double correction = 0;
+			for(int j = 0; j < d; j++) {
+				correction = Math.max(correction, Math.abs(fineY[k * d + j] - u[(k + 1) * d + j]));
+				u[(k + 1) * d + j] = fineY[k * d + j];
+			}
+
+			for(int i = k + 1; i < n; i++) {
+
+				System.arraycopy(u, i * d, y, 0, d);
+				propagateCoarse(boundaries[i], boundaries[i + 1], y);
+
+				int row = i * d;
+				int next = row + d;
+				for(int j = 0; j < d; j++) {
+
+					double value = y[j] + fineY[row + j] - coarseY[row + j];
+					correction = Math.max(correction, Math.abs(value - u[next + j]));
+					u[next + j] = value;
+					coarseY[row + j] = y[j];
+				}
+			}
+
+			corrections[k] = correction;
+			iterationsNum = k + 1;
+			converged = correction <= accuracy || iterationsNum == n;
+		}
+
+		return u;
+	}
+
+	private void propagateCoarse(double lowerBoundary, double higherBoundary, double[] y) {
+
+		coarse.integrate(lowerBoundary, higherBoundary, 0, y);
+		acceptedStepsNum += coarse.getAcceptedStepsNum();
+		functionEvaluationsNum += coarse.getFunctionEvaluationsNum();
+	}
+
+	/**
+	 * Solves the problem by {@link KuttaMersonMethodAlgorithm} on the calling thread on the same output grid,
+	 * timing it and comparing its solution with the one found by Parareal method.
+	 */
+	private void measureSerialRun() {
+
+		KuttaMersonMethodAlgorithm serial = new KuttaMersonMethodAlgorithm(function, problem);
+		serial.setOutputGrid(valuesX);
+
+		long start = System.nanoTime();
+		serial.run(false);
+		serialNanos = System.nanoTime() - start;
+
+		double[] serialY = serial.getArrayY();
+		serialDeviation = 0;
+		for(int i = 0; i < serialY.length; i++)
+			serialDeviation = Math.max(serialDeviation, Math.abs(serialY[i] - valuesY[i]));
+	}
+
+	/**
+	 * Sets number of equal steps coarse propagator makes per slice. More steps make coarse propagator more accurate,
+	 * and so iterations fewer, but sequential sweeps longer.
+	 * @param coarseStepsNum - number of steps, at least 2.
+	 */
+	public void setCoarseStepsNum(int coarseStepsNum) {
+
+		if(coarseStepsNum < 2)
+			throw new IllegalArgumentException("Coarse propagator must make at least two steps per slice");
+		this.coarseStepsNum = coarseStepsNum;
+	}
+
+	/**
+	 * Sets limit of iterations. When it is reached before convergence, solution is as accurate as
+	 * the last iteration made it, see {@link #isConverged()}.
+	 * @param maxIterations - maximal number of iterations, at least 1.
+	 */
+	public void setMaxIterations(int maxIterations) {
+
+		if(maxIterations < 1)
+			throw new IllegalArgumentException("At least one iteration is required");
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Specifies whether to solve the problem serially by Kutta-Merson method after each run to report speedup.
+	 * @param speedupMeasurement - true to measure speedup, false otherwise (default).
+	 */
+	public void setSpeedupMeasurement(boolean speedupMeasurement) {
+		this.speedupMeasurement = speedupMeasurement;
+	}
+
+	/**
+	 *
+	 * @return number of slices of the last run.
+	 */
+	public int getSlicesNum() {
+		return slicesNum;
+	}
+
+	/**
+	 *
+	 * @return number of iterations made during last run.
+	 */
+	public int getIterationsNum() {
+		return iterationsNum;
+	}
+
+	/**
+	 *
+	 * @return true if boundary values of the last run stopped changing within problem accuracy.
+	 */
+	public boolean isConverged() {
+		return converged;
+	}
+
+	/**
+	 *
+	 * @return maximal change of boundary values made by each iteration of the last run.
+	 */
+	public double[] getCorrections() {
+		return Arrays.copyOf(corrections, iterationsNum);
+	}
+
+	/**
+	 *
+	 * @return time of the last run in nanoseconds, not including serial run.
+	 */
+	public long getParallelNanos() {
+		return parallelNanos;
+	}
+
+	/**
+	 *
+	 * @return time of serial Kutta-Merson run in nanoseconds, or 0 if speedup wasn't measured.
+	 */
+	public long getSerialNanos() {
+		return serialNanos;
+	}
+
+	/**
+	 *
+	 * @return serial time divided by parallel time of the last run, or NaN if speedup wasn't measured.
+	 */
+	public double getSpeedup() {
+		return serialNanos == 0 ? Double.NaN : (double) serialNanos / parallelNanos;
+	}
+
+	/**
+	 *
+	 * @return maximal difference between Parareal and serial solutions at the output grid, or NaN if speedup wasn't measured.
+	 */
+	public double getSerialDeviation() {
+		return serialDeviation;
+	}
+
+	/**
+	 *
+	 * @return iterations, corrections and speedup of the last run as text.
+	 */
+	public String getSummary() {
+
+		StringBuilder summary = new StringBuilder();
+		summary.append(slicesNum).append(" slices, ").append(iterationsNum).append(" iterations, ")
+			.append(converged ? "converged" : "not converged").append(", ")
+			.append(pool.getParallelism()).append(" workers");
+		for(int k = 0; k < iterationsNum; k++)
+			summary.append("\niteration ").append(k + 1).append(": max correction = ").append(corrections[k]);
+		summary.append(String.format("\nParareal time: %.3f ms", parallelNanos / 1e6));
+		if(serialNanos != 0)
+			summary.append(String.format("\nSerial Kutta-Merson time: %.3f ms, speedup: %.2f, max deviation: %g",
+					serialNanos / 1e6, getSpeedup(), serialDeviation));
+		return summary.toString();
+	}
+
+	@Override
+	public Optional<String> getReport() {
+		return super.getReport().map(report -> report + "\n" + getSummary() + "\n");
+	}
+
+	private class FineTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] boundaries;
+		private final double[] u;
+		private final double[] fineY;
+		private final int[] counters;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+		private final double accuracy;
+
+		FineTask(double[] boundaries, double[] u, double[] fineY, int[] counters, int from, int to, int chunkSize, double accuracy) {
+
+			this.boundaries = boundaries;
+			this.u = u;
+			this.fineY = fineY;
+			this.counters = counters;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.accuracy = accuracy;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(to - from > chunkSize) {
+
+				int middle = (from + to) >>> 1;
+				invokeAll(new FineTask(boundaries, u, fineY, counters, from, middle, chunkSize, accuracy),
+						new FineTask(boundaries, u, fineY, counters, middle, to, chunkSize, accuracy));
+				return;
+			}
+
+			int d = dimension;
+			KuttaMersonMethodAlgorithm fine = new KuttaMersonMethodAlgorithm(function, problem);
+			double[] y = new double[d];
+
+			for(int i = from; i < to; i++) {
+
+				System.arraycopy(u, i * d, y, 0, d);
+				fine.integrate(boundaries[i], boundaries[i + 1], accuracy, y);
+				System.arraycopy(y, 0, fineY, i * d, d);
+
+				counters[i * 3] = fine.getAcceptedStepsNum();
+				counters[i * 3 + 1] = fine.getRejectedStepsNum();
+				counters[i * 3 + 2] = fine.getFunctionEvaluationsNum();
+			}
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package com.maxclay.model;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes text report about iteration process to {@link Appendable}, such as file {@link Writer} or {@link StringBuilder}.<br/>
+ * Events are formatted into reused buffer, which is flushed to the target when full, so report of any length
+ * is streamed without keeping it in memory and without allocating per step.
+ */
+public class ReportWriter implements SolverListener, Flushable, Closeable {
+
+	/**
+	 * Number of characters buffered before they are written to the target.
+	 */
+	public static final int BUFFER_SIZE = 8192;
+
+	private static final String SEPARATOR = "\n*****************************************************************\n";
+
+	private final Appendable target;
+	private final StringBuilder buffer;
+	private final char[] chars;
+
+	private double accuracy;
+	private int dimension;
+
+	/**
+	 * @param target - where to write report to.
+	 */
+	public ReportWriter(Appendable target) {
+
+		this.target = target;
+		buffer = new StringBuilder(BUFFER_SIZE * 2);
+		chars = new char[BUFFER_SIZE * 2];
+	}
+
+	/**
+	 * Creates report writer to file.
+	 * @param file - file to write report to. Existing file is overwritten.
+	 * @return report writer, that must be {@link #close() closed} after solving.
+	 * @throws IOException if file can't be opened.
+	 */
+	public static ReportWriter toFile(Path file) throws IOException {
+		return new ReportWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+	}
+
+	public void onStart(String methodName, CauchyProblem problem) {
+
+		accuracy = problem.getAccuracy();
+		dimension = problem.getDimension();
+
+		buffer.append("Solving Cauchy problem using ").append(methodName).append('\n');
+		flushIfFull();
+	}
+
+	public void onStep(double x, double h, double[] y, double[][] stages, double error, boolean accepted) {
+
+		buffer.append("\nFunction values:");
+		for(int i = 0; i < stages.length; i++) {
+			buffer.append("\nk").append(i + 1).append(" = ");
+			appendVector(stages[i]);
+		}
+
+		buffer.append("\n\nh = ").append(h);
+		buffer.append("\ny(").append(x).append(") = ");
+		appendVector(y);
+
+		if(Double.isNaN(error))
+			buffer.append('\n').append(SEPARATOR).append('\n');
+		else if(accepted) {
+			buffer.append("\n\nR < E(").append(error).append(" < ").append(accuracy).append(')');
+			buffer.append("\nStep accepted, continue iteration process");
+			buffer.append(SEPARATOR).append('\n');
+		}
+		else {
+			buffer.append("\n\nR > E!(").append(error).append(" > ").append(accuracy).append(')');
+			buffer.append("\nStep rejected, decreasing the integration step\n");
+		}
+
+		flushIfFull();
+	}
+
+	public void onFinish(double[] valuesX, double[] valuesY, int acceptedStepsNum, int rejectedStepsNum, int functionEvaluationsNum) {
+
+		buffer.append("\nIteration process ended");
+		buffer.append("\nAccepted steps: ").append(acceptedStepsNum)
+			.append(", rejected steps: ").append(rejectedStepsNum)
+			.append(", function evaluations: ").append(functionEvaluationsNum);
+		buffer.append("\n\nResults:");
+
+		for(int i = 0; i < valuesX.length; i++) {
+
+			buffer.append("\nx[").append(i).append("] = ");
+			appendFixed(valuesX[i]);
+			for(int j = 0; j < dimension; j++) {
+				buffer.append("\ty[").append(i).append("] = ");
+				appendFixed(valuesY[i * dimension + j]);
+			}
+			flushIfFull();
+		}
+
+		buffer.append(SEPARATOR);
+		flush();
+	}
+
+	/**
+	 * Writes buffered characters to the target and flushes the target if it is {@link Flushable}.
+	 */
+	public void flush() {
+
+		writeBuffer();
+		try {
+			if(target instanceof Flushable)
+				((Flushable) target).flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Flushes report and closes the target if it is {@link Closeable}.
+	 */
+	public void close() throws IOException {
+
+		flush();
+		if(target instanceof Closeable)
+			((Closeable) target).close();
+	}
+
+	private void flushIfFull() {
+
+		if(buffer.length() >= BUFFER_SIZE)
+			writeBuffer();
+	}
+
+	private void writeBuffer() {
+
+		int length = buffer.length();
+		if(length == 0)
+			return;
+
+		try {
+			if(target instanceof Writer) {
+				// Writer.append(CharSequence) copies the sequence into a new String
+				char[] out = length <= chars.length ? chars : new char[length];
+				buffer.getChars(0, length, out, 0);
+				((Writer) target).write(out, 0, length);
+			}
+			else
+				target.append(buffer, 0, length);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		buffer.setLength(0);
+	}
+
+	private void appendVector(double[] values) {
+
+		if(values.length == 1) {
+			buffer.append(values[0]);
+			return;
+		}
+
+		buffer.append('[');
+		for(int i = 0; i < values.length; i++) {
+			if(i > 0)
+				buffer.append(", ");
+			buffer.append(values[i]);
+		}
+		buffer.append(']');
+	}
+
+	/**
+	 * Appends value the same way as String.format("%10.5f", value) does.
+	 */
+	private void appendFixed(double value) {
+
+		double magnitude = Math.abs(value);
+		if(Double.isNaN(value) || magnitude >= 1e12) {
+			buffer.append(value);
+			return;
+		}
+
+		long scaled = Math.round(magnitude * 100000);
+		long integer = scaled / 100000;
+		long fraction = scaled % 100000;
+		boolean negative = value < 0;
+
+		int length = 7 + (negative ? 1 : 0);
+		for(long i = integer; i >= 10; i /= 10)
+			length++;
+		for(int i = length; i < 10; i++)
+			buffer.append(' ');
+
+		if(negative)
+			buffer.append('-');
+		buffer.append(integer).append('.');
+		for(long i = 10000; i > fraction && i > 1; i /= 10)
+			buffer.append('0');
+		buffer.append(fraction);
+	}
+}
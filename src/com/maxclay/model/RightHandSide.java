@@ -0,0 +1,18 @@
+package com.maxclay.model;
+
+/**
+ * Right-hand side f(x, y) of differential equation <msup><mi>y</mi><mo>&#x2032;</mo></msup> = f(x, y);<br/>
+ * Implementations write the result into caller-supplied array, so solvers can evaluate stages
+ * without boxing or allocating per call.
+ */
+@FunctionalInterface
+public interface RightHandSide {
+
+	/**
+	 * Evaluates f(x, y).
+	 * @param x - x parameter.
+	 * @param y - y parameter. Must not be modified.
+	 * @param dydx - array to write function result to.
+	 */
+	void evaluate(double x, double[] y, double[] dydx);
+}
@@ -0,0 +1,382 @@
+package com.maxclay.model;
+
+/**
+ * Linearly implicit solver for stiff equations: second order Rosenbrock method of Shampine and Reichelt
+ * with embedded third order error estimate, which is L-stable, so integration step is limited by accuracy only.<br/>
+ * Each step solves three linear systems with matrix W = I - h * d * J, where J is Jacobian of the right-hand side.
+ * Jacobian is kept for up to {@link #MAX_JACOBIAN_AGE} accepted steps and refreshed after a rejected step
+ * (derivative with respect to x is evaluated every step, as the method is not exact for stale one);
+ * integration step is held while the predicted change is small, so LU factorization of W is reused across steps.
+ */
+public class RosenbrockMethodAlgorithm extends AbstractIntegrator {
+
+	/**
+	 * Method name used in reports.
+	 */
+	public static final String METHOD_NAME = "Rosenbrock method";
+
+	/**
+	 * Safety factor applied to the optimal step predicted from the error estimate.
+	 */
+	public static final double SAFETY_FACTOR = 0.8;
+
+	/**
+	 * Lower bound of the factor the step can be multiplied by after a single step.
+	 */
+	public static final double MIN_STEP_FACTOR = 0.2;
+
+	/**
+	 * Upper bound of the factor the step can be multiplied by after a single step.
+	 */
+	public static final double MAX_STEP_FACTOR = 5;
+
+	/**
+	 * Step is not changed while predicted factor is between 1 and this value, so W doesn't have to be refactored.
+	 */
+	public static final double STEP_HOLD_FACTOR = 1.2;
+
+	/**
+	 * Maximal number of accepted steps Jacobian is reused for.
+	 */
+	public static final int MAX_JACOBIAN_AGE = 20;
+
+	/**
+	 * Smallest allowed integration step. Reaching it means the required accuracy can't be achieved.
+	 */
+	public static final double MIN_STEP = 1e-12;
+
+	private static final double D = 1 / (2 + Math.sqrt(2));
+	private static final double E32 = 6 + Math.sqrt(2);
+
+	private final Jacobian jacobian;
+
+	private double[] y;
+	private double[] nextY;
+	private double[] stageY;
+	private double[] f0;
+	private double[] f1;
+	private double[] f2;
+	private double[] k1;
+	private double[] k2;
+	private double[] k3;
+	private double[][] stages;
+	private double[] perturbed;
+
+	private double[] dfdy;
+	private double[] dfdx;
+	private double[] w;
+	private final LUDecomposition lu;
+
+	private int jacobianEvaluationsNum;
+	private int decompositionsNum;
+
+	/**
+	 * Creates solver approximating Jacobian with finite differences.
+	 * @param function - right-hand side of the equation.
+	 * @param problem - interval, initial value and accuracy.
+	 */
+	public RosenbrockMethodAlgorithm(RightHandSide function, CauchyProblem problem) {
+		this(function, null, problem);
+	}
+
+	/**
+	 * @param function - right-hand side of the equation.
+	 * @param jacobian - Jacobian of the right-hand side, or null to approximate it with finite differences.
+	 * @param problem - interval, initial value and accuracy.
+	 * @throws IllegalArgumentException if dense n * n matrices of the system don't fit in an array.
+	 */
+	public RosenbrockMethodAlgorithm(RightHandSide function, Jacobian jacobian, CauchyProblem problem) {
+
+		super(function, problem);
+		this.jacobian = jacobian;
+
+		int n = dimension;
+		if((long) n * n > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Dense Jacobian of " + n + " equations is too large for " + METHOD_NAME);
+		y = new double[n];
+		nextY = new double[n];
+		stageY = new double[n];
+		f0 = new double[n];
+		f1 = new double[n];
+		f2 = new double[n];
+		k1 = new double[n];
+		k2 = new double[n];
+		k3 = new double[n];
+		stages = new double[][] { k1, k2, k3 };
+		perturbed = new double[n];
+		dfdy = new double[n * n];
+		dfdx = new double[n];
+		w = new double[n * n];
+		lu = new LUDecomposition(n);
+	}
+
+	public String getMethodName() {
+		return METHOD_NAME;
+	}
+
+	/**
+	 * Solves differential equation or system of equations <msup><mi>y</mi><mo>&#x2032;</mo></msup> = f(x, y);<br/>
+	 * Accepted steps are stored in {@link #getTrajectory() trajectory}, which is then sampled at each 'x' of the output grid.
+	 */
+	protected void solve(SolverListener listener) {
+
+		System.arraycopy(problem.getStartingY(), 0, y, 0, dimension);
+		trajectory.clear();
+		resetCounters();
+		solve(problem.getLowerBoundary(), problem.getHigherBoundary(), problem.getAccuracy(), initialStep(problem.getLowerBoundary()),
+				trajectoryRecording ? trajectory : null, listener, null);
+
+		if(trajectoryRecording)
+			trajectory.sample(valuesX, valuesY);
+	}
+
+	/**
+	 * Integrates the equation from arbitrary starting point up to higherBoundary, without storing
+	 * trajectory and report. Problem's interval and accuracy are ignored, step counters are updated.
+	 * @param startingX - x0.
+	 * @param higherBoundary - x to integrate up to.
+	 * @param accuracy - algorithm accuracy.
+	 * @param y - initial value y(x0) on input, y(higherBoundary) on output.
+	 */
+	public void integrate(double startingX, double higherBoundary, double accuracy, double[] y) {
+		continueIntegration(startingX, initialStep(startingX), higherBoundary, accuracy, y, null, NullSolverListener.INSTANCE, null);
+	}
+
+	/**
+	 * Continues integration started by another solver, e.g. after stiffness was detected.
+	 * Step counters are reset before integration.
+	 * @param x - current x.
+	 * @param h - step to start with.
+	 * @param higherBoundary - x to integrate up to.
+	 * @param accuracy - algorithm accuracy.
+	 * @param y - y(x) on input, y(higherBoundary) on output.
+	 * @param trajectory - trajectory ending at x to append accepted steps to, or null.
+	 * @param listener - listener receiving steps.
+	 * @param events - started event detector to check accepted steps with, or null. Integration stops at terminal event.
+	 */
+	void continueIntegration(double x, double h, double higherBoundary, double accuracy, double[] y,
+			Trajectory trajectory, SolverListener listener, EventDetector events) {
+
+		System.arraycopy(y, 0, this.y, 0, dimension);
+		resetCounters();
+		solve(x, higherBoundary, accuracy, h, trajectory, listener, events);
+		System.arraycopy(this.y, 0, y, 0, dimension);
+	}
+
+	private void solve(double lowerBoundary, double higherBoundary, double E, double h, Trajectory trajectory, SolverListener listener,
+			EventDetector events) {
+
+		int n = dimension;
+		double maxStep = higherBoundary - lowerBoundary;
+		h = Math.min(h, maxStep);
+
+		double x = lowerBoundary;
+		evaluate(x, y, f0);
+		if(trajectory != null && trajectory.size() == 0)
+			trajectory.append(x, y, f0);
+
+		updateJacobian(x);
+		updateDerivativeX(x);
+		int jacobianAge = 0;
+		double factoredStep = Double.NaN;
+
+		while(x < higherBoundary) {
+
+			boolean lastStep = x + h >= higherBoundary;
+			double stepH = lastStep ? higherBoundary - x : h;
+
+			if(stepH != factoredStep) {
+				if(!factorW(stepH)) {
+					// W is singular for this step, try smaller one
+					rejectedStepsNum++;
+					h = stepH / 2;
+					factoredStep = Double.NaN;
+					checkStep(h, x);
+					continue;
+				}
+				factoredStep = stepH;
+			}
+
+			double hd = stepH * D;
+
+			// k1 = W^-1 (f0 + h d T)
+			for(int j = 0; j < n; j++)
+				k1[j] = f0[j] + hd * dfdx[j];
+			lu.solve(k1);
+
+			// k2 = W^-1 (f1 - k1) + k1
+			for(int j = 0; j < n; j++)
+				stageY[j] = y[j] + 0.5 * stepH * k1[j];
+			evaluate(x + 0.5 * stepH, stageY, f1);
+			for(int j = 0; j < n; j++)
+				k2[j] = f1[j] - k1[j];
+			lu.solve(k2);
+			for(int j = 0; j < n; j++) {
+				k2[j] += k1[j];
+				nextY[j] = y[j] + stepH * k2[j];
+			}
+
+			// k3 = W^-1 (f2 - e32 (k2 - f1) - 2 (k1 - f0) + h d T)
+			evaluate(x + stepH, nextY, f2);
+			for(int j = 0; j < n; j++)
+				k3[j] = f2[j] - E32 * (k2[j] - f1[j]) - 2 * (k1[j] - f0[j]) + hd * dfdx[j];
+			lu.solve(k3);
+
+			double R = 0;
+			for(int j = 0; j < n; j++)
+				R = Math.max(R, Math.abs(stepH / 6 * (k1[j] - 2 * k2[j] + k3[j])));
+
+			double factor = (R == 0) ? MAX_STEP_FACTOR : SAFETY_FACTOR * Math.cbrt(E / R);
+			// error estimate is NaN or infinite if the function can't be evaluated at stage points
+			factor = Double.isFinite(R) ? Math.max(MIN_STEP_FACTOR, Math.min(MAX_STEP_FACTOR, factor)) : MIN_STEP_FACTOR;
+
+			if(!(R <= E)) {
+
+				rejectedStepsNum++;
+				listener.onStep(x + stepH, stepH, nextY, stages, R, false);
+
+				// stale Jacobian may be the reason of rejection
+				if(jacobianAge > 0) {
+					updateJacobian(x);
+					jacobianAge = 0;
+					factoredStep = Double.NaN;
+				}
+
+				h = stepH * Math.min(factor, 1);
+				checkStep(h, x);
+			}
+			else {
+
+				acceptedStepsNum++;
+				double previousX = x;
+				x = lastStep ? higherBoundary : x + stepH;
+
+				boolean terminated = events != null && events.step(previousX, y, f0, x, nextY, f2);
+				if(terminated) {
+					x = events.getStopX();
+					stepH = x - previousX;
+					System.arraycopy(events.getStopY(), 0, nextY, 0, n);
+					evaluate(x, nextY, f2);
+				}
+
+				listener.onStep(x, stepH, nextY, stages, R, true);
+
+				double[] swap = y;
+				y = nextY;
+				nextY = swap;
+
+				// f(x + h, y(x + h)) was already evaluated as the third stage
+				System.arraycopy(f2, 0, f0, 0, n);
+				if(trajectory != null)
+					trajectory.append(x, y, f0);
+				if(terminated)
+					return;
+
+				if(++jacobianAge >= MAX_JACOBIAN_AGE) {
+					updateJacobian(x);
+					jacobianAge = 0;
+					factoredStep = Double.NaN;
+				}
+				updateDerivativeX(x);
+
+				if(factor < 1 || factor > STEP_HOLD_FACTOR)
+					h = Math.min(maxStep, stepH * factor);
+				else
+					h = stepH;
+			}
+		}
+	}
+
+	/**
+	 * Evaluates Jacobian at (x, y), f0 must hold f(x, y).
+	 */
+	private void updateJacobian(double x) {
+
+		int n = dimension;
+		jacobianEvaluationsNum++;
+
+		if(jacobian != null) {
+			jacobian.evaluate(x, y, dfdy);
+			return;
+		}
+
+		System.arraycopy(y, 0, perturbed, 0, n);
+		for(int j = 0; j < n; j++) {
+
+			double delta = Math.sqrt(Math.ulp(1.0)) * Math.max(Math.abs(y[j]), 1e-5);
+			perturbed[j] = y[j] + delta;
+			evaluate(x, perturbed, f1);
+			perturbed[j] = y[j];
+			for(int i = 0; i < n; i++)
+				dfdy[i * n + j] = (f1[i] - f0[i]) / delta;
+		}
+	}
+
+	/**
+	 * Evaluates derivative of f with respect to x at (x, y), f0 must hold f(x, y).
+	 */
+	private void updateDerivativeX(double x) {
+
+		double delta = Math.sqrt(Math.ulp(1.0)) * Math.max(Math.abs(x), 1e-5);
+		evaluate(x + delta, y, f1);
+		for(int i = 0; i < dimension; i++)
+			dfdx[i] = (f1[i] - f0[i]) / delta;
+	}
+
+	private boolean factorW(double h) {
+
+		int n = dimension;
+		double hd = h * D;
+		for(int i = 0; i < n; i++)
+			for(int j = 0; j < n; j++)
+				w[i * n + j] = (i == j ? 1 : 0) - hd * dfdy[i * n + j];
+
+		decompositionsNum++;
+		return lu.factor(w);
+	}
+
+	private void checkStep(double h, double x) {
+
+		// NaN step fails too
+		if(!(h >= MIN_STEP))
+			throw new IllegalStateException("Integration step became smaller than " + MIN_STEP + " at x = " + x);
+	}
+
+	private double initialStep(double startingX) {
+		return (problem.getHigherBoundary() - startingX) / problem.getControlPointsNum();
+	}
+
+	private void resetCounters() {
+
+		acceptedStepsNum = 0;
+		rejectedStepsNum = 0;
+		functionEvaluationsNum = 0;
+		jacobianEvaluationsNum = 0;
+		decompositionsNum = 0;
+	}
+
+	/**
+	 *
+	 * @return number of Jacobian evaluations during last run.
+	 */
+	public int getJacobianEvaluationsNum() {
+		return jacobianEvaluationsNum;
+	}
+
+	/**
+	 *
+	 * @return number of LU decompositions during last run.
+	 */
+	public int getDecompositionsNum() {
+		return decompositionsNum;
+	}
+
+	/**
+	 *
+	 * @return number of right-hand side evaluations during last run, including ones used for finite-difference Jacobian.
+	 */
+	@Override
+	public int getFunctionEvaluationsNum() {
+		return functionEvaluationsNum;
+	}
+}
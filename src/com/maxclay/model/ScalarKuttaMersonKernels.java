@@ -0,0 +1,63 @@
+package com.maxclay.model;
+
+/**
+ * Plain loop {@link KuttaMersonKernels}; also finds vector kernels at class initialization.
+ */
+final class ScalarKuttaMersonKernels implements KuttaMersonKernels {
+
+	static final KuttaMersonKernels INSTANCE = new ScalarKuttaMersonKernels();
+
+	static final KuttaMersonKernels VECTOR = loadVectorKernels();
+
+	private ScalarKuttaMersonKernels() {
+	}
+
+	/**
+	 * Loads vector kernels by name, so this class doesn't depend on them and works where they are not compiled,
+	 * or where the class can't be linked because the runtime is older or lacks the incubator module.
+	 */
+	private static KuttaMersonKernels loadVectorKernels() {
+
+		try {
+			return (KuttaMersonKernels) Class.forName("com.maxclay.model.VectorKuttaMersonKernels")
+					.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			return INSTANCE;
+		}
+	}
+
+	public void secondStage(double[] y, double[] k1, double h, double[] out, int n) {
+
+		for(int j = 0; j < n; j++)
+			out[j] = y[j] + h * k1[j] / 3;
+	}
+
+	public void thirdStage(double[] y, double[] k1, double[] k2, double h, double[] out, int n) {
+
+		for(int j = 0; j < n; j++)
+			out[j] = y[j] + h * k1[j] / 6 + h * k2[j] / 6;
+	}
+
+	public void fourthStage(double[] y, double[] k1, double[] k3, double h, double[] out, int n) {
+
+		for(int j = 0; j < n; j++)
+			out[j] = y[j] + h * k1[j] / 8 + h * 3 * k3[j] / 8;
+	}
+
+	public void fifthStage(double[] y, double[] k1, double[] k3, double[] k4, double h, double[] out, int n) {
+
+		for(int j = 0; j < n; j++)
+			out[j] = y[j] + h * k1[j] / 2 - h * 3 * k3[j] / 2 + h * 2 * k4[j];
+	}
+
+	public double combine(double[] y, double[] k1, double[] k3, double[] k4, double[] k5, double h, double[] nextY, double[] tempY, int n) {
+
+		double R = 0;
+		for(int j = 0; j < n; j++) {
+			nextY[j] = y[j] + h / 6 * (k1[j] + 4 * k4[j] + k5[j]);
+			tempY[j] = y[j] + h / 2 * (k1[j] - 3 * k3[j] + 4 * k4[j]);
+			R = Math.max(R, 0.2 * Math.abs(nextY[j] - tempY[j]));
+		}
+		return R;
+	}
+}
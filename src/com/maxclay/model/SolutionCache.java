@@ -0,0 +1,455 @@
+package com.maxclay.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps accepted steps of solved problems, so solving the same problem again takes no steps.<br/>
+ * Solutions are keyed by method, equation, initial value, accuracy and number of control points, but not by
+ * higher boundary: cached solution of [x0; b1] answers any problem with higher boundary up to b1 by sampling its
+ * {@link Trajectory trajectory}, and problem with higher boundary beyond b1 is solved only from the last cached
+ * step on, then the joined trajectory replaces the shorter one.<br/>
+ * Memory holds at most {@link #getMaxPoints() given number} of steps of all solutions, least recently used ones are
+ * evicted first. Optional disk tier keeps solutions in {@link TrajectoryFile trajectory files} named after the key,
+ * so they survive eviction and restarts.<br/>
+ * Only integrators whose {@link AbstractIntegrator#getTrajectory() trajectory} holds every accepted step are cached;
+ * problems for other methods are always solved from scratch. These are {@link PararealSolver}, which keeps only slice
+ * boundaries, and {@link MiddlePointMethodAlgorithm}, whose steps depend on higher boundary.
+ * Cache is safe to use from several threads; equal problems solved at the same time may both be solved.
+ */
+public class SolutionCache {
+
+	/**
+	 * Default number of steps kept in memory.
+	 */
+	public static final int DEFAULT_MAX_POINTS = 1 << 20;
+
+	/**
+	 * Extension of trajectory files in disk tier.
+	 */
+	public static final String FILE_EXTENSION = ".cptr";
+
+	private final long maxPoints;
+	private final Map<String, Trajectory> entries;
+	private long pointsNum;
+
+	private Path directory;
+	private long maxDiskBytes;
+
+	private volatile boolean pararealSpeedupMeasurement;
+
+	private int memoryHitsNum;
+	private int diskHitsNum;
+	private int extensionsNum;
+	private int missesNum;
+
+	/**
+	 * Creates memory only cache of {@link #DEFAULT_MAX_POINTS} steps.
+	 */
+	public SolutionCache() {
+		this(DEFAULT_MAX_POINTS);
+	}
+
+	/**
+	 * @param maxPoints - maximal number of steps kept in memory.
+	 */
+	public SolutionCache(long maxPoints) {
+
+		if(maxPoints < 2)
+			throw new IllegalArgumentException("Cache must hold at least two points");
+		this.maxPoints = maxPoints;
+		entries = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Enables disk tier. Files that don't fit in maxBytes are deleted starting from least recently used.
+	 * @param directory - directory to keep trajectory files in, created if missing.
+	 * @param maxBytes - maximal total size of the files.
+	 * @throws IOException if directory can't be created.
+	 */
+	public synchronized void setDiskTier(Path directory, long maxBytes) throws IOException {
+
+		Files.createDirectories(directory);
+		this.directory = directory;
+		this.maxDiskBytes = maxBytes;
+	}
+
+	/**
+	 * Specifies whether Parareal solutions also measure speedup against serial Kutta-Merson run, which is then
+	 * shown in their report. Measurement solves each problem twice.
+	 * @param pararealSpeedupMeasurement - true to measure speedup, false otherwise (default).
+	 * @see PararealSolver#setSpeedupMeasurement(boolean)
+	 */
+	public void setPararealSpeedupMeasurement(boolean pararealSpeedupMeasurement) {
+		this.pararealSpeedupMeasurement = pararealSpeedupMeasurement;
+	}
+
+	/**
+	 * Finds solution of the problem in cache or solves it with {@link IntegratorRegistry registered} method.<br/>
+	 * On a hit no steps are made: listener receives onStart with the problem and onFinish with the sampled grid and zero
+	 * counters. If only a shorter solution is cached, listener receives events of the run continuing from its last step.<br/>
+	 * Since higher boundary is not part of the key, solution is sampled from whichever trajectory is cached, so values of
+	 * the same problem may differ within accuracy depending on which problems were solved before.
+	 * @param methodName - registered method name.
+	 * @param functionId - text identifying right-hand side, such as expression text. Functions with equal ids must be equal.
+	 * @param function - right-hand side of the equation.
+	 * @param problem - problem to solve. Solution is found at {@link CauchyProblem#getControlPointsNum() control points number} evenly spaced points.
+	 * @param listener - listener receiving steps that are actually made.
+	 * @param generateReport - true to generate report.
+	 * @return solution.
+	 */
+	public CachedSolution solve(String methodName, String functionId, RightHandSide function, CauchyProblem problem,
+			SolverListener listener, boolean generateReport) {
+
+		Integrator integrator = IntegratorRegistry.create(methodName, function, problem);
+		if(integrator instanceof PararealSolver || integrator instanceof MiddlePointMethodAlgorithm) {
+
+			if(integrator instanceof PararealSolver)
+				((PararealSolver) integrator).setSpeedupMeasurement(pararealSpeedupMeasurement);
+			integrator.setListener(listener);
+			integrator.run(generateReport);
+			// slice boundaries of Parareal are not accepted steps
+			Trajectory trajectory = (integrator instanceof PararealSolver) ? new Trajectory(problem.getDimension(), 0) : trajectoryOf(integrator);
+			return new CachedSolution(CachedSolution.Source.SOLVED, problem.getDimension(), integrator.getArrayX(), integrator.getArrayY(),
+					trajectory, integrator.getReport().orElse(null),
+					integrator.getAcceptedStepsNum(), integrator.getRejectedStepsNum(), integrator.getFunctionEvaluationsNum());
+		}
+
+		String key = key(methodName, functionId, problem);
+		CachedSolution.Source source = CachedSolution.Source.MEMORY;
+		Trajectory cached = get(key);
+		if(cached == null) {
+			cached = read(key, methodName, function, problem.getDimension());
+			source = CachedSolution.Source.DISK;
+		}
+
+		double higherBoundary = problem.getHigherBoundary();
+		if(cached != null && cached.getX(cached.size() - 1) >= higherBoundary) {
+
+			synchronized (this) {
+				if(source == CachedSolution.Source.MEMORY)
+					memoryHitsNum++;
+				else
+					diskHitsNum++;
+			}
+
+			listener.onStart(integrator.getMethodName(), problem);
+			double[] valuesX = grid(problem);
+			double[] valuesY = new double[valuesX.length * problem.getDimension()];
+			cached.sample(valuesX, valuesY);
+			listener.onFinish(valuesX, valuesY, 0, 0, 0);
+
+			String report = null;
+			if(generateReport)
+				report = cachedReport("Solution is taken from cache\n", methodName, problem, valuesX, valuesY);
+			return new CachedSolution(source, problem.getDimension(), valuesX, valuesY, cached, report, 0, 0, 0);
+		}
+
+		if(cached != null) {
+
+			// continue from the last cached step
+			int last = cached.size() - 1;
+			double[] y = new double[problem.getDimension()];
+			cached.getY(last, y);
+			double startingX = cached.getX(last);
+			CauchyProblem extension = new CauchyProblem(startingX, higherBoundary, y, problem.getAccuracy(), problem.getControlPointsNum());
+
+			Integrator extensionIntegrator = IntegratorRegistry.create(methodName, function, extension);
+			extensionIntegrator.setListener(listener);
+			extensionIntegrator.run(generateReport);
+
+			Trajectory trajectory = new Trajectory(problem.getDimension(), cached.size() + trajectoryOf(extensionIntegrator).size());
+			trajectory.append(cached);
+			trajectory.append(trajectoryOf(extensionIntegrator));
+			put(key, methodName, problem, trajectory);
+			synchronized (this) {
+				extensionsNum++;
+			}
+
+			double[] valuesX = grid(problem);
+			double[] valuesY = new double[valuesX.length * problem.getDimension()];
+			trajectory.sample(valuesX, valuesY);
+
+			String report = null;
+			if(generateReport)
+				report = "Solution is continued from cached one at x = " + startingX + "\n" + extensionIntegrator.getReport().get();
+			return new CachedSolution(CachedSolution.Source.EXTENDED, problem.getDimension(), valuesX, valuesY, trajectory, report,
+					extensionIntegrator.getAcceptedStepsNum(), extensionIntegrator.getRejectedStepsNum(),
+					extensionIntegrator.getFunctionEvaluationsNum());
+		}
+
+		integrator.setListener(listener);
+		integrator.run(generateReport);
+		synchronized (this) {
+			missesNum++;
+		}
+
+		Trajectory trajectory = trajectoryOf(integrator);
+		if(trajectory.size() > 1) {
+			Trajectory copy = new Trajectory(problem.getDimension(), trajectory.size());
+			copy.append(trajectory);
+			trajectory = copy;
+			put(key, methodName, problem, trajectory);
+		}
+
+		return new CachedSolution(CachedSolution.Source.SOLVED, problem.getDimension(), integrator.getArrayX(), integrator.getArrayY(),
+				trajectory, integrator.getReport().orElse(null),
+				integrator.getAcceptedStepsNum(), integrator.getRejectedStepsNum(), integrator.getFunctionEvaluationsNum());
+	}
+
+	/**
+	 * Removes all solutions from memory. Files of disk tier are kept.
+	 */
+	public synchronized void clear() {
+
+		entries.clear();
+		pointsNum = 0;
+	}
+
+	/**
+	 *
+	 * @return maximal number of steps kept in memory.
+	 */
+	public long getMaxPoints() {
+		return maxPoints;
+	}
+
+	/**
+	 *
+	 * @return number of steps kept in memory.
+	 */
+	public synchronized long getPointsNum() {
+		return pointsNum;
+	}
+
+	public synchronized int getMemoryHitsNum() {
+		return memoryHitsNum;
+	}
+
+	public synchronized int getDiskHitsNum() {
+		return diskHitsNum;
+	}
+
+	public synchronized int getExtensionsNum() {
+		return extensionsNum;
+	}
+
+	public synchronized int getMissesNum() {
+		return missesNum;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Solution cache: " + entries.size() + " solutions, " + pointsNum + " points, memory hits: " + memoryHitsNum
+				+ ", disk hits: " + diskHitsNum + ", extensions: " + extensionsNum + ", misses: " + missesNum;
+	}
+
+	private synchronized Trajectory get(String key) {
+		return entries.get(key);
+	}
+
+	private void put(String key, String methodName, CauchyProblem problem, Trajectory trajectory) {
+
+		insert(key, trajectory);
+		write(key, methodName, problem, trajectory);
+	}
+
+	/**
+	 * Puts trajectory into memory, replacing one with the same key and evicting least recently used ones.
+	 */
+	private synchronized void insert(String key, Trajectory trajectory) {
+
+		Trajectory previous = entries.remove(key);
+		if(previous != null)
+			pointsNum -= previous.size();
+
+		// solution larger than the whole memory tier goes to disk only
+		if(trajectory.size() > maxPoints)
+			return;
+
+		entries.put(key, trajectory);
+		pointsNum += trajectory.size();
+
+		Iterator<Trajectory> eldest = entries.values().iterator();
+		while(pointsNum > maxPoints) {
+			pointsNum -= eldest.next().size();
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Writes trajectory to temporary file and moves it in place, so readers never see incomplete file.
+	 */
+	private void write(String key, String methodName, CauchyProblem problem, Trajectory trajectory) {
+
+		Path directory;
+		synchronized (this) {
+			directory = this.directory;
+		}
+		if(directory == null)
+			return;
+
+		int last = trajectory.size() - 1;
+		CauchyProblem covered = new CauchyProblem(trajectory.getX(0), trajectory.getX(last), problem.getStartingY(),
+				problem.getAccuracy(), problem.getControlPointsNum());
+		double[] y = new double[trajectory.getDimension()];
+
+		try {
+			Path temporary = Files.createTempFile(directory, "solution", ".tmp");
+			try {
+				try (TrajectoryFileWriter writer = new TrajectoryFileWriter(temporary)) {
+
+					writer.onStart(methodName, covered);
+					TrajectoryCursor cursor = trajectory.cursor();
+					cursor.next();
+					double previousX = cursor.getX();
+					while(cursor.next()) {
+						for(int j = 0; j < y.length; j++)
+							y[j] = cursor.getY(j);
+						writer.onStep(cursor.getX(), cursor.getX() - previousX, y, null, Double.NaN, true);
+						previousX = cursor.getX();
+					}
+				}
+				Files.move(temporary, directory.resolve(fileName(key)), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				Files.deleteIfExists(temporary);
+			}
+			trimDisk(directory);
+		} catch (IOException e) {
+			// disk tier is an optimization, solving doesn't fail because of it
+		}
+	}
+
+	/**
+	 * Reads trajectory from disk tier and puts it into memory. Derivatives, which files don't store, are evaluated.
+	 */
+	private Trajectory read(String key, String methodName, RightHandSide function, int dimension) {
+
+		Path directory;
+		synchronized (this) {
+			directory = this.directory;
+		}
+		if(directory == null)
+			return null;
+
+		Path file = directory.resolve(fileName(key));
+		if(!Files.exists(file))
+			return null;
+
+		try (TrajectoryFileReader reader = new TrajectoryFileReader(file)) {
+
+			if(reader.getDimension() != dimension || !methodName.startsWith(reader.getMethodName()) || reader.getRecordsNum() < 2)
+				return null;
+
+			int size = (int) reader.getRecordsNum();
+			Trajectory trajectory = new Trajectory(dimension, size);
+			double[] x = new double[1];
+			double[] y = new double[dimension];
+			double[] dydx = new double[dimension];
+			for(int i = 0; i < size; i++) {
+				reader.read(i, 1, x, y);
+				function.evaluate(x[0], y, dydx);
+				trajectory.append(x[0], y, dydx);
+			}
+
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			insert(key, trajectory);
+			return trajectory;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Deletes least recently used files until the rest fits in disk limit.
+	 */
+	private void trimDisk(Path directory) throws IOException {
+
+		final Map<Path, FileTime> times = new LinkedHashMap<>();
+		long size = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+			for(Path file : files) {
+				times.put(file, Files.getLastModifiedTime(file));
+				size += Files.size(file);
+			}
+		}
+
+		if(size <= maxDiskBytes)
+			return;
+
+		List<Path> files = new ArrayList<>(times.keySet());
+		Collections.sort(files, new Comparator<Path>() {
+
+			public int compare(Path first, Path second) {
+				return times.get(first).compareTo(times.get(second));
+			}
+		});
+
+		for(Path file : files) {
+			if(size <= maxDiskBytes)
+				break;
+			size -= Files.size(file);
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private static String cachedReport(String note, String methodName, CauchyProblem problem, double[] valuesX, double[] valuesY) {
+
+		StringBuilder report = new StringBuilder(note);
+		ReportWriter writer = new ReportWriter(report);
+		writer.onStart(methodName, problem);
+		writer.onFinish(valuesX, valuesY, 0, 0, 0);
+		return report.toString();
+	}
+
+	private static Trajectory trajectoryOf(Integrator integrator) {
+		return (integrator instanceof AbstractIntegrator) ? ((AbstractIntegrator) integrator).getTrajectory() : new Trajectory(integrator.getDimension(), 0);
+	}
+
+	/**
+	 * Evenly spaced grid covering whole interval, the same as default output grid of integrators.
+	 */
+	private static double[] grid(CauchyProblem problem) {
+
+		double[] valuesX = new double[problem.getControlPointsNum()];
+		double h = (problem.getHigherBoundary() - problem.getLowerBoundary()) / (valuesX.length - 1);
+		valuesX[0] = problem.getLowerBoundary();
+		for(int i = 1; i < valuesX.length; i++)
+			valuesX[i] = valuesX[i - 1] + h;
+		return valuesX;
+	}
+
+	private static String key(String methodName, String functionId, CauchyProblem problem) {
+
+		return methodName + '\n' + functionId + '\n' + problem.getLowerBoundary() + '\n' + Arrays.toString(problem.getStartingY())
+				+ '\n' + problem.getAccuracy() + '\n' + problem.getControlPointsNum();
+	}
+
+	private static String fileName(String key) {
+
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder name = new StringBuilder(digest.length * 2 + FILE_EXTENSION.length());
+			for(byte b : digest)
+				name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			return name.append(FILE_EXTENSION).toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
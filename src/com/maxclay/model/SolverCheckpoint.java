@@ -0,0 +1,263 @@
+package com.maxclay.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * State of {@link KuttaMersonMethodAlgorithm} after an accepted step, from which integration can be
+ * {@link KuttaMersonMethodAlgorithm#resume(Path, boolean) resumed} with exactly the same following steps.<br/>
+ * Checkpoint file is written to a temporary file which then replaces the previous checkpoint, so the file
+ * always holds a complete checkpoint even if the process dies while writing. Values of the output grid points
+ * already passed are stored too, so the resumed run returns the whole grid. All values are little-endian.
+ * <pre>
+ * offset  size  field
+ *      0     4  magic number {@link #MAGIC}
+ *      4     4  format version
+ *      8     4  dimension N
+ *     12     4  accepted steps number
+ *     16     4  rejected steps number
+ *     20     4  function evaluations number
+ *     24     4  stiff steps number
+ *     28     4  nonstiff steps number
+ *     32     8  lower boundary
+ *     40     8  higher boundary
+ *     48     8  accuracy
+ *     56     8  x
+ *     64     8  next step h
+ *     72     4  number P of output grid points not greater than x
+ *     76     4  reserved, 0
+ *     80   N*8  y(x)
+ *          N*8  f(x, y), the first stage of the next step
+ *          P*8  x of the passed output grid points
+ *        P*N*8  y of the passed output grid points, row-major
+ *            4  CRC-32 of all preceding bytes
+ * </pre>
+ */
+public class SolverCheckpoint {
+
+	/**
+	 * "CPCK" in ASCII.
+	 */
+	public static final int MAGIC = 0x4350434B;
+
+	public static final int VERSION = 2;
+
+	public static final int HEADER_SIZE = 80;
+
+	private final double lowerBoundary;
+	private final double higherBoundary;
+	private final double accuracy;
+	private final double x;
+	private final double h;
+	private final double[] y;
+	private final double[] derivative;
+	private final double[] gridX;
+	private final double[] gridY;
+	private final int acceptedStepsNum;
+	private final int rejectedStepsNum;
+	private final int functionEvaluationsNum;
+	private final int stiffStepsNum;
+	private final int nonstiffStepsNum;
+
+	SolverCheckpoint(double lowerBoundary, double higherBoundary, double accuracy, double x, double h, double[] y, double[] derivative,
+			double[] gridX, double[] gridY, int acceptedStepsNum, int rejectedStepsNum, int functionEvaluationsNum, int stiffStepsNum, int nonstiffStepsNum) {
+
+		this.lowerBoundary = lowerBoundary;
+		this.higherBoundary = higherBoundary;
+		this.accuracy = accuracy;
+		this.x = x;
+		this.h = h;
+		this.y = y;
+		this.derivative = derivative;
+		this.gridX = gridX;
+		this.gridY = gridY;
+		this.acceptedStepsNum = acceptedStepsNum;
+		this.rejectedStepsNum = rejectedStepsNum;
+		this.functionEvaluationsNum = functionEvaluationsNum;
+		this.stiffStepsNum = stiffStepsNum;
+		this.nonstiffStepsNum = nonstiffStepsNum;
+	}
+
+	/**
+	 * @param dimension - number of unknowns.
+	 * @param pointsNum - number of passed output grid points.
+	 * @return size of checkpoint file in bytes.
+	 */
+	public static long fileSize(int dimension, int pointsNum) {
+		return HEADER_SIZE + (2L * dimension + pointsNum + (long) pointsNum * dimension) * Double.BYTES + Integer.BYTES;
+	}
+
+	/**
+	 * Reads checkpoint file.
+	 * @param file - checkpoint file.
+	 * @return checkpoint.
+	 * @throws IOException if file can't be read, is not a checkpoint or is damaged.
+	 */
+	public static SolverCheckpoint read(Path file) throws IOException {
+
+		byte[] bytes = Files.readAllBytes(file);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		if(bytes.length < HEADER_SIZE || buffer.getInt() != MAGIC)
+			throw new IOException("Not a checkpoint file: " + file);
+		int version = buffer.getInt();
+		if(version != VERSION)
+			throw new IOException("Unsupported checkpoint version " + version);
+
+		int dimension = buffer.getInt();
+		int pointsNum = buffer.getInt(72);
+		if(dimension <= 0 || pointsNum < 0 || bytes.length != fileSize(dimension, pointsNum))
+			throw new IOException("Checkpoint file is truncated: " + file);
+
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length - Integer.BYTES);
+		if((int) crc.getValue() != buffer.getInt(bytes.length - Integer.BYTES))
+			throw new IOException("Checkpoint file is damaged: " + file);
+
+		int acceptedStepsNum = buffer.getInt();
+		int rejectedStepsNum = buffer.getInt();
+		int functionEvaluationsNum = buffer.getInt();
+		int stiffStepsNum = buffer.getInt();
+		int nonstiffStepsNum = buffer.getInt();
+		double lowerBoundary = buffer.getDouble();
+		double higherBoundary = buffer.getDouble();
+		double accuracy = buffer.getDouble();
+		double x = buffer.getDouble();
+		double h = buffer.getDouble();
+		buffer.position(HEADER_SIZE);
+
+		double[] y = new double[dimension];
+		double[] derivative = new double[dimension];
+		for(int j = 0; j < dimension; j++)
+			y[j] = buffer.getDouble();
+		for(int j = 0; j < dimension; j++)
+			derivative[j] = buffer.getDouble();
+		double[] gridX = new double[pointsNum];
+		double[] gridY = new double[pointsNum * dimension];
+		for(int i = 0; i < gridX.length; i++)
+			gridX[i] = buffer.getDouble();
+		for(int i = 0; i < gridY.length; i++)
+			gridY[i] = buffer.getDouble();
+
+		return new SolverCheckpoint(lowerBoundary, higherBoundary, accuracy, x, h, y, derivative, gridX, gridY,
+				acceptedStepsNum, rejectedStepsNum, functionEvaluationsNum, stiffStepsNum, nonstiffStepsNum);
+	}
+
+	/**
+	 * Writes checkpoint atomically: previous file is replaced only by a complete one.
+	 * @param file - checkpoint file.
+	 * @throws IOException if file can't be written.
+	 */
+	public void write(Path file) throws IOException {
+
+		int dimension = y.length;
+		ByteBuffer buffer = ByteBuffer.allocate((int) fileSize(dimension, gridX.length)).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(dimension);
+		buffer.putInt(acceptedStepsNum).putInt(rejectedStepsNum).putInt(functionEvaluationsNum);
+		buffer.putInt(stiffStepsNum).putInt(nonstiffStepsNum);
+		buffer.putDouble(lowerBoundary).putDouble(higherBoundary).putDouble(accuracy).putDouble(x).putDouble(h);
+		buffer.putInt(gridX.length).putInt(0);
+		for(double value : y)
+			buffer.putDouble(value);
+		for(double value : derivative)
+			buffer.putDouble(value);
+		for(double value : gridX)
+			buffer.putDouble(value);
+		for(double value : gridY)
+			buffer.putDouble(value);
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putInt((int) crc.getValue());
+
+		Path absolute = file.toAbsolutePath();
+		Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+		try {
+			Files.write(temporary, buffer.array());
+			Files.move(temporary, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Checks that checkpoint was made while solving given problem with given output grid.
+	 * @throws IllegalArgumentException if interval, accuracy, dimension or passed grid points differ.
+	 */
+	void check(CauchyProblem problem, double[] valuesX) {
+
+		if(y.length != problem.getDimension() || Double.compare(lowerBoundary, problem.getLowerBoundary()) != 0
+				|| Double.compare(higherBoundary, problem.getHigherBoundary()) != 0 || Double.compare(accuracy, problem.getAccuracy()) != 0)
+			throw new IllegalArgumentException("Checkpoint was made for another problem");
+
+		if(gridX.length > valuesX.length)
+			throw new IllegalArgumentException("Checkpoint was made for another output grid");
+		for(int i = 0; i < gridX.length; i++)
+			if(Double.compare(gridX[i], valuesX[i]) != 0)
+				throw new IllegalArgumentException("Checkpoint was made for another output grid");
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 *
+	 * @return step the next step is attempted with.
+	 */
+	public double getStep() {
+		return h;
+	}
+
+	/**
+	 *
+	 * @return copy of y(x).
+	 */
+	public double[] getY() {
+		return y.clone();
+	}
+
+	double[] getDerivative() {
+		return derivative;
+	}
+
+	/**
+	 *
+	 * @return number of output grid points not greater than x.
+	 */
+	public int getPassedPointsNum() {
+		return gridX.length;
+	}
+
+	/**
+	 *
+	 * @return y at the passed output grid points, row-major.
+	 */
+	double[] getGridY() {
+		return gridY;
+	}
+
+	public int getAcceptedStepsNum() {
+		return acceptedStepsNum;
+	}
+
+	public int getRejectedStepsNum() {
+		return rejectedStepsNum;
+	}
+
+	public int getFunctionEvaluationsNum() {
+		return functionEvaluationsNum;
+	}
+
+	int getStiffStepsNum() {
+		return stiffStepsNum;
+	}
+
+	int getNonstiffStepsNum() {
+		return nonstiffStepsNum;
+	}
+}
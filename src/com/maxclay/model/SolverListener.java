@@ -0,0 +1,37 @@
+package com.maxclay.model;
+
+/**
+ * Receives events of iteration process of solving Cauchy problem.<br/>
+ * Events carry primitive values and arrays owned by the solver. Arrays are reused between events,
+ * so they must be copied if needed after the call returns, and must not be modified.
+ */
+public interface SolverListener {
+
+	/**
+	 * Called once before the first step.
+	 * @param methodName - name of the method used to solve the problem.
+	 * @param problem - problem being solved.
+	 */
+	void onStart(String methodName, CauchyProblem problem);
+
+	/**
+	 * Called after every attempted step.
+	 * @param x - x at the end of the step.
+	 * @param h - integration step.
+	 * @param y - y(x) obtained by the step.
+	 * @param stages - function values computed at each stage of the step.
+	 * @param error - local error estimate, NaN for methods that don't estimate it.
+	 * @param accepted - true if y is accepted, false if the step is rejected and will be repeated with smaller h.
+	 */
+	void onStep(double x, double h, double[] y, double[][] stages, double error, boolean accepted);
+
+	/**
+	 * Called once after the last step.
+	 * @param valuesX - x values of the result.
+	 * @param valuesY - y vectors of the result in row-major order.
+	 * @param acceptedStepsNum - number of accepted steps.
+	 * @param rejectedStepsNum - number of rejected steps.
+	 * @param functionEvaluationsNum - number of right-hand side evaluations.
+	 */
+	void onFinish(double[] valuesX, double[] valuesY, int acceptedStepsNum, int rejectedStepsNum, int functionEvaluationsNum);
+}
@@ -0,0 +1,170 @@
+package com.maxclay.model;
+
+import java.util.Arrays;
+
+/**
+ * Results of {@link ParameterSweep parameter sweep}: y and sensitivities dy/dp of each parameter value at each point
+ * of the output grid, and step statistics.<br/>
+ * Vectors are kept in row-major order: component j of member m at point i is stored at index
+ * (i * parametersNum + m) * dimension + j.
+ */
+public class SweepResult {
+
+	private final double[] parameters;
+	private final boolean ascending;
+	private final double[] valuesX;
+	private final int dimension;
+
+	private final double[] valuesY;
+	private final double[] sensitivities;
+	private final int[] acceptedStepsNum;
+	private final int[] rejectedStepsNum;
+	private final int[] functionEvaluationsNum;
+	private final boolean[] failed;
+
+	SweepResult(double[] parameters, double[] valuesX, int dimension, boolean sensitivities) {
+
+		this.parameters = parameters.clone();
+		ascending = isAscending(this.parameters);
+		this.valuesX = valuesX;
+		this.dimension = dimension;
+
+		int size = valuesX.length * parameters.length * dimension;
+		valuesY = new double[size];
+		this.sensitivities = sensitivities ? new double[size] : null;
+		acceptedStepsNum = new int[parameters.length];
+		rejectedStepsNum = new int[parameters.length];
+		functionEvaluationsNum = new int[parameters.length];
+		failed = new boolean[parameters.length];
+	}
+
+	public int getParametersNum() {
+		return parameters.length;
+	}
+
+	public double getParameter(int member) {
+		return parameters[member];
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	/**
+	 *
+	 * @return x values of the output grid.
+	 */
+	public double[] getArrayX() {
+		return valuesX;
+	}
+
+	public double[] getArrayY() {
+		return valuesY;
+	}
+
+	/**
+	 *
+	 * @return sensitivities dy/dp in the same order as y values, or null if they weren't computed.
+	 */
+	public double[] getArraySensitivities() {
+		return sensitivities;
+	}
+
+	public boolean hasSensitivities() {
+		return sensitivities != null;
+	}
+
+	public double getY(int point, int member, int component) {
+		return valuesY[index(point, member, component)];
+	}
+
+	public double getSensitivity(int point, int member, int component) {
+		return sensitivities[index(point, member, component)];
+	}
+
+	/**
+	 * Estimates y at the point of output grid for parameter value that wasn't swept. Between two swept values
+	 * it is cubic Hermite interpolation using y and dy/dp at both of them, or linear interpolation without
+	 * sensitivities. Outside the swept range y is extrapolated from the nearest value. Swept value interval is found
+	 * with binary search.
+	 * @param p - parameter value.
+	 * @param point - index of the point of the output grid.
+	 * @param component - component of y.
+	 * @return estimated y.
+	 * @throws IllegalStateException if swept values are not in ascending order.
+	 */
+	public double interpolate(double p, int point, int component) {
+
+		if(!ascending)
+			throw new IllegalStateException("Parameters must be in ascending order to interpolate");
+
+		int last = parameters.length - 1;
+		if(last == 0 || p <= parameters[0] || p >= parameters[last]) {
+
+			int m = (last == 0 || p <= parameters[0]) ? 0 : last;
+			double y = getY(point, m, component);
+			return (sensitivities == null) ? y : y + (p - parameters[m]) * getSensitivity(point, m, component);
+		}
+
+		int m = Arrays.binarySearch(parameters, p);
+		if(m >= 0)
+			return getY(point, m, component);
+		m = -m - 2;
+
+		double h = parameters[m + 1] - parameters[m];
+		double t = (p - parameters[m]) / h;
+		double y0 = getY(point, m, component);
+		double y1 = getY(point, m + 1, component);
+		if(sensitivities == null)
+			return y0 + t * (y1 - y0);
+
+		double t2 = t * t;
+		double t3 = t2 * t;
+		return (2 * t3 - 3 * t2 + 1) * y0 + (t3 - 2 * t2 + t) * h * getSensitivity(point, m, component)
+				+ (-2 * t3 + 3 * t2) * y1 + (t3 - t2) * h * getSensitivity(point, m + 1, component);
+	}
+
+	public int getAcceptedStepsNum(int member) {
+		return acceptedStepsNum[member];
+	}
+
+	public int getRejectedStepsNum(int member) {
+		return rejectedStepsNum[member];
+	}
+
+	/**
+	 *
+	 * @return number of evaluations of the right-hand side for the parameter value, including those for sensitivities.
+	 */
+	public int getFunctionEvaluationsNum(int member) {
+		return functionEvaluationsNum[member];
+	}
+
+	/**
+	 *
+	 * @return true if required accuracy couldn't be achieved for the batch the parameter value was solved in; its values are NaN.
+	 */
+	public boolean isFailed(int member) {
+		return failed[member];
+	}
+
+	void setStatistics(int member, int acceptedStepsNum, int rejectedStepsNum, int functionEvaluationsNum, boolean failed) {
+
+		this.acceptedStepsNum[member] = acceptedStepsNum;
+		this.rejectedStepsNum[member] = rejectedStepsNum;
+		this.functionEvaluationsNum[member] = functionEvaluationsNum;
+		this.failed[member] = failed;
+	}
+
+	int index(int point, int member, int component) {
+		return (point * parameters.length + member) * dimension + component;
+	}
+
+	private static boolean isAscending(double[] parameters) {
+
+		for(int m = 0; m < parameters.length - 1; m++)
+			if(!(parameters[m] < parameters[m + 1]))
+				return false;
+		return true;
+	}
+}
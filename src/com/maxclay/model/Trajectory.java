@@ -0,0 +1,298 @@
+package com.maxclay.model;
+
+import java.util.Arrays;
+
+/**
+ * Growable sequence of the steps that were actually accepted by an integrator.<br/>
+ * Each point stores x, y and y' = f(x, y), so values between points can be recovered
+ * with cubic Hermite interpolation (dense output).<br/>
+ * Vectors y and y' of all points are kept in contiguous row-major arrays:
+ * component j of point i is stored at index i * dimension + j.
+ */
+public class Trajectory {
+
+	/**
+	 * Initial number of points the trajectory can hold before growing.
+	 */
+	public static final int DEFAULT_CAPACITY = 64;
+
+	private final int dimension;
+
+	private double[] valuesX;
+	private double[] valuesY;
+	private double[] derivatives;
+	private int size;
+
+	/**
+	 * Creates trajectory for scalar equation.
+	 */
+	public Trajectory() {
+		this(1, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param dimension - number of unknowns.
+	 * @param capacity - initial number of points.
+	 */
+	public Trajectory(int dimension, int capacity) {
+
+		this.dimension = dimension;
+		valuesX = new double[capacity];
+		valuesY = new double[capacity * dimension];
+		derivatives = new double[capacity * dimension];
+
+	}
+
+	/**
+	 * Appends accepted point to the end of trajectory. Vectors are copied.
+	 * @param x - x value.
+	 * @param y - y value.
+	 * @param dydx - derivative value f(x, y).
+	 */
+	public void append(double x, double[] y, double[] dydx) {
+
+		if(size == valuesX.length)
+			grow();
+
+		valuesX[size] = x;
+		System.arraycopy(y, 0, valuesY, size * dimension, dimension);
+		System.arraycopy(dydx, 0, derivatives, size * dimension, dimension);
+		size++;
+	}
+
+	/**
+	 * Appends points of other trajectory that lie beyond the last point of this one, so trajectory
+	 * continued from its last point can be joined without repeating the common point.
+	 * @param other - trajectory of the same dimension.
+	 */
+	public void append(Trajectory other) {
+
+		if(other.getDimension() != dimension)
+			throw new IllegalArgumentException("Trajectory dimensions differ");
+
+		int first = 0;
+		int otherSize = other.size();
+		if(size > 0)
+			while(first < otherSize && other.getX(first) <= valuesX[size - 1])
+				first++;
+
+		int count = otherSize - first;
+		while(size + count > valuesX.length)
+			grow();
+
+		if(other.getClass() == Trajectory.class) {
+
+			System.arraycopy(other.valuesX, first, valuesX, size, count);
+			System.arraycopy(other.valuesY, first * dimension, valuesY, size * dimension, count * dimension);
+			System.arraycopy(other.derivatives, first * dimension, derivatives, size * dimension, count * dimension);
+			size += count;
+			return;
+		}
+
+		for(int i = first; i < otherSize; i++, size++) {
+
+			valuesX[size] = other.getX(i);
+			for(int j = 0; j < dimension; j++) {
+				valuesY[size * dimension + j] = other.getY(i, j);
+				derivatives[size * dimension + j] = other.getDerivative(i, j);
+			}
+		}
+	}
+
+	/**
+	 * Removes all points, keeping allocated capacity.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 *
+	 * @return number of stored points.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 *
+	 * @return number of unknowns.
+	 */
+	public int getDimension() {
+		return dimension;
+	}
+
+	public double getX(int i) {
+		return valuesX[i];
+	}
+
+	public double getY(int i) {
+		return valuesY[i * dimension];
+	}
+
+	public double getY(int i, int component) {
+		return valuesY[i * dimension + component];
+	}
+
+	public double getDerivative(int i, int component) {
+		return derivatives[i * dimension + component];
+	}
+
+	/**
+	 * Copies y vector of i-th point.
+	 * @param i - point index.
+	 * @param y - array to copy to.
+	 */
+	public void getY(int i, double[] y) {
+		System.arraycopy(valuesY, i * dimension, y, 0, dimension);
+	}
+
+	/**
+	 * Copies derivative vector of i-th point.
+	 * @param i - point index.
+	 * @param dydx - array to copy to.
+	 */
+	public void getDerivative(int i, double[] dydx) {
+		System.arraycopy(derivatives, i * dimension, dydx, 0, dimension);
+	}
+
+	/**
+	 * Creates cursor positioned before the first point. Cursor reads points in place, without copying
+	 * or boxing, and is the way to go through long trajectories.
+	 * @return new cursor.
+	 */
+	public TrajectoryCursor cursor() {
+		return new ArrayCursor();
+	}
+
+	/**
+	 *
+	 * @return copy of stored x values.
+	 */
+	public double[] getArrayX() {
+		return Arrays.copyOf(valuesX, size);
+	}
+
+	/**
+	 *
+	 * @return copy of stored y values in row-major order.
+	 */
+	public double[] getArrayY() {
+		return Arrays.copyOf(valuesY, size * dimension);
+	}
+
+	/**
+	 * Finds first component of y at any x of scalar trajectory.
+	 * @param x - x parameter.
+	 * @return interpolated y value.
+	 * @see #interpolate(double, double[], int)
+	 */
+	public double interpolate(double x) {
+
+		double[] y = new double[dimension];
+		interpolate(x, y, 0);
+		return y[0];
+	}
+
+	/**
+	 * Finds y vector at any x between first and last stored points using cubic Hermite interpolation
+	 * on the surrounding step. Values outside of the trajectory are extrapolated from the nearest step.
+	 * @param x - x parameter.
+	 * @param y - array to write interpolated vector to.
+	 * @param offset - index in y the vector starts at.
+	 */
+	public void interpolate(double x, double[] y, int offset) {
+
+		if(size == 0)
+			throw new IllegalStateException("Trajectory is empty");
+		if(size == 1) {
+			System.arraycopy(valuesY, 0, y, offset, dimension);
+			return;
+		}
+
+		int i = findSegment(x);
+		double h = valuesX[i + 1] - valuesX[i];
+		double t = (x - valuesX[i]) / h;
+		double t2 = t * t;
+		double t3 = t2 * t;
+
+		double h00 = 2 * t3 - 3 * t2 + 1;
+		double h10 = (t3 - 2 * t2 + t) * h;
+		double h01 = -2 * t3 + 3 * t2;
+		double h11 = (t3 - t2) * h;
+
+		int start = i * dimension;
+		int end = start + dimension;
+		for(int j = 0; j < dimension; j++)
+			y[offset + j] = h00 * valuesY[start + j] + h10 * derivatives[start + j]
+					+ h01 * valuesY[end + j] + h11 * derivatives[end + j];
+	}
+
+	/**
+	 * Samples trajectory at given x values.
+	 * @param x - x values to sample at.
+	 * @param y - array to write interpolated vectors to in row-major order, must have at least x.length * dimension elements.
+	 */
+	public void sample(double[] x, double[] y) {
+
+		for(int i = 0; i < x.length; i++)
+			interpolate(x[i], y, i * dimension);
+	}
+
+	private int findSegment(double x) {
+
+		int low = 0;
+		int high = size - 2;
+		while(low < high) {
+
+			int middle = (low + high + 1) >>> 1;
+			if(valuesX[middle] <= x)
+				low = middle;
+			else
+				high = middle - 1;
+		}
+
+		return low;
+	}
+
+	private void grow() {
+
+		int capacity = Math.max(DEFAULT_CAPACITY, valuesX.length * 2);
+		valuesX = Arrays.copyOf(valuesX, capacity);
+		valuesY = Arrays.copyOf(valuesY, capacity * dimension);
+		derivatives = Arrays.copyOf(derivatives, capacity * dimension);
+	}
+
+	private class ArrayCursor implements TrajectoryCursor {
+
+		private int index = -1;
+
+		public boolean next() {
+
+			if(index + 1 >= size)
+				return false;
+			index++;
+			return true;
+		}
+
+		public void seek(double x) {
+			index = (size == 0 || x <= valuesX[0]) ? -1 : findSegment(x) - 1;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public double getX() {
+			return valuesX[index];
+		}
+
+		public double getY(int component) {
+			return valuesY[index * dimension + component];
+		}
+
+		public double getDerivative(int component) {
+			return derivatives[index * dimension + component];
+		}
+	}
+}
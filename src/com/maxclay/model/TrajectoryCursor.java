@@ -0,0 +1,34 @@
+package com.maxclay.model;
+
+/**
+ * Forward cursor over points of {@link Trajectory}, reading x, y and y' of the current point without copying.<br/>
+ * Cursor is positioned before the first point when created, so {@link #next() next()} has to be called
+ * before reading values.
+ */
+public interface TrajectoryCursor {
+
+	/**
+	 * Moves to the next point.
+	 * @return false if there are no more points.
+	 */
+	boolean next();
+
+	/**
+	 * Positions cursor so that {@link #next() next()} moves to the point starting the step that contains x,
+	 * to the first point if x precedes the trajectory, or to the start of the last step if x is beyond it.
+	 * @param x - x parameter.
+	 */
+	void seek(double x);
+
+	/**
+	 *
+	 * @return index of the current point, -1 before the first one.
+	 */
+	int getIndex();
+
+	double getX();
+
+	double getY(int component);
+
+	double getDerivative(int component);
+}
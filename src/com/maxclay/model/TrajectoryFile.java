@@ -0,0 +1,55 @@
+package com.maxclay.model;
+
+/**
+ * Binary trajectory file format.<br/>
+ * File starts with {@link #HEADER_SIZE} bytes long header followed by fixed size records, one per accepted step.
+ * All values are little-endian.
+ * <pre>
+ * offset  size  header field
+ *      0     4  magic number {@link #MAGIC}
+ *      4     4  format version
+ *      8     4  dimension N
+ *     12     4  length of method name in bytes
+ *     16     8  lower boundary
+ *     24     8  higher boundary
+ *     32     8  accuracy
+ *     40     8  number of records, written when the file is closed
+ *     48    64  method name in UTF-8, zero padded
+ *
+ * record: x followed by y[0] .. y[N - 1], (N + 1) * 8 bytes
+ * </pre>
+ * The first record holds the initial value.
+ */
+public final class TrajectoryFile {
+
+	/**
+	 * "CPTR" in ASCII.
+	 */
+	public static final int MAGIC = 0x43505452;
+
+	public static final int VERSION = 1;
+
+	public static final int HEADER_SIZE = 112;
+
+	public static final int MAX_METHOD_NAME_LENGTH = 64;
+
+	static final int DIMENSION_OFFSET = 8;
+	static final int METHOD_NAME_LENGTH_OFFSET = 12;
+	static final int LOWER_BOUNDARY_OFFSET = 16;
+	static final int HIGHER_BOUNDARY_OFFSET = 24;
+	static final int ACCURACY_OFFSET = 32;
+	static final int RECORDS_NUM_OFFSET = 40;
+	static final int METHOD_NAME_OFFSET = 48;
+
+	private TrajectoryFile() {
+	}
+
+	/**
+	 *
+	 * @param dimension - number of unknowns.
+	 * @return size of one record in bytes.
+	 */
+	public static int recordSize(int dimension) {
+		return (dimension + 1) * Double.BYTES;
+	}
+}
@@ -0,0 +1,162 @@
+package com.maxclay.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads {@link TrajectoryFile binary trajectory file} through memory mapping, so any range of steps can be accessed
+ * without loading the whole file. Files larger than 2GB are mapped in several segments.
+ */
+public class TrajectoryFileReader implements Closeable {
+
+	/**
+	 * Maximum size of one mapped segment.
+	 */
+	public static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+	private final FileChannel channel;
+
+	private final int dimension;
+	private final String methodName;
+	private final double lowerBoundary;
+	private final double higherBoundary;
+	private final double accuracy;
+	private final long recordsNum;
+
+	private final int recordSize;
+	private final int recordsPerSegment;
+	private final MappedByteBuffer[] segments;
+
+	/**
+	 * @param file - file to read.
+	 * @throws IOException if file can't be read or is not a trajectory file.
+	 */
+	public TrajectoryFileReader(Path file) throws IOException {
+
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+
+			ByteBuffer header = ByteBuffer.allocate(TrajectoryFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			while(header.hasRemaining())
+				if(channel.read(header, header.position()) < 0)
+					throw new IOException("Trajectory file header is truncated");
+
+			if(header.getInt(0) != TrajectoryFile.MAGIC)
+				throw new IOException("Not a trajectory file: " + file);
+			if(header.getInt(4) != TrajectoryFile.VERSION)
+				throw new IOException("Unsupported trajectory file version " + header.getInt(4));
+
+			// header values are checked before use, so damaged file fails as any other unreadable file
+			dimension = header.getInt(TrajectoryFile.DIMENSION_OFFSET);
+			if(dimension < 1 || dimension >= MAX_SEGMENT_SIZE / Double.BYTES - 1)
+				throw new IOException("Invalid trajectory file: " + file);
+			lowerBoundary = header.getDouble(TrajectoryFile.LOWER_BOUNDARY_OFFSET);
+			higherBoundary = header.getDouble(TrajectoryFile.HIGHER_BOUNDARY_OFFSET);
+			accuracy = header.getDouble(TrajectoryFile.ACCURACY_OFFSET);
+
+			int nameLength = header.getInt(TrajectoryFile.METHOD_NAME_LENGTH_OFFSET);
+			if(nameLength < 0 || nameLength > TrajectoryFile.HEADER_SIZE - TrajectoryFile.METHOD_NAME_OFFSET)
+				throw new IOException("Invalid trajectory file: " + file);
+			byte[] name = new byte[nameLength];
+			header.position(TrajectoryFile.METHOD_NAME_OFFSET);
+			header.get(name);
+			methodName = new String(name, StandardCharsets.UTF_8);
+
+			// records written after the last header update are still readable
+			recordSize = TrajectoryFile.recordSize(dimension);
+			recordsNum = Math.max(header.getLong(TrajectoryFile.RECORDS_NUM_OFFSET),
+					(channel.size() - TrajectoryFile.HEADER_SIZE) / recordSize);
+
+			recordsPerSegment = MAX_SEGMENT_SIZE / recordSize;
+			segments = new MappedByteBuffer[(int) ((recordsNum + recordsPerSegment - 1) / recordsPerSegment)];
+			for(int i = 0; i < segments.length; i++) {
+
+				long first = (long) i * recordsPerSegment;
+				long size = Math.min(recordsPerSegment, recordsNum - first) * recordSize;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, TrajectoryFile.HEADER_SIZE + first * recordSize, size);
+				segments[i].order(ByteOrder.LITTLE_ENDIAN);
+			}
+
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	public String getMethodName() {
+		return methodName;
+	}
+
+	public double getLowerBoundary() {
+		return lowerBoundary;
+	}
+
+	public double getHigherBoundary() {
+		return higherBoundary;
+	}
+
+	public double getAccuracy() {
+		return accuracy;
+	}
+
+	/**
+	 *
+	 * @return number of stored steps, including the initial value.
+	 */
+	public long getRecordsNum() {
+		return recordsNum;
+	}
+
+	public double getX(long i) {
+		return segment(i).getDouble(offset(i));
+	}
+
+	public double getY(long i, int component) {
+		return segment(i).getDouble(offset(i) + (component + 1) * Double.BYTES);
+	}
+
+	/**
+	 * Reads range of steps.
+	 * @param from - index of the first step.
+	 * @param count - number of steps.
+	 * @param valuesX - array to write x values to, starting from index 0.
+	 * @param valuesY - array to write y vectors to in row-major order, starting from index 0.
+	 */
+	public void read(long from, int count, double[] valuesX, double[] valuesY) {
+
+		if(from < 0 || from + count > recordsNum)
+			throw new IndexOutOfBoundsException("Steps [" + from + "; " + (from + count) + ") are out of [0; " + recordsNum + ")");
+
+		for(int i = 0; i < count; i++) {
+
+			MappedByteBuffer segment = segment(from + i);
+			int offset = offset(from + i);
+			valuesX[i] = segment.getDouble(offset);
+			for(int j = 0; j < dimension; j++)
+				valuesY[i * dimension + j] = segment.getDouble(offset + (j + 1) * Double.BYTES);
+		}
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private MappedByteBuffer segment(long i) {
+		return segments[(int) (i / recordsPerSegment)];
+	}
+
+	private int offset(long i) {
+		return (int) (i % recordsPerSegment) * recordSize;
+	}
+}
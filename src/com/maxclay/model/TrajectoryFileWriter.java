@@ -0,0 +1,133 @@
+package com.maxclay.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes accepted steps to {@link TrajectoryFile binary trajectory file} while the problem is being solved.<br/>
+ * Records are collected in direct buffer and written to the file channel when it is full, so memory use
+ * doesn't depend on the number of steps. Writer must be {@link #close() closed} after solving to complete the header.
+ */
+public class TrajectoryFileWriter implements SolverListener, Closeable {
+
+	/**
+	 * Size of the buffer records are collected in.
+	 */
+	public static final int BUFFER_SIZE = 1 << 20;
+
+	private final FileChannel channel;
+	private ByteBuffer buffer;
+	private final ByteBuffer count;
+
+	private int dimension;
+	private long recordsNum;
+
+	/**
+	 * @param file - file to write to. Existing file is overwritten.
+	 * @throws IOException if file can't be opened.
+	 */
+	public TrajectoryFileWriter(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		count = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	public void onStart(String methodName, CauchyProblem problem) {
+
+		dimension = problem.getDimension();
+		recordsNum = 0;
+		buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, TrajectoryFile.recordSize(dimension)))
+				.order(ByteOrder.LITTLE_ENDIAN);
+
+		byte[] name = methodName.getBytes(StandardCharsets.UTF_8);
+		int nameLength = Math.min(name.length, TrajectoryFile.MAX_METHOD_NAME_LENGTH);
+
+		ByteBuffer header = ByteBuffer.allocate(TrajectoryFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(TrajectoryFile.MAGIC);
+		header.putInt(TrajectoryFile.VERSION);
+		header.putInt(dimension);
+		header.putInt(nameLength);
+		header.putDouble(problem.getLowerBoundary());
+		header.putDouble(problem.getHigherBoundary());
+		header.putDouble(problem.getAccuracy());
+		header.putLong(0);
+		header.put(name, 0, nameLength);
+		header.clear();
+
+		try {
+			channel.truncate(0);
+			channel.write(header, 0);
+			channel.position(TrajectoryFile.HEADER_SIZE);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		append(problem.getLowerBoundary(), problem.getStartingY());
+	}
+
+	public void onStep(double x, double h, double[] y, double[][] stages, double error, boolean accepted) {
+
+		if(accepted)
+			append(x, y);
+	}
+
+	public void onFinish(double[] valuesX, double[] valuesY, int acceptedStepsNum, int rejectedStepsNum, int functionEvaluationsNum) {
+		flush();
+	}
+
+	/**
+	 * Writes buffered records and number of records written so far to the file.
+	 */
+	public void flush() {
+
+		if(buffer == null)
+			return;
+
+		try {
+			buffer.flip();
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+
+			count.putLong(0, recordsNum);
+			count.clear();
+			channel.write(count, TrajectoryFile.RECORDS_NUM_OFFSET);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 *
+	 * @return number of records written since the last start.
+	 */
+	public long getRecordsNum() {
+		return recordsNum;
+	}
+
+	public void close() throws IOException {
+
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void append(double x, double[] y) {
+
+		if(buffer.remaining() < TrajectoryFile.recordSize(dimension))
+			flush();
+
+		buffer.putDouble(x);
+		for(int j = 0; j < dimension; j++)
+			buffer.putDouble(y[j]);
+		recordsNum++;
+	}
+}